@@ -15,42 +15,76 @@ import java.util.*;
  * It handles user input, processes commands, and persists tasks to storage.
  */
 public class Dickie {
+    // Starts a line of commands separated by ";" that run as one batch
+    private static final String BATCH_PREFIX = "batch ";
+
     private final Storage storage;
     private final Ui ui;
     private final TaskList taskList;
+    // Commands queued since "begin", or null outside a begin ... commit block
+    private List<String> batchInputs;
 
     /**
      * Constructs a new Dickie instance.
      * Initializes storage, UI, and loads existing tasks from file.
      * The storage file path is set to "./data/dickie.txt".
+     * Every later change to the task list is journaled next to that file.
      */
     public Dickie() {
-        this.storage = new Storage("./data/dickie.txt");
+        this("./data/dickie.txt");
+    }
+
+    /**
+     * Constructs a new Dickie instance that keeps its tasks at the given path.
+     *
+     * @param filePath The path to the data file
+     */
+    public Dickie(String filePath) {
+        this.storage = new Storage(filePath);
         this.ui = new Ui();
 
         // Load tasks from file on startup
-        ArrayList<Task> loadedTasks = storage.load();
+        List<Task> loadedTasks = storage.load();
         assert loadedTasks != null : "Loaded tasks should not be null";
 
         // put loaded tasks into a taskList object
         this.taskList = new TaskList(loadedTasks);
+        storage.attach(taskList);
     }
 
     /**
      * Generates a response to user input.
      * Processes the input command and returns the appropriate response.
-     * If the input is "bye", saves all tasks to storage before returning goodbye message.
+     * If the input is "bye", flushes any unsaved tasks to storage before returning goodbye message,
+     * unless a begin ... commit block is open, which has to be committed or rolled back first.
+     * Commands sent on one line after "batch " and separated by ";", or sent between "begin" and "commit",
+     * are run as one batch that either takes effect as a whole or not at all. Any other line is one command,
+     * even if it has a ";" in it.
      *
      * @param input The user's input command as a string
      * @return The response message to be displayed to the user
      */
     public String getResponse(String input) {
         if (input.equals("bye")) {
-            storage.save(taskList);
+            if (batchInputs != null) {
+                return ui.showBatchStillOpen(batchInputs.size());
+            }
+            flush();
             return ui.showGoodbye();
         }
 
         try {
+            if (batchInputs != null) {
+                return continueBatch(input);
+            }
+            if (input.trim().equals("begin")) {
+                batchInputs = new ArrayList<>();
+                return ui.showBatchStarted();
+            }
+            if (input.trim().startsWith(BATCH_PREFIX)) {
+                return CommandParser.handleBatch(splitBatch(input.trim().substring(BATCH_PREFIX.length())),
+                        taskList, ui);
+            }
             String response = CommandParser.handleInput(input, taskList, ui);
             assert response != null : "Response from CommandParser should not be null";
             return response;
@@ -59,6 +93,65 @@ public class Dickie {
         }
     }
 
+    /**
+     * Queues a command sent inside a begin ... commit block, or ends the block on "commit" or "rollback".
+     */
+    private String continueBatch(String input) throws DickieException {
+        switch (input.trim()) {
+        case "commit":
+            List<String> inputs = batchInputs;
+            batchInputs = null;
+            return CommandParser.handleBatch(inputs, taskList, ui);
+        case "rollback":
+            int count = batchInputs.size();
+            batchInputs = null;
+            return ui.showBatchDropped(count);
+        case "begin":
+            throw new DickieException("you're already in a batch! type \"commit\" or \"rollback\" first.");
+        default:
+            batchInputs.add(input);
+            return ui.showBatchQueued(batchInputs.size());
+        }
+    }
+
+    /**
+     * Splits a line of commands separated by ";", skipping empty ones.
+     */
+    private static List<String> splitBatch(String input) {
+        List<String> inputs = new ArrayList<>();
+        for (String command : input.split(";")) {
+            if (!command.isBlank()) {
+                inputs.add(command.trim());
+            }
+        }
+        return inputs;
+    }
+
+    /**
+     * Returns whether a begin ... commit block is open, holding commands that have not been run yet.
+     *
+     * @return true if commands are waiting for "commit" or "rollback"
+     */
+    public boolean isInBatch() {
+        return batchInputs != null;
+    }
+
+    /**
+     * Saves any changes not yet written by the background autosave, and waits until they are on disk.
+     * Should be called before the application exits.
+     */
+    public void flush() {
+        storage.flush();
+    }
+
+    /**
+     * Saves any changes not yet written, and stops the background autosave and compaction.
+     * Should be called once this instance is no longer used.
+     */
+    public void close() {
+        storage.close();
+    }
+
     /**
      * Returns the greeting message to be shown when the application starts.
      *
@@ -85,8 +178,8 @@ public class Dickie {
             String response = dickie.getResponse(input);
             assert response != null : "Response from CommandParser should not be null";
             System.out.println(response);
-            if (input.equals("bye")) {
-                dickie.storage.save(dickie.taskList);
+            if (input.equals("bye") && !dickie.isInBatch()) {
+                dickie.close();
                 break;
             }
         }
@@ -5,13 +5,18 @@ import dickie.task.*;
 import dickie.utils.TaskList;
 import dickie.utils.Ui;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.List;
 
 
 /**
  * Includes methods to parse input commands
  */
 public class CommandParser {
+    private static final int MAX_DAY_COUNT = 36500;
+
     /**
      * Splits the user input into individual words using whitespace as a delimiter.
      *
@@ -40,16 +45,53 @@ public class CommandParser {
         case LIST:
             return ui.listTasks(taskList);
         case MARK:
+            requireTasksExist(splitInput[1], taskList);
+            if (!isValidTaskNumber(splitInput[1], taskList.getSize())) {
+                return ui.showTasksChanged("good job! I've marked these as DONE:", taskList.markAll(splitInput[1]));
+            }
             Task markedTask = taskList.mark(splitInput[1]);
             return ui.showTaskMarked(markedTask.toString());
         case UNMARK:
+            requireTasksExist(splitInput[1], taskList);
+            if (!isValidTaskNumber(splitInput[1], taskList.getSize())) {
+                return ui.showTasksChanged("aite, I've unmarked these:", taskList.unmarkAll(splitInput[1]));
+            }
             Task unmarkedTask = taskList.unmark(splitInput[1]);
             return ui.showTaskUnmarked(unmarkedTask.toString());
         case DELETE:
+            requireTasksExist(splitInput[1], taskList);
+            if (!isValidTaskNumber(splitInput[1], taskList.getSize())) {
+                List<Task> deletedTasks = taskList.deleteAll(splitInput[1]);
+                return ui.showTasksChanged("got it, deleted these:", deletedTasks)
+                        + "\nyou now have " + taskList.getSize() + " tasks in your list.";
+            }
             Task deletedTask = taskList.delete(splitInput[1]);
             return ui.showTaskDeleted(deletedTask.toString(), taskList.getSize());
+        case STATS:
+            return ui.showStats(taskList);
+        case DUE:
+            LocalDate before = LocalDate.parse(splitInput[2]);
+            return ui.showDatedTasks("here's everything due before " + before + ":",
+                    taskList.findByDate(null, before.minusDays(1)));
+        case ON:
+            LocalDate date = LocalDate.parse(splitInput[1]);
+            return ui.showDatedTasks("here's everything on " + date + ":", taskList.findByDate(date, date));
+        case UPCOMING:
+            LocalDate today = LocalDate.now();
+            int days = Integer.parseInt(splitInput[1]);
+            // today is the first of the days
+            return ui.showDatedTasks("here's everything coming up in the next " + days + " days:",
+                    taskList.findByDate(today, today.plusDays(days - 1)));
+        case CONFLICTS:
+            return ui.showDatedTasks("here are the events that clash between " + splitInput[1] + " and "
+                    + splitInput[2] + ":",
+                    taskList.findConflictingEvents(LocalDate.parse(splitInput[1]), LocalDate.parse(splitInput[2])));
+        case FREE:
+            return ui.showFreeDays(
+                    taskList.findFreeDays(LocalDate.parse(splitInput[1]), LocalDate.parse(splitInput[2])));
         case FIND:
-            ArrayList<Task> foundTasks = taskList.find(splitInput[1]);
+            // everything after "find" is the query, so that it can have several keywords
+            ArrayList<Task> foundTasks = taskList.find(input.trim().substring(splitInput[0].length()));
             return ui.showFoundTasks(foundTasks);
         case ADDTASK:
             return handleAddTask(input, splitInput, taskList, ui);
@@ -58,9 +100,46 @@ public class CommandParser {
         }
     }
 
+    /**
+     * Runs several commands as one transaction, so that either every command takes effect or none does,
+     * and their changes are journaled in one write. Each command sees the changes made by the ones before it.
+     * If a command fails, the changes made by the ones before it are undone.
+     *
+     * @param inputs Commands in the order they are run
+     * @param taskList Tasklist object with full task list
+     * @param ui Ui object to handle displayed messages
+     * @return Responses to every command, one after another
+     * @throws DickieException If any command is invalid, after every change has been undone
+     */
+    public static String handleBatch(List<String> inputs, TaskList taskList, Ui ui) throws DickieException {
+        StringBuilder sb = new StringBuilder();
+        boolean isCommitted = false;
+        taskList.begin();
+        try {
+            for (String input : inputs) {
+                if (sb.length() > 0) {
+                    sb.append('\n');
+                }
+                try {
+                    sb.append(handleInput(input, taskList, ui));
+                } catch (DickieException e) {
+                    throw new DickieException(ui.showBatchFailed(input, e.getMessage()));
+                }
+            }
+            isCommitted = true;
+            taskList.commit();
+        } finally {
+            if (!isCommitted) {
+                taskList.rollback();
+            }
+        }
+        return sb.toString();
+    }
+
     /**
      * Determines the type of command based on the user input.
-     * Valid commands include list, mark, unmark, delete, find and add task commands.
+     * Valid commands include list, mark, unmark, delete, find, due, on, upcoming, conflicts, free, stats
+     * and add task commands.
      *
      * @param noOfTasks Current number of tasks in the task list
      * @return The CommandType corresponding to the user input
@@ -81,6 +160,35 @@ public class CommandParser {
             } else {
                 throw new DickieException("try simply typing \"list\" to list your tasks!");
             }
+        case "stats":
+            if (noOfInputtedWords == 1) {
+                return CommandType.STATS;
+            } else {
+                throw new DickieException("try simply typing \"stats\" to see how much memory your tasks use!");
+            }
+        case "due":
+            if (noOfInputtedWords != 3 || !splitInput[1].equals("/before") || !isValidDate(splitInput[2])) {
+                throw new DickieException("try again, using the format \"due /before YYYY-MM-DD\"!");
+            }
+            return CommandType.DUE;
+        case "on":
+            if (noOfInputtedWords != 2 || !isValidDate(splitInput[1])) {
+                throw new DickieException("try again, using the format \"on YYYY-MM-DD\"!");
+            }
+            return CommandType.ON;
+        case "upcoming":
+            if (noOfInputtedWords != 2 || !isValidDayCount(splitInput[1])) {
+                throw new DickieException("try again, using the format \"upcoming <numberOfDays>\"!");
+            }
+            return CommandType.UPCOMING;
+        case "conflicts":
+        case "free":
+            if (noOfInputtedWords != 3 || !isValidDate(splitInput[1]) || !isValidDate(splitInput[2])
+                    || LocalDate.parse(splitInput[1]).isAfter(LocalDate.parse(splitInput[2]))) {
+                throw new DickieException("try again, using the format \"" + firstWord
+                        + " YYYY-MM-DD YYYY-MM-DD\" with the earlier date first!");
+            }
+            return firstWord.equals("free") ? CommandType.FREE : CommandType.CONFLICTS;
         case "find":
             if (noOfInputtedWords != 1) {
                 return CommandType.FIND;
@@ -88,25 +196,44 @@ public class CommandParser {
                 throw new DickieException("what task would you like me to find? try using the format \"find exampleTask\"!");
             }
         case "mark":
-            if (!isWordTaskNumberFormat(splitInput, noOfInputtedWords, noOfTasks)) {
-               throw new DickieException("try again, using the format \"mark <taskNumber>\"!");
+            if (!isWordTaskSelectionFormat(splitInput, noOfInputtedWords, noOfTasks)) {
+                throw new DickieException("try again, using the format \"mark <taskNumber>\", \"mark #<taskId>\""
+                        + " or a list such as \"mark 1-3,#12\" or \"mark /done\"!");
             }
             return CommandType.MARK;
         case "unmark":
-            if (!isWordTaskNumberFormat(splitInput, noOfInputtedWords, noOfTasks)) {
-                throw new DickieException("try again, using the format \"unmark <taskNumber>\"!");
+            if (!isWordTaskSelectionFormat(splitInput, noOfInputtedWords, noOfTasks)) {
+                throw new DickieException("try again, using the format \"unmark <taskNumber>\", \"unmark #<taskId>\""
+                        + " or a list such as \"unmark 1-3,#12\" or \"unmark /done\"!");
             }
             return CommandType.UNMARK;
         case "delete":
-            if (!isWordTaskNumberFormat(splitInput, noOfInputtedWords, noOfTasks)) {
-                throw new DickieException("try again, using the format \"delete <taskNumber>\"!");
+            if (!isWordTaskSelectionFormat(splitInput, noOfInputtedWords, noOfTasks)) {
+                throw new DickieException("try again, using the format \"delete <taskNumber>\", \"delete #<taskId>\""
+                        + " or a list such as \"delete 1-3,#12\" or \"delete /done\"!");
             }
             return CommandType.DELETE;
         case "deadline", "todo", "event":
             return CommandType.ADDTASK; // input format checked in TaskFactory
         default:
             throw new DickieException("invalid command type! try the following commands:\n" +
-                    "list, find, mark, unmark, delete, deadline, todo, event :)");
+                    "list, find, mark, unmark, delete, deadline, todo, event, due, on, upcoming, conflicts, free, stats :)");
+        }
+    }
+
+    /**
+     * Checks that every "#id" reference in a selection refers to a task in the task list. Task numbers are
+     * already checked against the number of tasks when the command type is determined.
+     *
+     * @param selection Task number, "#id" reference or list of them given by the user
+     * @param taskList Tasklist object with full task list
+     * @throws DickieException If no task has one of the given ids
+     */
+    private static void requireTasksExist(String selection, TaskList taskList) throws DickieException {
+        for (String taskNumber : selection.split(",")) {
+            if (isTaskId(taskNumber) && taskList.indexOfId(Long.parseLong(taskNumber.substring(1))) < 0) {
+                throw new DickieException("there's no task with id " + taskNumber + "! use \"list\" to see the ids");
+            }
         }
     }
 
@@ -127,12 +254,60 @@ public class CommandParser {
     }
 
     /**
-     * Checks if second input String is a valid task number in the range [1, noOfTasks]
+     * Checks if input format is in <word> <selection> format, where the selection is a single task number
+     * or any selection accepted by isValidTaskSelection
+     *
+     * @param splitInput Array for input string split by whitespaces
+     * @param noOfInputtedWords Number of words in input
+     * @return True if format is in <word> <selection> format, false otherwise
+     */
+    public static boolean isWordTaskSelectionFormat(String[] splitInput, int noOfInputtedWords, int noOfTasks) {
+        return noOfInputtedWords == 2 && isValidTaskSelection(splitInput[1], noOfTasks);
+    }
+
+    /**
+     * Checks if an input String selects tasks: "/done", "/undone", or task numbers, "#id" references
+     * and ranges such as "3-7" separated by commas, with every number in the range [1, noOfTasks]
+     *
+     * @param selection Input String
+     * @param noOfTasks Number of tasks in TaskList
+     * @return True if the String is a valid selection, false otherwise
+     */
+    public static boolean isValidTaskSelection(String selection, int noOfTasks) {
+        if (selection.equals("/done") || selection.equals("/undone")) {
+            return true;
+        }
+        if (selection.startsWith(",") || selection.endsWith(",")) {
+            return false;
+        }
+        for (String item : selection.split(",")) {
+            int dash = item.indexOf('-');
+            if (dash <= 0) {
+                if (!isValidTaskNumber(item, noOfTasks)) {
+                    return false;
+                }
+                continue;
+            }
+            String first = item.substring(0, dash);
+            String last = item.substring(dash + 1);
+            if (isTaskId(first) || isTaskId(last) || !isValidTaskNumber(first, noOfTasks)
+                    || !isValidTaskNumber(last, noOfTasks) || Integer.parseInt(first) > Integer.parseInt(last)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if second input String is a valid task number in the range [1, noOfTasks], or a "#id" reference
      * @param secondString Second input String
      * @param noOfTasks Number of tasks in TaskList
-     * @return True if task number is in valid range, false otherwise
+     * @return True if task number is in valid range or is a task id, false otherwise
      */
     public static boolean isValidTaskNumber(String secondString, int noOfTasks) {
+        if (isTaskId(secondString)) {
+            return true;
+        }
         try {
             int number = Integer.parseInt(secondString);
             return (number >= 1) && (number <= noOfTasks);
@@ -141,6 +316,55 @@ public class CommandParser {
         }
     }
 
+    /**
+     * Checks if an input String is a valid date in YYYY-MM-DD format. The first and last dates a LocalDate
+     * can hold are not valid, since searches work out the day before or after the date given.
+     *
+     * @param str Input String
+     * @return True if the String is a valid date, false otherwise
+     */
+    public static boolean isValidDate(String str) {
+        try {
+            LocalDate date = LocalDate.parse(str);
+            return date.isAfter(LocalDate.MIN) && date.isBefore(LocalDate.MAX);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks if an input String is a number of days from 1 up to 100 years ahead.
+     *
+     * @param str Input String
+     * @return True if the String is a valid number of days, false otherwise
+     */
+    public static boolean isValidDayCount(String str) {
+        try {
+            int days = Integer.parseInt(str);
+            return days >= 1 && days <= MAX_DAY_COUNT;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks if an input String is a task id reference in "#id" format, such as "#12".
+     *
+     * @param str Input String
+     * @return True if the String is a # followed by a positive number, false otherwise
+     */
+    public static boolean isTaskId(String str) {
+        if (str.length() < 2 || str.length() > 19 || str.charAt(0) != '#') {
+            return false;
+        }
+        for (int i = 1; i < str.length(); i++) {
+            if (str.charAt(i) < '0' || str.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return Long.parseLong(str.substring(1)) > 0;
+    }
+
     /**
      * Handles the creation and addition of a new task based on the user input.
      *
@@ -158,8 +382,12 @@ public class CommandParser {
             case EVENT -> TaskFactory.createEvent(input);
         };
 
+        // looked up before the add, so that the new event does not clash with itself
+        List<Task> clashes = taskType == TaskType.EVENT
+                ? taskList.findOverlappingEvents(((Event) newTask).getFrom(), ((Event) newTask).getTo())
+                : List.of();
         taskList.addTask(newTask);
-        return ui.showTaskAdded(newTask, taskList.getSize());
+        return ui.showTaskAdded(newTask, taskList.getSize()) + ui.showClashes(clashes);
     }
 
     /**
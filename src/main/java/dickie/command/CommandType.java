@@ -6,5 +6,5 @@ package dickie.command;
  */
 public enum CommandType {
     // VOID is the case where the message length is 0
-    LIST, MARK, UNMARK, ADDTASK, DELETE, FIND;
+    LIST, MARK, UNMARK, ADDTASK, DELETE, FIND, STATS, DUE, ON, UPCOMING, CONFLICTS, FREE;
 }
@@ -1,13 +1,12 @@
 package dickie.task;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 /**
  * Represents a task that must be completed by a specific deadline
  */
 public class Deadline extends Task {
-    protected String by;
+    protected LocalDate by;
 
     /**
      * Creates a new deadline task with the given description, deadline date, and priority, defaulting to not done.
@@ -15,10 +14,10 @@ public class Deadline extends Task {
      * @param description Description of the task
      * @param by Deadline date of the task in YYYY-MM-DD format
      * @param priority Priority level of the task
+     * @throws java.time.format.DateTimeParseException If the date is not in YYYY-MM-DD format
      */
     public Deadline(String description, String by, Priority priority) {
-        super(description, priority);
-        this.by = by;
+        this(description, LocalDate.parse(by), priority, false);
     }
 
     /**
@@ -28,39 +27,59 @@ public class Deadline extends Task {
      * @param by Deadline date of the task in YYYY-MM-DD format
      * @param priority Priority level of the task
      * @param isDone Boolean of whether the task is done or not
+     * @throws java.time.format.DateTimeParseException If the date is not in YYYY-MM-DD format
      */
     public Deadline(String description, String by, Priority priority, boolean isDone) {
+        this(description, LocalDate.parse(by), priority, isDone);
+    }
+
+    /**
+     * Creates a new deadline task with the given description, deadline date, priority, and completion status.
+     *
+     * @param description Description of the task
+     * @param by Deadline date of the task
+     * @param priority Priority level of the task
+     * @param isDone Boolean of whether the task is done or not
+     */
+    public Deadline(String description, LocalDate by, Priority priority, boolean isDone) {
         super(description, priority, isDone);
         this.by = by;
-        this.isDone = isDone;
     }
 
     /**
-     * Returns the string representation of the deadline task.
+     * Returns the deadline date of the task.
+     *
+     * @return Deadline date
+     */
+    public LocalDate getBy() {
+        return by;
+    }
+
+    @Override
+    public TaskType getTaskType() {
+        return TaskType.DEADLINE;
+    }
+
+    /**
+     * Builds the string representation of the deadline task.
      *
      * @return Formatted deadline task string
      */
     @Override
-    public String toString() {
+    protected String render() {
         return "[D]" + super.getStatusIcon() + super.getPriorityString()
-                + " " + super.toString()
-                + " (by: " +
-                LocalDate.parse(by).format(DateTimeFormatter.ofPattern("MMM d yyyy"))
-                + ")";
+                + " " + description
+                + " (by: " + by.format(DISPLAY_DATE_FORMAT) + ")";
     }
 
     /**
-     * Converts the deadline task to file format string for storage.
+     * Builds the file format string of the deadline task for storage.
      *
      * @return String representation in format "D | X | description | YYYY-MM-DD | priority"
      */
     @Override
-    public String toFileString() {
-        // Format: "D | X | task detail | Monday 2359 | HIGH"
-        return String.format("D | %s | %s | %s | %s",
-                getFileStatusIcon(),
-                description,
-                by,
-                priority);
+    protected String renderFileString() {
+        // Format: "D | X | task detail | 2026-03-01 | HIGH"
+        return "D | " + getFileStatusIcon() + " | " + description + " | " + by + " | " + priority;
     }
 }
\ No newline at end of file
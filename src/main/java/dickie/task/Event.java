@@ -1,14 +1,13 @@
 package dickie.task;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 /**
  * Represents a task that occurs over a specific time period
  */
 public class Event extends Task {
-    protected String from;
-    protected String to;
+    protected LocalDate from;
+    protected LocalDate to;
 
     /**
      * Creates a new event task with the given description, start date, end date, and priority, defaulting to not done.
@@ -17,11 +16,10 @@ public class Event extends Task {
      * @param from Start date of the event in YYYY-MM-DD format
      * @param to End date of the event in YYYY-MM-DD format
      * @param priority Priority level of the task
+     * @throws java.time.format.DateTimeParseException If either date is not in YYYY-MM-DD format
      */
     public Event(String description, String from, String to, Priority priority) {
-        super(description, priority);
-        this.from = from;
-        this.to = to;
+        this(description, LocalDate.parse(from), LocalDate.parse(to), priority, false);
     }
 
     /**
@@ -32,42 +30,71 @@ public class Event extends Task {
      * @param to End date of the event in YYYY-MM-DD format
      * @param priority Priority level of the task
      * @param isDone Boolean of whether the task is done or not
+     * @throws java.time.format.DateTimeParseException If either date is not in YYYY-MM-DD format
      */
     public Event(String description, String from, String to, Priority priority, boolean isDone) {
+        this(description, LocalDate.parse(from), LocalDate.parse(to), priority, isDone);
+    }
+
+    /**
+     * Creates a new event task with the given description, start date, end date, priority, and completion status.
+     *
+     * @param description Description of the event
+     * @param from Start date of the event
+     * @param to End date of the event
+     * @param priority Priority level of the task
+     * @param isDone Boolean of whether the task is done or not
+     */
+    public Event(String description, LocalDate from, LocalDate to, Priority priority, boolean isDone) {
         super(description, priority, isDone);
         this.from = from;
         this.to = to;
-        this.priority = priority;
     }
 
     /**
-     * Returns the string representation of the event task.
+     * Returns the start date of the event.
+     *
+     * @return Start date
+     */
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    /**
+     * Returns the end date of the event.
+     *
+     * @return End date
+     */
+    public LocalDate getTo() {
+        return to;
+    }
+
+    @Override
+    public TaskType getTaskType() {
+        return TaskType.EVENT;
+    }
+
+    /**
+     * Builds the string representation of the event task.
      *
      * @return Formatted event task string
      */
     @Override
-    public String toString() {
+    protected String render() {
         return "[E]" + super.getStatusIcon() + super.getPriorityString()
-                + " " +super.toString() + " (from: "
-                + LocalDate.parse(from).format(DateTimeFormatter.ofPattern("MMM d yyyy"))
-                + " to: "
-                + LocalDate.parse(to).format(DateTimeFormatter.ofPattern("MMM d yyyy"))
-                + ")";
+                + " " + description
+                + " (from: " + from.format(DISPLAY_DATE_FORMAT)
+                + " to: " + to.format(DISPLAY_DATE_FORMAT) + ")";
     }
 
     /**
-     * Converts the event task to file format string for storage.
+     * Builds the file format string of the event task for storage.
      *
      * @return String representation in format "E | X | description | from | to"
      */
     @Override
-    public String toFileString() {
-        // Format: "E | X | task detail | 2pm | 4pm"
-        return String.format("E | %s | %s | %s | %s | %s",
-                getFileStatusIcon(),
-                description,
-                from,
-                to,
-                priority);
+    protected String renderFileString() {
+        // Format: "E | X | task detail | 2026-03-10 | 2026-03-12 | LOW"
+        return "E | " + getFileStatusIcon() + " | " + description + " | " + from + " | " + to + " | " + priority;
     }
 }
\ No newline at end of file
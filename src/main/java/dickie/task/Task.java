@@ -1,12 +1,22 @@
 package dickie.task;
 
+import java.time.format.DateTimeFormatter;
+
 /**
  * Represents a generic task with a description and completion status
  */
-public abstract class Task implements Comparable<Task> {
+public abstract class Task implements Comparable<Task>, Cloneable {
+    /** Format of the dates shown to the user, shared since formatters are immutable */
+    protected static final DateTimeFormatter DISPLAY_DATE_FORMAT = DateTimeFormatter.ofPattern("MMM d yyyy");
+
     protected String description;
     protected boolean isDone;
     protected Priority priority;
+    protected long id;
+    // String shown to the user, or null until it is next shown after a change
+    private String displayString;
+    // String stored in the data file, or null until it is next saved after a change
+    private String fileString;
 
     /**
      * Creates a new task with the given description and priority, defaulting to not done.
@@ -38,6 +48,25 @@ public abstract class Task implements Comparable<Task> {
         return other.priority.compareTo(this.priority); // HIGH first
     }
 
+    /**
+     * Returns the id of the task, which stays the same when the task is moved or other tasks are removed.
+     *
+     * @return Id of the task, or 0 if it has not been given one yet
+     */
+    public long getId() {
+        return this.id;
+    }
+
+    /**
+     * Sets the id of the task. Ids are given out by TaskList when the task is added, or read back from the data file.
+     *
+     * @param id Id of the task, a positive number
+     */
+    public void setId(long id) {
+        assert id > 0 : "Task ids should be positive";
+        this.id = id;
+    }
+
     /**
      * Returns description of Task
      *
@@ -47,6 +76,31 @@ public abstract class Task implements Comparable<Task> {
         return this.description;
     }
 
+    /**
+     * Returns the priority of the task.
+     *
+     * @return Priority level of the task
+     */
+    public Priority getPriority() {
+        return this.priority;
+    }
+
+    /**
+     * Returns whether the task is done.
+     *
+     * @return true if the task is done, false otherwise
+     */
+    public boolean isDone() {
+        return this.isDone;
+    }
+
+    /**
+     * Returns the type of the task.
+     *
+     * @return TaskType of the task
+     */
+    public abstract TaskType getTaskType();
+
     /**
      * Returns the status icon of the task.
      *
@@ -75,27 +129,79 @@ public abstract class Task implements Comparable<Task> {
     }
 
     /**
-     * Returns the description of the task.
+     * Returns the string representation of the task, as shown to the user.
+     * It is built on first use and kept until the task is changed, so listing the same tasks again
+     * does no formatting.
      *
-     * @return Task description
+     * @return Formatted task string
      */
+    @Override
     public String toString() {
+        if (displayString == null) {
+            displayString = render();
+        }
+        return displayString;
+    }
+
+    /**
+     * Builds the string representation of the task, which is the description unless a subclass adds to it.
+     *
+     * @return Formatted task string
+     */
+    protected String render() {
         return description;
     }
 
     /**
      * Converts task to file format string to save into file
-     * Format: "T | X | task detail | HIGH" or "D | X | task detail | Monday 2359 | LOW" etc.
+     * Format: "T | X | task detail | HIGH" or "D | X | task detail | 2026-03-01 | LOW" etc.
+     * Like toString(), it is built on first use and kept until the task is changed,
+     * so saving an unchanged list does no formatting.
      *
      * @return String representation for file storage
      */
-    public abstract String toFileString();
+    public String toFileString() {
+        if (fileString == null) {
+            fileString = renderFileString();
+        }
+        return fileString;
+    }
+
+    /**
+     * Builds the file format string of the task.
+     *
+     * @return String representation for file storage
+     */
+    protected abstract String renderFileString();
+
+    /**
+     * Clears the cached strings of the task, so that they are built again after a change.
+     */
+    protected void invalidateStrings() {
+        this.displayString = null;
+        this.fileString = null;
+    }
+
+    /**
+     * Returns a copy of the task with the same fields and id, so that the copy can be changed
+     * while the task itself stays as it is for anyone still reading it.
+     *
+     * @return Copy of the task
+     */
+    public Task copy() {
+        try {
+            return (Task) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError("Tasks are cloneable", e);
+        }
+    }
 
     /**
      * Marks the task as done
      */
     public void mark() {
         this.isDone = true;
+        invalidateStrings();
     }
 
     /**
@@ -103,5 +209,6 @@ public abstract class Task implements Comparable<Task> {
      */
     public void unmark() {
         this.isDone = false;
+        invalidateStrings();
     }
 }
\ No newline at end of file
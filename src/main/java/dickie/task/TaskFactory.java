@@ -69,11 +69,11 @@ public class TaskFactory {
                 "try again! enter a deadline date!"
         );
 
-        validateDate(deadline,
+        LocalDate by = parseDate(deadline,
                 "try again! Deadline must be in YYYY-MM-DD format!");
 
         Priority priority = parsePriority(input, pIndex);
-        return new Deadline(name, deadline, priority);
+        return new Deadline(name, by, priority, false);
     }
 
     /**
@@ -120,15 +120,15 @@ public class TaskFactory {
                 "try again! enter an event end date!"
         );
 
-        validateDate(from, "try again! Event dates must be in YYYY-MM-DD format!");
-        validateDate(to,"try again! Event dates must be in YYYY-MM-DD format!");
+        LocalDate fromDate = parseDate(from, "try again! Event dates must be in YYYY-MM-DD format!");
+        LocalDate toDate = parseDate(to, "try again! Event dates must be in YYYY-MM-DD format!");
 
-        if (LocalDate.parse(from).isAfter(LocalDate.parse(to))) {
+        if (fromDate.isAfter(toDate)) {
             throw new DickieException("try again! event start date should be before end date!");
         }
 
         Priority priority = parsePriority(input, pIndex);
-        return new Event(name, from, to, priority);
+        return new Event(name, fromDate, toDate, priority, false);
     }
 
     /**
@@ -206,16 +206,17 @@ public class TaskFactory {
     }
 
     /**
-     * Validates that a date string follows the ISO format YYYY-MM-DD.
+     * Parses a date string in the ISO format YYYY-MM-DD.
      *
-     * @param date The date string to validate
+     * @param date The date string to parse
      * @param errorMsg Error message to throw if the date format is invalid
+     * @return The parsed date
      * @throws DickieException If the date string cannot be parsed as a valid ISO date
      */
-    private static void validateDate(String date, String errorMsg)
+    private static LocalDate parseDate(String date, String errorMsg)
             throws DickieException {
         try {
-            LocalDate.parse(date);
+            return LocalDate.parse(date);
         } catch (DateTimeParseException e) {
             throw new DickieException(errorMsg);
         }
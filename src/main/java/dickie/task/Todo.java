@@ -25,29 +25,31 @@ public class Todo extends Task {
         super(description, priority, isDone);
     }
 
+    @Override
+    public TaskType getTaskType() {
+        return TaskType.TODO;
+    }
+
     /**
-     * Returns the string representation of the todo task.
+     * Builds the string representation of the todo task.
      *
      * @return Formatted todo task string
      */
     @Override
-    public String toString() {
-        return "[T]" + super.getStatusIcon() + super.getPriorityString() + " " + super.toString();
+    protected String render() {
+        return "[T]" + super.getStatusIcon() + super.getPriorityString() + " " + description;
     }
 
     /**
-     * Converts the task to a string format suitable for file storage.
+     * Builds the string format of the task suitable for file storage.
      * Format follows: "T | X | description" for Todo tasks,
      * where "X" indicates done, space indicates not done.
      *
      * @return String representation of the task for file storage
      */
     @Override
-    public String toFileString() {
-        // Format: "T | X | task detail"
-        return String.format("T | %s | %s | %s",
-                getFileStatusIcon(),
-                description,
-                priority);
+    protected String renderFileString() {
+        // Format: "T | X | task detail | HIGH"
+        return "T | " + getFileStatusIcon() + " | " + description + " | " + priority;
     }
 }
\ No newline at end of file
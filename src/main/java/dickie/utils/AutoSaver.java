@@ -0,0 +1,130 @@
+package dickie.utils;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the task list in the background whenever it has unsaved changes.
+ * The task list's version counter tells the saver how many mutations happened since the last save,
+ * and a save is started once enough mutations have piled up or the oldest one has waited long enough.
+ * Commands never wait for a save; only flush(), called when the app exits, blocks until the list is on disk.
+ */
+public class AutoSaver {
+    private static final int STOP_TIMEOUT_SECONDS = 30;
+
+    private final Storage storage;
+    private final TaskList taskList;
+    private final StorageConfig config;
+    private final ScheduledExecutorService executor;
+    private long savedVersion;
+    private long lastSaveMillis;
+    // Saves the changes left when the JVM exits, or null until started and again once stopped
+    private Thread shutdownHook;
+
+    /**
+     * Creates an AutoSaver that saves the given task list to the given storage.
+     *
+     * @param storage Storage to save to
+     * @param taskList Task list to save
+     * @param config Thresholds that trigger a save
+     */
+    public AutoSaver(Storage storage, TaskList taskList, StorageConfig config) {
+        this.storage = storage;
+        this.taskList = taskList;
+        this.config = config;
+        this.savedVersion = taskList.getVersion();
+        this.lastSaveMillis = System.currentTimeMillis();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dickie-autosaver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts checking for unsaved changes in the background,
+     * and registers a shutdown hook that saves any changes left when the JVM exits.
+     * Calling it again has no effect.
+     */
+    public synchronized void start() {
+        if (shutdownHook != null) {
+            return;
+        }
+        long intervalMillis = config.getCompactionCheckInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::saveIfDue, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        shutdownHook = new Thread(this::flush, "dickie-autosaver-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Stops checking for unsaved changes, waiting for a save in progress to finish, and removes the
+     * shutdown hook, so that neither keeps the task list alive. Changes not saved yet are left in the journal.
+     */
+    public void stop() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (shutdownHook != null) {
+                try {
+                    Runtime.getRuntime().removeShutdownHook(shutdownHook);
+                } catch (IllegalStateException e) {
+                    // the JVM is already exiting, and the hook is saving the changes
+                }
+                shutdownHook = null;
+            }
+        }
+    }
+
+    /**
+     * Checks whether the task list has changed since the last save.
+     *
+     * @return true if there are unsaved changes
+     */
+    public synchronized boolean isDirty() {
+        return taskList.getVersion() != savedVersion;
+    }
+
+    /**
+     * Saves the task list if enough mutations have piled up or the save interval has passed.
+     */
+    private synchronized void saveIfDue() {
+        long unsavedMutations = taskList.getVersion() - savedVersion;
+        long millisSinceSave = System.currentTimeMillis() - lastSaveMillis;
+        if (unsavedMutations >= config.getAutosaveMutations()
+                || (unsavedMutations > 0 && millisSinceSave >= config.getAutosaveInterval().toMillis())) {
+            save();
+        }
+    }
+
+    /**
+     * Saves any unsaved changes and waits until they are on disk.
+     */
+    public synchronized void flush() {
+        if (isDirty()) {
+            save();
+        }
+    }
+
+    /**
+     * Saves the task list and remembers which version was saved.
+     * The version is read before saving, since the saved snapshot is at least as new as that version.
+     * A failed save leaves the list dirty, so it is tried again; its changes are still in the journal meanwhile.
+     */
+    private void save() {
+        long version = taskList.getVersion();
+        try {
+            storage.save(taskList);
+        } catch (CompletionException e) {
+            System.out.println("Autosave failed, changes are kept in the journal: " + e.getCause().getMessage());
+            return;
+        }
+        savedVersion = version;
+        lastSaveMillis = System.currentTimeMillis();
+    }
+}
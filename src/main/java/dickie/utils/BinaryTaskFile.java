@@ -0,0 +1,676 @@
+package dickie.utils;
+
+import dickie.task.Deadline;
+import dickie.task.Event;
+import dickie.task.Priority;
+import dickie.task.Task;
+import dickie.task.TaskType;
+import dickie.task.Todo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads and writes the binary data file format.
+ * The file starts with the magic bytes "DKBF", a format version byte, the journal sequence number
+ * the snapshot includes and the number of tasks, followed by one record per task.
+ * Each record is a flags byte holding the task type, done status and priority, the description
+ * as a varint length and UTF-8 bytes, and then the fields of its type written by the TaskCodec
+ * registered for that type, with dates stored as varint epoch days.
+ * The records are followed by an index of each record's offset as a 4 byte int,
+ * so the file can be opened as a LazyTaskList without decoding any record.
+ * Since version 3 the header and the index end with a CRC32C checksum, and each record is framed by
+ * a marker byte, its varint length and its CRC32C checksum. A damaged file is salvaged by a recovery scan
+ * that skips from one valid frame to the next, reporting the byte ranges it could not read.
+ * Since version 4 the flags byte of a task with an id has the id bit set and is followed by the id as a varint,
+ * so that the id can be read without decoding the rest of the record.
+ * Since version 5 the header holds the id the next added task is given after the sequence number, so that
+ * the ids of deleted tasks are not given out again.
+ */
+class BinaryTaskFile {
+    static final int VERSION = 5;
+    static final String EXTENSION = ".bin";
+
+    private static final byte[] MAGIC = {'D', 'K', 'B', 'F'};
+    private static final int FIRST_FRAMED_VERSION = 3;
+    private static final int FIRST_NEXT_ID_VERSION = 5;
+    private static final byte FRAME_MARKER = (byte) 0xA5;
+    private static final int MAX_RECORD_SIZE = 1 << 24;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int TYPE_MASK = 0b11;
+    private static final int DONE_BIT = 1 << 2;
+    private static final int PRIORITY_SHIFT = 3;
+    private static final int PRIORITY_MASK = 0b11;
+    private static final int ID_BIT = 1 << 5;
+    private static final int UNUSED_FLAGS = ~0 << 6;
+
+    private static final Map<TaskType, Integer> TYPE_CODES = new EnumMap<>(TaskType.class);
+    private static final TaskCodec[] CODECS = new TaskCodec[TYPE_MASK + 1];
+
+    static {
+        // Type codes are part of the file format, so a code must never be reused for another type
+        register(TaskType.TODO, 0, new TodoCodec());
+        register(TaskType.DEADLINE, 1, new DeadlineCodec());
+        register(TaskType.EVENT, 2, new EventCodec());
+    }
+
+    private final CRC32C crc = new CRC32C();
+    private byte[] scratch = new byte[256];
+    private long seq;
+    private long nextId;
+    private int version;
+    private RecoveryReport recoveryReport;
+
+    /**
+     * Registers the codec that writes and reads the fields of a task type.
+     *
+     * @param type Type of task the codec handles
+     * @param code Code stored in the flags byte of every record of that type
+     * @param codec Codec for the type
+     */
+    private static void register(TaskType type, int code, TaskCodec codec) {
+        assert CODECS[code] == null : "Type code " + code + " is already registered";
+        TYPE_CODES.put(type, code);
+        CODECS[code] = codec;
+    }
+
+    /**
+     * Returns the sequence number from the header of the last file read.
+     *
+     * @return Journal sequence number covered by the file, or 0 if its header was damaged
+     */
+    long getSeq() {
+        return seq;
+    }
+
+    /**
+     * Returns the next task id from the header of the last file read.
+     *
+     * @return Id the next added task is given, or 0 if the file is older than version 5 or its header was damaged
+     */
+    long getNextId() {
+        return nextId;
+    }
+
+    /**
+     * Returns the format version of the last file read.
+     *
+     * @return Format version of the file
+     */
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns what the recovery scan salvaged from the last file read, if it was damaged.
+     *
+     * @return Recovery report, or null if the file was read without errors
+     */
+    RecoveryReport getRecoveryReport() {
+        return recoveryReport;
+    }
+
+    /**
+     * Reads the format version of the file at the given path.
+     *
+     * @param path Path to the data file
+     * @return Format version, or 0 if the file does not start with the binary format's magic bytes
+     * @throws IOException If the file cannot be read
+     */
+    static int readVersion(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] header = in.readNBytes(MAGIC.length + 1);
+            if (header.length <= MAGIC.length || !Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+                return 0;
+            }
+            return header[MAGIC.length] & 0xFF;
+        }
+    }
+
+    /**
+     * Checks whether the file at the given path starts with the binary format's magic bytes.
+     *
+     * @param path Path to the data file
+     * @return true if the file is in the binary format, false if it is a text file or empty
+     * @throws IOException If the file cannot be read
+     */
+    static boolean isBinary(Path path) throws IOException {
+        return readVersion(path) > 0;
+    }
+
+    /**
+     * Writes the tasks to the output stream in the binary format, followed by the index of their offsets.
+     * Tasks of a LazyTaskList, or of a PriorityBucketList or PersistentTaskList made of them, that have not
+     * changed since they were read are copied without decoding them.
+     *
+     * @param out Stream to write to, which is flushed but not closed
+     * @param tasks Tasks to write
+     * @param seq Sequence number of the last journal record reflected in tasks
+     * @param nextId Id the next added task is given, or 0 if unknown
+     * @throws IOException If the tasks cannot be written, or the file would be too large to index
+     */
+    static void write(OutputStream out, List<Task> tasks, long seq, long nextId) throws IOException {
+        CRC32C crc = new CRC32C();
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(buffer);
+        header.write(MAGIC);
+        header.writeByte(VERSION);
+        writeVarLong(header, seq);
+        writeVarLong(header, nextId);
+        writeVarLong(header, tasks.size());
+        buffer.writeTo(data);
+        crc.update(buffer.toByteArray());
+        data.writeInt((int) crc.getValue());
+
+        ByteBuffer index = ByteBuffer.allocate(tasks.size() * Integer.BYTES);
+        DataOutputStream record = new DataOutputStream(buffer);
+        for (PersistentTaskList.Piece piece : PersistentTaskList.piecesOf(tasks)) {
+            LazyTaskList lazyTasks = piece.tasks instanceof LazyTaskList ? (LazyTaskList) piece.tasks : null;
+            for (int i = piece.from; i < piece.to; i++) {
+                index.putInt(data.size());
+                if (lazyTasks != null && !lazyTasks.isPinned(i)) {
+                    lazyTasks.copyRecord(i, data);
+                    continue;
+                }
+
+                buffer.reset();
+                writeTask(record, piece.tasks.get(i));
+                crc.reset();
+                crc.update(buffer.toByteArray());
+                data.writeByte(FRAME_MARKER);
+                writeVarLong(data, buffer.size());
+                data.writeInt((int) crc.getValue());
+                buffer.writeTo(data);
+            }
+        }
+
+        if (data.size() == Integer.MAX_VALUE) {
+            throw new IOException("Data file is too large to index.");
+        }
+        crc.reset();
+        crc.update(index.array());
+        data.write(index.array());
+        data.writeInt((int) crc.getValue());
+        data.flush();
+    }
+
+    /**
+     * Writes the fields of a single task record.
+     */
+    private static void writeTask(DataOutput out, Task task) throws IOException {
+        int code = TYPE_CODES.get(task.getTaskType());
+        // priority ordinals are part of the file format too, so new priorities must be added last
+        int flags = code
+                | (task.isDone() ? DONE_BIT : 0)
+                | (task.getPriority().ordinal() << PRIORITY_SHIFT)
+                | (task.getId() != 0 ? ID_BIT : 0);
+        out.writeByte(flags);
+        if (task.getId() != 0) {
+            writeVarLong(out, task.getId());
+        }
+
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, description.length);
+        out.write(description);
+
+        CODECS[code].writeFields(task, out);
+    }
+
+    /**
+     * Reads every task in the binary file at the given path into the list, in file order.
+     * A damaged file is salvaged by the recovery scan, whose report is kept for getRecoveryReport().
+     *
+     * @param path Path to the data file
+     * @param tasks List to add the tasks to
+     * @throws IOException If the file cannot be read or is not a binary data file
+     */
+    void read(Path path, List<Task> tasks) throws IOException {
+        if (readVersion(path) >= FIRST_FRAMED_VERSION) {
+            tasks.addAll(readLazily(path, 0));
+            return;
+        }
+
+        // files from before the records were framed are read as they were written
+        long fileSize = Files.size(path);
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+            int count = readUnframedHeader(in, fileSize);
+            if (tasks instanceof ArrayList) {
+                ((ArrayList<Task>) tasks).ensureCapacity(tasks.size() + count);
+            }
+
+            for (int i = 0; i < count; i++) {
+                tasks.add(readTask(in, fileSize));
+            }
+        }
+    }
+
+    /**
+     * Reads the header of a file from before the records were framed, remembering its version and sequence number.
+     *
+     * @return Number of tasks in the file
+     * @throws IOException If the header is not a valid binary data file header
+     */
+    private int readUnframedHeader(DataInput in, long fileSize) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a binary data file.");
+        }
+        version = in.readUnsignedByte();
+        seq = readVarLong(in);
+        nextId = 0;
+        long count = readVarLong(in);
+        if (count > fileSize) {
+            throw new IOException("Corrupted data file: invalid task count.");
+        }
+        return (int) count;
+    }
+
+    /**
+     * Reads the binary file at the given path into a LazyTaskList, which decodes each task only when needed.
+     * The file is read into memory in one go rather than mapped, so that it can still be replaced by a save.
+     * Every frame is checked against the index and its checksum first, which runs at memory speed.
+     * If anything does not match, the list is built from the frames the recovery scan finds instead.
+     *
+     * @param path Path to the data file, which must be version 3 or later
+     * @param cacheSize Maximum number of decoded tasks the list keeps
+     * @return List of the tasks in the file, in file order
+     * @throws IOException If the file cannot be read, or is a newer or older version
+     */
+    LazyTaskList readLazily(Path path, int cacheSize) throws IOException {
+        byte[] data = Files.readAllBytes(path);
+        version = data.length > MAGIC.length ? data[MAGIC.length] & 0xFF : 0;
+        if (version > VERSION) {
+            throw new IOException("Data file version " + version + " is newer than this app supports.");
+        } else if (version < FIRST_FRAMED_VERSION) {
+            throw new IOException("Data file version " + version + " has no record frames.");
+        }
+        recoveryReport = null;
+
+        // Header: magic, version, varint seq, varint next id since version 5, varint count, CRC32C
+        int position = MAGIC.length + 1;
+        long count = -1;
+        nextId = 0;
+        try {
+            ByteArrayInputStream bytes = new ByteArrayInputStream(data, position, data.length - position);
+            DataInputStream in = new DataInputStream(bytes);
+            long headerSeq = readVarLong(in);
+            long headerNextId = version >= FIRST_NEXT_ID_VERSION ? readVarLong(in) : 0;
+            long headerCount = readVarLong(in);
+            position = data.length - bytes.available();
+            if (position + Integer.BYTES <= data.length
+                    && checksum(data, 0, position) == readInt(data, position)) {
+                seq = headerSeq;
+                nextId = headerNextId;
+                count = headerCount;
+                position += Integer.BYTES;
+            }
+        } catch (IOException e) {
+            // cut short inside the header, handled below like a checksum mismatch
+        }
+
+        if (count >= 0) {
+            LazyTaskList tasks = readIndexed(data, position, count, cacheSize);
+            if (tasks != null) {
+                return tasks;
+            }
+        } else {
+            seq = 0; // unknown, so the journal cannot be replayed onto the salvaged tasks
+        }
+        return recover(data, count < 0 ? MAGIC.length + 1 : position, count, cacheSize);
+    }
+
+    /**
+     * Builds the list from the index, checking every frame it points to.
+     *
+     * @return The list, or null if the index or any frame is damaged
+     */
+    private LazyTaskList readIndexed(byte[] data, int recordsStart, long count, int cacheSize) {
+        long indexSize = count * Integer.BYTES;
+        if (indexSize + Integer.BYTES > data.length - recordsStart) {
+            return null;
+        }
+        int indexStart = data.length - (int) indexSize - Integer.BYTES;
+        if (checksum(data, indexStart, (int) indexSize) != readInt(data, data.length - Integer.BYTES)) {
+            return null;
+        }
+
+        int[] starts = new int[(int) count];
+        int[] ends = new int[(int) count];
+        ByteBuffer.wrap(data, indexStart, (int) indexSize).asIntBuffer().get(starts);
+        int expectedStart = recordsStart;
+        for (int i = 0; i < count; i++) {
+            if (starts[i] != expectedStart) {
+                return null;
+            }
+            ends[i] = frameEnd(data, starts[i], indexStart);
+            if (ends[i] < 0) {
+                return null;
+            }
+            expectedStart = ends[i];
+        }
+        if (expectedStart != indexStart) {
+            return null;
+        }
+        return new LazyTaskList(data, starts, ends, cacheSize);
+    }
+
+    /**
+     * Scans the file for valid frames in a single pass, skipping from any damaged byte to the next valid frame.
+     *
+     * @param data Contents of the data file
+     * @param from Offset to start scanning at
+     * @param count Number of tasks in the header, or -1 if the header is damaged
+     * @param cacheSize Maximum number of decoded tasks the list keeps
+     * @return List of the tasks in every valid frame, in file order
+     */
+    private LazyTaskList recover(byte[] data, int from, long count, int cacheSize) {
+        recoveryReport = new RecoveryReport(count);
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        int found = 0;
+        int skippedFrom = -1;
+
+        int position = from;
+        while (position < data.length) {
+            int end = data[position] == FRAME_MARKER ? frameEnd(data, position, data.length) : -1;
+            if (end < 0) {
+                if (skippedFrom < 0) {
+                    skippedFrom = position;
+                }
+                position++;
+                continue;
+            }
+
+            if (skippedFrom >= 0) {
+                recoveryReport.addSkipped(skippedFrom, position);
+                skippedFrom = -1;
+            }
+            if (found == starts.length) {
+                starts = Arrays.copyOf(starts, found * 2);
+                ends = Arrays.copyOf(ends, found * 2);
+            }
+            starts[found] = position;
+            ends[found] = end;
+            found++;
+            position = end;
+        }
+
+        if (skippedFrom >= 0) {
+            long indexSize = count * Integer.BYTES + Integer.BYTES;
+            boolean isIndex = count >= 0 && data.length - skippedFrom == indexSize;
+            if (!isIndex) {
+                // the bytes after the last valid frame are a frame that was cut short, not just the index
+                recoveryReport.addSkipped(skippedFrom, data.length);
+                recoveryReport.setTruncated(true);
+            }
+        }
+        recoveryReport.setRecoveredCount(found);
+        return new LazyTaskList(data, Arrays.copyOf(starts, found), Arrays.copyOf(ends, found), cacheSize);
+    }
+
+    /**
+     * Checks the frame starting at the given offset.
+     *
+     * @param data Contents of the data file
+     * @param offset Offset of the frame marker
+     * @param limit Offset the frame must end by
+     * @return Offset just past the frame, or -1 if there is no valid frame at the offset
+     */
+    private int frameEnd(byte[] data, int offset, int limit) {
+        if (data[offset] != FRAME_MARKER) {
+            return -1;
+        }
+        int length = 0;
+        int position = offset + 1;
+        for (int shift = 0; ; shift += 7) {
+            if (position >= limit || shift > 28) {
+                return -1;
+            }
+            int b = data[position++];
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+
+        int payloadStart = position + Integer.BYTES;
+        if (length <= 0 || length > MAX_RECORD_SIZE || payloadStart > limit - length
+                || !isValidFlags(data[payloadStart] & 0xFF)) {
+            return -1;
+        }
+        if (checksum(data, payloadStart, length) != readInt(data, position)) {
+            return -1;
+        }
+        return payloadStart + length;
+    }
+
+    private static boolean isValidFlags(int flags) {
+        return (flags & UNUSED_FLAGS) == 0
+                && CODECS[flags & TYPE_MASK] != null
+                && ((flags >>> PRIORITY_SHIFT) & PRIORITY_MASK) < Priority.values().length;
+    }
+
+    /**
+     * Returns the offset of the payload of the frame starting at the given offset.
+     */
+    private static int payloadStart(byte[] data, int offset) {
+        int position = offset + 1;
+        while ((data[position] & 0x80) != 0) {
+            position++;
+        }
+        return position + 1 + Integer.BYTES;
+    }
+
+    private int checksum(byte[] data, int offset, int length) {
+        crc.reset();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+
+    /**
+     * Decodes the frame starting at the given offset, whose checksum has already been checked.
+     *
+     * @param data Contents of the data file
+     * @param offset Offset of the frame marker
+     * @return The decoded Task
+     * @throws IOException If the record is invalid
+     */
+    Task decodeRecord(byte[] data, int offset) throws IOException {
+        int payloadStart = payloadStart(data, offset);
+        DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(data, payloadStart, data.length - payloadStart));
+        return readTask(in, data.length);
+    }
+
+    /**
+     * Reads the priority of the frame starting at the given offset without decoding it.
+     *
+     * @param data Contents of the data file
+     * @param offset Offset of the frame marker
+     * @return Ordinal of the record's priority
+     */
+    static int priorityOrdinal(byte[] data, int offset) {
+        return ((data[payloadStart(data, offset)] & 0xFF) >>> PRIORITY_SHIFT) & PRIORITY_MASK;
+    }
+
+    /**
+     * Reads the id of the frame starting at the given offset without decoding it.
+     *
+     * @param data Contents of the data file
+     * @param offset Offset of the frame marker
+     * @return Id of the record's task, or 0 if it has none
+     */
+    static long recordId(byte[] data, int offset) {
+        int position = payloadStart(data, offset);
+        if ((data[position] & ID_BIT) == 0) {
+            return 0;
+        }
+        long id = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[++position];
+            id |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0 && shift < Long.SIZE);
+        return id;
+    }
+
+    /**
+     * Reads the fields of a single task record.
+     *
+     * @throws IOException If the record is cut short or has an unknown type or priority
+     */
+    private Task readTask(DataInput in, long fileSize) throws IOException {
+        int flags = in.readUnsignedByte();
+        TaskCodec codec = CODECS[flags & TYPE_MASK];
+        int priorityCode = (flags >>> PRIORITY_SHIFT) & PRIORITY_MASK;
+        if (codec == null || priorityCode >= Priority.values().length) {
+            throw new IOException("Corrupted data file: invalid task flags.");
+        }
+        long id = (flags & ID_BIT) != 0 ? readVarLong(in) : 0;
+        if (id < 0) {
+            throw new IOException("Corrupted data file: invalid task id.");
+        }
+
+        long length = readVarLong(in);
+        if (length > fileSize) {
+            throw new IOException("Corrupted data file: invalid description length.");
+        }
+        if (scratch.length < length) {
+            scratch = new byte[(int) Math.max(length, scratch.length * 2L)];
+        }
+        in.readFully(scratch, 0, (int) length);
+        String description = new String(scratch, 0, (int) length, StandardCharsets.UTF_8);
+
+        Task task = codec.readTask(description, Priority.values()[priorityCode], (flags & DONE_BIT) != 0, in);
+        if (id != 0) {
+            task.setId(id);
+        }
+        return task;
+    }
+
+    /**
+     * Writes an unsigned value using 7 bits per byte, so small values take a single byte.
+     */
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads an unsigned value written by writeVarLong.
+     *
+     * @throws IOException If the value is cut short or longer than 64 bits
+     */
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupted data file: varint is too long.");
+    }
+
+    /**
+     * Writes a date as its epoch day, zigzag encoded so that dates before 1970 stay short too.
+     *
+     * @throws IOException If the date cannot be written
+     */
+    static void writeDate(DataOutput out, LocalDate date) throws IOException {
+        long epochDay = date.toEpochDay();
+        writeVarLong(out, (epochDay << 1) ^ (epochDay >> 63));
+    }
+
+    /**
+     * Reads a date written by writeDate.
+     *
+     * @return Date read
+     * @throws IOException If the date is cut short or out of range
+     */
+    static LocalDate readDate(DataInput in) throws IOException {
+        long zigzag = readVarLong(in);
+        long epochDay = (zigzag >>> 1) ^ -(zigzag & 1);
+        try {
+            return LocalDate.ofEpochDay(epochDay);
+        } catch (DateTimeException e) {
+            throw new IOException("Corrupted data file: invalid date.");
+        }
+    }
+
+    private static class TodoCodec implements TaskCodec {
+        @Override
+        public void writeFields(Task task, DataOutput out) {
+            // a todo has no fields besides the common ones
+        }
+
+        @Override
+        public Task readTask(String description, Priority priority, boolean isDone, DataInput in) {
+            return new Todo(description, priority, isDone);
+        }
+    }
+
+    private static class DeadlineCodec implements TaskCodec {
+        @Override
+        public void writeFields(Task task, DataOutput out) throws IOException {
+            writeDate(out, ((Deadline) task).getBy());
+        }
+
+        @Override
+        public Task readTask(String description, Priority priority, boolean isDone, DataInput in)
+                throws IOException {
+            return new Deadline(description, readDate(in), priority, isDone);
+        }
+    }
+
+    private static class EventCodec implements TaskCodec {
+        @Override
+        public void writeFields(Task task, DataOutput out) throws IOException {
+            Event event = (Event) task;
+            writeDate(out, event.getFrom());
+            writeDate(out, event.getTo());
+        }
+
+        @Override
+        public Task readTask(String description, Priority priority, boolean isDone, DataInput in)
+                throws IOException {
+            LocalDate from = readDate(in);
+            return new Event(description, from, readDate(in), priority, isDone);
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package dickie.utils;
+
+import dickie.task.Deadline;
+import dickie.task.Event;
+import dickie.task.Priority;
+import dickie.task.Task;
+import dickie.task.TaskType;
+import dickie.task.Todo;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A list of tasks stored as primitive columns instead of one object per task.
+ * Each slot has a byte for its type, its priority and whether it is done, its id, the epoch days
+ * of its dates, and the offset and length of its description in a shared arena of UTF-8 bytes.
+ * The columns are kept by a TaskColumns, either on the heap in HeapTaskColumns, where apart from its
+ * description a task takes 27 bytes against several objects for a Task and its dates, or off the heap
+ * in DirectTaskColumns, where the garbage collector does not see the tasks at all.
+ * A Task returned by get() is built from the columns on demand and not kept, so changes to it are only kept
+ * if the task is passed back to set(), as with LazyTaskList.
+ * Removing a task leaves a tombstone in its slot and a FenwickTree over the live slots finds the slot of
+ * a position in O(log n), as in LazyTaskList. The descriptions of removed or changed tasks are left in
+ * the arena until more than half of it is unused, when the arena is rebuilt.
+ */
+class ColumnarTaskList extends AbstractList<Task> implements TaskStore {
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final TaskColumns columns;
+    // Bytes of the arena no longer used by any live slot
+    private int unusedDescriptionBytes;
+
+    private final BitSet removed = new BitSet();
+    private int slotCount;
+    private int size;
+    // Counts the live slots, or null while there are no tombstones and every position is its own slot
+    private FenwickTree liveSlots;
+    // Slot of each task id, or null until a task is first looked up by id after the slots last moved
+    private volatile LongIntMap slotsById;
+    // Highest id a task is known to have had, including deleted tasks
+    private long usedMaxId;
+
+    /**
+     * Creates an empty list over the given columns.
+     *
+     * @param columns Empty columns to keep the tasks in
+     */
+    ColumnarTaskList(TaskColumns columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Creates a list holding the given tasks, copied into columns on the heap.
+     *
+     * @param tasks Tasks in list order
+     * @return List of the tasks
+     */
+    static ColumnarTaskList of(List<Task> tasks) {
+        return of(tasks, false);
+    }
+
+    /**
+     * Creates a list holding the given tasks, copied into columns on or off the heap.
+     *
+     * @param tasks Tasks in list order
+     * @param isOffHeap true to keep the columns in direct buffers outside the heap
+     * @return List of the tasks
+     */
+    static ColumnarTaskList of(List<Task> tasks, boolean isOffHeap) {
+        TaskColumns columns = isOffHeap ? new DirectTaskColumns(tasks.size()) : new HeapTaskColumns(tasks.size());
+        ColumnarTaskList list = new ColumnarTaskList(columns);
+        for (Task task : tasks) {
+            list.add(task);
+        }
+        return list;
+    }
+
+    /**
+     * Creates an empty list over columns on or off the heap, which grow as tasks are added,
+     * so that tasks read from a file one at a time go straight into the columns.
+     *
+     * @param isOffHeap true to keep the columns in direct buffers outside the heap
+     * @return Empty list
+     */
+    static ColumnarTaskList create(boolean isOffHeap) {
+        return of(List.of(), isOffHeap);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized Task get(int index) {
+        return build(slotOf(index));
+    }
+
+    @Override
+    public Task peek(int index) {
+        return build(slotOf(index));
+    }
+
+    /**
+     * Replaces the task at the given position, writing its fields into the columns.
+     */
+    @Override
+    public synchronized Task set(int index, Task task) {
+        int slot = slotOf(index);
+        Task previous = build(slot);
+        write(slot, task, true);
+        if (slotsById != null && previous.getId() != task.getId()) {
+            if (slotsById.get(previous.getId(), -1) == slot) {
+                slotsById.remove(previous.getId());
+            }
+            indexId(slot);
+        }
+        compactDescriptionsIfMostlyUnused();
+        return previous;
+    }
+
+    /**
+     * Marks or unmarks the task at the given position by writing only its done byte, which no other slot
+     * shares, so that tasks in different slots can be changed by different threads without a lock.
+     */
+    @Override
+    public void setShared(int index, Task task) {
+        int slot = slotOf(index);
+        assert task.getId() == columns.id(slot) && task.getPriority().ordinal() == columns.priority(slot)
+                : "Only whether the task is done should change";
+        columns.setDone(slot, task.isDone());
+    }
+
+    /**
+     * Inserts a task at the given position. Appending is O(1) amortized, inserting anywhere else
+     * compacts the slots and shifts the ones after it.
+     */
+    @Override
+    public synchronized void add(int index, Task task) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (index < size) {
+            compact();
+            slotsById = null;
+        }
+        if (slotCount == columns.capacity()) {
+            columns.grow(slotCount + (slotCount >> 1));
+        }
+        // After compacting, an insert before the end has its position as its slot
+        int slot = index < size ? index : slotCount;
+        for (int from = slotCount - 1; from >= slot; from--) {
+            columns.move(from, from + 1);
+        }
+        write(slot, task, false);
+        if (liveSlots != null) {
+            liveSlots.append(1);
+        }
+        if (slotsById != null) {
+            indexId(slot);
+        }
+        slotCount++;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Removes the task at the given position by leaving a tombstone in its slot.
+     */
+    @Override
+    public synchronized Task remove(int index) {
+        int slot = slotOf(index);
+        Task removedTask = build(slot);
+        if (slotsById != null) {
+            slotsById.remove(columns.id(slot));
+        }
+        if (liveSlots == null) {
+            liveSlots = new FenwickTree(slotCount);
+        }
+        liveSlots.add(slot, -1);
+        removed.set(slot);
+        unusedDescriptionBytes += columns.descriptionLength(slot);
+        size--;
+        modCount++;
+        if (slotCount - size > slotCount / 2) {
+            compact();
+        }
+        compactDescriptionsIfMostlyUnused();
+        return removedTask;
+    }
+
+    /**
+     * Finds the position of the task with the given id in O(1), plus O(log n) while there are tombstones.
+     *
+     * @param id Id of the task
+     * @return Position of the task, or -1 if no task has that id
+     */
+    @Override
+    public int indexOfId(long id) {
+        if (id <= 0) {
+            return -1;
+        }
+        LongIntMap slots = slotsById;
+        int slot = (slots != null ? slots : indexIds()).get(id, -1);
+        if (slot < 0) {
+            return -1;
+        }
+        return liveSlots == null ? slot : liveSlots.prefixSum(slot);
+    }
+
+    /**
+     * Reads the id of every live slot into the map from id to slot, unless another thread has just done so.
+     */
+    private synchronized LongIntMap indexIds() {
+        if (slotsById == null) {
+            LongIntMap slots = new LongIntMap(size);
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (!removed.get(slot) && columns.id(slot) != 0) {
+                    slots.put(columns.id(slot), slot);
+                }
+            }
+            slotsById = slots;
+        }
+        return slotsById;
+    }
+
+    /**
+     * Returns the highest task id in the list, read straight from the id column,
+     * or the highest id passed to raiseMaxId() if that is higher.
+     *
+     * @return Highest id, or 0 if no task has an id
+     */
+    @Override
+    public synchronized long maxId() {
+        long maxId = usedMaxId;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (!removed.get(slot)) {
+                maxId = Math.max(maxId, columns.id(slot));
+            }
+        }
+        return maxId;
+    }
+
+    @Override
+    public synchronized void raiseMaxId(long id) {
+        usedMaxId = Math.max(usedMaxId, id);
+    }
+
+    /**
+     * Creates an independent copy of this list, copying its columns without building any task.
+     *
+     * @return Copy of the list
+     */
+    @Override
+    public synchronized ColumnarTaskList copy() {
+        compact();
+        ColumnarTaskList copy = new ColumnarTaskList(columns.create(size));
+        for (int slot = 0; slot < size; slot++) {
+            copy.copySlotFrom(this, slot);
+        }
+        copy.usedMaxId = usedMaxId;
+        return copy;
+    }
+
+    /**
+     * Splits this list into one list per priority without building any task, keeping the order within each.
+     *
+     * @return Lists of the tasks of each priority, from HIGH to LOW
+     */
+    @Override
+    public synchronized List<ColumnarTaskList> splitByPriority() {
+        compact();
+        int[] counts = new int[PRIORITIES.length];
+        for (int slot = 0; slot < size; slot++) {
+            counts[columns.priority(slot)]++;
+        }
+
+        List<ColumnarTaskList> lists = new ArrayList<>(PRIORITIES.length);
+        for (int ordinal = PRIORITIES.length - 1; ordinal >= 0; ordinal--) {
+            ColumnarTaskList list = new ColumnarTaskList(columns.create(counts[ordinal]));
+            list.usedMaxId = usedMaxId;
+            for (int slot = 0; slot < size; slot++) {
+                if (columns.priority(slot) == ordinal) {
+                    list.copySlotFrom(this, slot);
+                }
+            }
+            lists.add(list);
+        }
+        return lists;
+    }
+
+    /**
+     * Builds the task in the given slot from its columns.
+     */
+    private Task build(int slot) {
+        String description = columns.description(slot);
+        Priority priority = PRIORITIES[columns.priority(slot)];
+        boolean isDone = columns.isDone(slot);
+        Task task = switch (TYPES[columns.type(slot)]) {
+            case TODO -> new Todo(description, priority, isDone);
+            case DEADLINE -> new Deadline(description, LocalDate.ofEpochDay(columns.firstDay(slot)), priority, isDone);
+            case EVENT -> new Event(description, LocalDate.ofEpochDay(columns.firstDay(slot)),
+                    LocalDate.ofEpochDay(columns.lastDay(slot)), priority, isDone);
+        };
+        if (columns.id(slot) != 0) {
+            task.setId(columns.id(slot));
+        }
+        return task;
+    }
+
+    /**
+     * Writes the fields of a task into the given slot. A description that is the same as the one already in
+     * the slot is kept where it is, so marking a task does not add to the arena.
+     */
+    private void write(int slot, Task task, boolean isReplacing) {
+        int firstDay = 0;
+        int lastDay = 0;
+        switch (task.getTaskType()) {
+        case DEADLINE:
+            firstDay = toDay(((Deadline) task).getBy());
+            break;
+        case EVENT:
+            firstDay = toDay(((Event) task).getFrom());
+            lastDay = toDay(((Event) task).getTo());
+            break;
+        default:
+            break;
+        }
+        columns.setFields(slot, task.getTaskType().ordinal(), task.getPriority().ordinal(), task.isDone(),
+                task.getId(), firstDay, lastDay);
+
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        if (isReplacing) {
+            if (columns.hasDescription(slot, description)) {
+                return;
+            }
+            unusedDescriptionBytes += columns.descriptionLength(slot);
+        }
+        columns.setDescription(slot, description);
+    }
+
+    /**
+     * Appends a task copied from a slot of another list, with its description copied into this arena.
+     */
+    private void copySlotFrom(ColumnarTaskList source, int sourceSlot) {
+        if (slotCount == columns.capacity()) {
+            columns.grow(slotCount + (slotCount >> 1));
+        }
+        TaskColumns from = source.columns;
+        columns.setFields(slotCount, from.type(sourceSlot), from.priority(sourceSlot), from.isDone(sourceSlot),
+                from.id(sourceSlot), from.firstDay(sourceSlot), from.lastDay(sourceSlot));
+        columns.setDescription(slotCount, from.descriptionBytes(sourceSlot));
+        slotCount++;
+        size++;
+    }
+
+    private static int toDay(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    /**
+     * Returns the slot holding the task at the given position.
+     */
+    private int slotOf(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return liveSlots == null ? index : liveSlots.findSlot(index);
+    }
+
+    /**
+     * Drops the tombstones left by removed tasks, so that every position is its own slot again.
+     */
+    private void compact() {
+        if (liveSlots == null) {
+            return;
+        }
+        int live = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (!removed.get(slot)) {
+                columns.move(slot, live);
+                live++;
+            }
+        }
+        assert live == size : "Every slot should be live or a tombstone";
+        slotCount = live;
+        removed.clear();
+        liveSlots = null;
+        slotsById = null;
+    }
+
+    /**
+     * Rebuilds the description arena with only the descriptions of live slots,
+     * once more than half of it is unused.
+     */
+    private void compactDescriptionsIfMostlyUnused() {
+        if (unusedDescriptionBytes <= columns.arenaBytes() / 2) {
+            return;
+        }
+        columns.compactArena(removed, slotCount);
+        unusedDescriptionBytes = 0;
+    }
+
+    private void indexId(int slot) {
+        long id = columns.id(slot);
+        if (id != 0) {
+            slotsById.put(id, slot);
+        }
+    }
+}
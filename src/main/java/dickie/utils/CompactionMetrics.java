@@ -0,0 +1,93 @@
+package dickie.utils;
+
+/**
+ * Collects statistics about journal compactions, such as how long they took and how much disk space they freed.
+ * Compactions run on a background thread, so all access is synchronized.
+ */
+public class CompactionMetrics {
+    private long compactionCount;
+    private long requestCount;
+    private long totalDurationNanos;
+    private long lastDurationNanos;
+    private long totalBytesReclaimed;
+    private long lastBytesReclaimed;
+
+    /**
+     * Records the outcome of a single compaction.
+     *
+     * @param requests Number of save requests coalesced into this compaction
+     * @param durationNanos Time taken to write the snapshot and drop the compacted journal
+     * @param bytesReclaimed Disk space freed by the compaction
+     */
+    public synchronized void record(int requests, long durationNanos, long bytesReclaimed) {
+        compactionCount++;
+        requestCount += requests;
+        totalDurationNanos += durationNanos;
+        lastDurationNanos = durationNanos;
+        totalBytesReclaimed += bytesReclaimed;
+        lastBytesReclaimed = bytesReclaimed;
+    }
+
+    /**
+     * Returns the number of compactions completed so far.
+     *
+     * @return Compaction count
+     */
+    public synchronized long getCompactionCount() {
+        return compactionCount;
+    }
+
+    /**
+     * Returns the number of save requests served so far, which exceeds the compaction count
+     * when several requests were coalesced into one write.
+     *
+     * @return Save request count
+     */
+    public synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Returns the combined duration of all compactions so far.
+     *
+     * @return Total compaction time in nanoseconds
+     */
+    public synchronized long getTotalDurationNanos() {
+        return totalDurationNanos;
+    }
+
+    /**
+     * Returns the duration of the most recent compaction.
+     *
+     * @return Last compaction time in nanoseconds
+     */
+    public synchronized long getLastDurationNanos() {
+        return lastDurationNanos;
+    }
+
+    /**
+     * Returns the disk space freed by all compactions so far.
+     *
+     * @return Total bytes reclaimed
+     */
+    public synchronized long getTotalBytesReclaimed() {
+        return totalBytesReclaimed;
+    }
+
+    /**
+     * Returns the disk space freed by the most recent compaction.
+     *
+     * @return Bytes reclaimed by the last compaction
+     */
+    public synchronized long getLastBytesReclaimed() {
+        return lastBytesReclaimed;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "compactions: " + compactionCount
+                + " (for " + requestCount + " requests)"
+                + ", total time: " + totalDurationNanos / 1_000_000 + "ms"
+                + ", bytes reclaimed: " + totalBytesReclaimed;
+    }
+}
@@ -0,0 +1,227 @@
+package dickie.utils;
+
+import dickie.task.Task;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Compacts the journal into a fresh snapshot of the data file on a background thread.
+ * A compaction is started once the journal grows past the size, record count or age threshold in StorageConfig.
+ * Only the cheap part of a compaction, sealing the journal and taking a snapshot of the tasks, happens while
+ * the task list is locked; the snapshot is written and the sealed journal dropped without blocking mutations.
+ * Compaction requests that arrive within the commit window are grouped into a single write of the newest
+ * snapshot, so the cost of forcing the data file to disk is shared between them.
+ */
+public class Compactor {
+    private static final int STOP_TIMEOUT_SECONDS = 30;
+
+    private final Storage storage;
+    private final Journal journal;
+    private final StorageConfig config;
+    private final CompactionMetrics metrics;
+    private final ScheduledExecutorService executor;
+    private final List<Snapshot> pending = new ArrayList<>();
+    private long committedSeq;
+
+    /**
+     * Creates a Compactor for the given storage and journal.
+     *
+     * @param storage Storage that writes the snapshots
+     * @param journal Journal that is compacted
+     * @param config Thresholds that trigger a compaction
+     */
+    public Compactor(Storage storage, Journal journal, StorageConfig config) {
+        this.storage = storage;
+        this.journal = journal;
+        this.config = config;
+        this.metrics = new CompactionMetrics();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dickie-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the statistics of the compactions run so far.
+     *
+     * @return Compaction metrics
+     */
+    public CompactionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Starts checking the compaction thresholds for the given task list in the background.
+     *
+     * @param taskList Task list whose mutations are journaled
+     */
+    public void start(TaskList taskList) {
+        long intervalMillis = config.getCompactionCheckInterval().toMillis();
+        executor.scheduleWithFixedDelay(() -> {
+            if (isThresholdExceeded()) {
+                submit(capture(taskList));
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops checking the compaction thresholds, and waits for the compactions already requested to finish.
+     */
+    public void stop() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Checks whether the journal has grown past any of the configured thresholds.
+     *
+     * @return true if the journal should be compacted
+     */
+    public boolean isThresholdExceeded() {
+        return journal.getSizeBytes() >= config.getMaxJournalBytes()
+                || journal.getRecordCount() >= config.getMaxJournalRecords()
+                || journal.getAgeMillis(System.currentTimeMillis()) >= config.getMaxJournalAge().toMillis();
+    }
+
+    /**
+     * Compacts the journal into a snapshot of the task list as it is now.
+     * The snapshot is written in the background, and the returned future completes once it,
+     * or a newer snapshot it was grouped with, is on disk, or completes exceptionally if it could not be written.
+     *
+     * @param taskList Task list to snapshot
+     * @return Future that completes when the compaction has finished
+     */
+    public CompletableFuture<Void> compact(TaskList taskList) {
+        return submit(capture(taskList));
+    }
+
+    /**
+     * Queues a captured snapshot for the next group commit, starting the commit window if none is open.
+     *
+     * @param snapshot The captured snapshot
+     * @return Future that completes when the group commit has finished
+     */
+    private synchronized CompletableFuture<Void> submit(Snapshot snapshot) {
+        pending.add(snapshot);
+        if (pending.size() == 1) {
+            executor.schedule(this::commitPending, config.getCommitWindow().toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return snapshot.future;
+    }
+
+    /**
+     * Takes every snapshot queued during the commit window and writes them as one compaction.
+     * If the snapshot cannot be written, every future of the group fails, so no caller takes its changes
+     * to be saved when they are only in the journal.
+     */
+    private void commitPending() {
+        List<Snapshot> group;
+        synchronized (this) {
+            group = new ArrayList<>(pending);
+            pending.clear();
+        }
+
+        Throwable failure;
+        try {
+            failure = runCompaction(group) ? null : new IOException("Snapshot could not be written");
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+        for (Snapshot snapshot : group) {
+            if (failure == null) {
+                snapshot.future.complete(null);
+            } else {
+                snapshot.future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    /**
+     * Seals the journal and takes a snapshot of the tasks while holding the task list structure lock,
+     * so that the snapshot contains exactly the journal records up to its sequence number.
+     * The lock also keeps marks and unmarks out while the snapshot is taken, and the tasks in it are never
+     * changed afterwards, since marking a task puts a changed copy in its place; so the writer thread sees
+     * every task as it was at the capture, through the lock, however the list changes after it.
+     *
+     * @param taskList Task list to snapshot
+     * @return The captured snapshot
+     */
+    private Snapshot capture(TaskList taskList) {
+        Lock structureLock = taskList.getStructureLock();
+        structureLock.lock();
+        try {
+            long seq = journal.getLastSeq();
+            List<Path> segments = journal.rotate();
+            return new Snapshot(seq, taskList.getTasks(), taskList.getNextId(), segments);
+        } finally {
+            structureLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the newest of a group of snapshots to disk and drops the journal segments all of them replace.
+     *
+     * @param group Snapshots captured during one commit window
+     * @return true if the snapshots are on disk, false if the snapshot could not be written
+     */
+    private boolean runCompaction(List<Snapshot> group) {
+        Snapshot newest = group.get(0);
+        List<Path> segments = new ArrayList<>();
+        for (Snapshot snapshot : group) {
+            if (snapshot.seq > newest.seq) {
+                newest = snapshot;
+            }
+            segments.addAll(snapshot.segments);
+        }
+
+        if (newest.seq < committedSeq) {
+            // captured before a snapshot that is already on disk, which contains all its records
+            journal.deleteSegments(segments);
+            return true;
+        }
+
+        long startNanos = System.nanoTime();
+        long oldSize = storage.getFileSize();
+        if (!storage.writeSnapshot(newest.tasks, newest.seq, newest.nextId)) {
+            return false; // keep the segments, they are replayed on the next load
+        }
+        committedSeq = newest.seq;
+        long segmentBytes = journal.deleteSegments(segments);
+        long bytesReclaimed = Math.max(0, oldSize + segmentBytes - storage.getFileSize());
+        metrics.record(group.size(), System.nanoTime() - startNanos, bytesReclaimed);
+        return true;
+    }
+
+    /**
+     * Tasks and sealed journal segments captured at a single point in the journal.
+     * The tasks are a snapshot that later mutations do not affect, so a task marked after the capture
+     * is written as it was before; replaying the later records from the journal marks it again.
+     */
+    private static class Snapshot {
+        private final long seq;
+        private final List<Task> tasks;
+        private final long nextId;
+        private final List<Path> segments;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Snapshot(long seq, List<Task> tasks, long nextId, List<Path> segments) {
+            this.seq = seq;
+            this.tasks = tasks;
+            this.nextId = nextId;
+            this.segments = segments;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package dickie.utils;
+
+import dickie.task.Task;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and writes the compressed data file format, which is the text format streamed through gzip.
+ * Task descriptions repeat a lot, so the file is a fraction of the size of the text file, and it can
+ * still be read with standard tools such as zcat. Tasks are compressed and decompressed one buffer at a time,
+ * so neither direction holds the whole file in memory.
+ */
+class CompressedTaskFile {
+    static final String EXTENSION = ".gz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Checks whether the file at the given path starts with the gzip magic bytes.
+     *
+     * @param path Path to the data file
+     * @return true if the file is compressed
+     * @throws IOException If the file cannot be read
+     */
+    static boolean isCompressed(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            int first = in.read();
+            int second = in.read();
+            return first == (GZIPInputStream.GZIP_MAGIC & 0xFF) && second == (GZIPInputStream.GZIP_MAGIC >>> 8);
+        }
+    }
+
+    /**
+     * Writes the tasks to the output stream as compressed text.
+     *
+     * @param out Stream to write to, which is flushed but not closed
+     * @param tasks Tasks to write
+     * @param seq Sequence number of the last journal record reflected in tasks
+     * @param nextId Id the next added task is given, or 0 to leave it out
+     * @throws IOException If the tasks cannot be written
+     */
+    static void write(OutputStream out, List<Task> tasks, long seq, long nextId) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), BUFFER_SIZE);
+        Storage.writeText(writer, tasks, seq, nextId);
+        gzip.finish();
+        out.flush();
+    }
+
+    /**
+     * Reads every task in the compressed file at the given path into the list, in file order.
+     *
+     * @param path Path to the data file
+     * @param tasks List to add the tasks to
+     * @return Scanner that read the file, holding the sequence number and next id from its header
+     * @throws IOException If the file cannot be read or is not valid gzip
+     */
+    static TaskFileScanner read(Path path, List<Task> tasks) throws IOException {
+        TaskFileScanner scanner = new TaskFileScanner();
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(path), BUFFER_SIZE)) {
+            scanner.scanStream(in, tasks, BUFFER_SIZE);
+        }
+        return scanner;
+    }
+}
@@ -0,0 +1,85 @@
+package dickie.utils;
+
+import dickie.task.Deadline;
+import dickie.task.Task;
+import dickie.task.TaskType;
+
+import java.time.LocalDate;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * An index of deadlines, ordered by date, from the epoch day each is due to the ids of the deadlines due on it.
+ * Events take up a range of days rather than one, so they are found through an IntervalTree instead,
+ * and todos have no date.
+ * Finding the deadlines in a range of days takes O(log n) to find the first day, plus one step per deadline found.
+ */
+class DateIndex {
+    private final NavigableMap<Long, PostingList> idsByDay = new TreeMap<>();
+
+    /**
+     * Adds a task under the day it is due, if it is a deadline.
+     *
+     * @param task Task to add, which must have an id
+     */
+    void add(Task task) {
+        assert task.getId() != 0 : "Only tasks with ids can be indexed";
+        LocalDate date = dateOf(task);
+        if (date != null) {
+            idsByDay.computeIfAbsent(date.toEpochDay(), day -> new PostingList()).add(task.getId());
+        }
+    }
+
+    /**
+     * Removes a task from under the day it is due, if it is a deadline.
+     *
+     * @param task Task to remove
+     */
+    void remove(Task task) {
+        LocalDate date = dateOf(task);
+        if (date == null) {
+            return;
+        }
+        PostingList ids = idsByDay.get(date.toEpochDay());
+        if (ids != null) {
+            ids.remove(task.getId());
+            if (ids.size() == 0) {
+                idsByDay.remove(date.toEpochDay());
+            }
+        }
+    }
+
+    /**
+     * Finds the deadlines due within a range of days.
+     *
+     * @param from First day of the range, or null for no lower bound
+     * @param to Last day of the range, inclusive
+     * @return Ids of the deadlines in the range, ordered by date and then by id
+     */
+    long[] find(LocalDate from, LocalDate to) {
+        NavigableMap<Long, PostingList> days = from == null
+                ? idsByDay.headMap(to.toEpochDay(), true)
+                : idsByDay.subMap(from.toEpochDay(), true, to.toEpochDay(), true);
+        int count = 0;
+        for (PostingList ids : days.values()) {
+            count += ids.size();
+        }
+        long[] found = new long[count];
+        int offset = 0;
+        for (PostingList ids : days.values()) {
+            ids.copyTo(found, offset);
+            offset += ids.size();
+        }
+        return found;
+    }
+
+    /**
+     * Returns the date a task is indexed under, the day a deadline is due.
+     *
+     * @param task Task to get the date of
+     * @return Date of the task, or null if it is not a deadline
+     */
+    private static LocalDate dateOf(Task task) {
+        return task.getTaskType() == TaskType.DEADLINE ? ((Deadline) task).getBy() : null;
+    }
+}
@@ -0,0 +1,196 @@
+package dickie.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+/**
+ * TaskColumns kept outside the heap, in direct ByteBuffers: one buffer of fixed size records, one per slot,
+ * and one arena of UTF-8 descriptions. The garbage collector sees two buffer objects however many tasks
+ * there are, so a very large list adds almost nothing to the heap it has to trace.
+ * The memory is released when the columns are no longer reachable and their buffers are collected.
+ */
+class DirectTaskColumns extends TaskColumns {
+    private static final int MIN_CAPACITY = 16;
+    // room for descriptions of this many bytes on average before the arena has to grow
+    private static final int AVERAGE_DESCRIPTION_BYTES = 16;
+
+    // Layout of a record, padded to a multiple of 4 bytes
+    private static final int ID = 0;
+    private static final int FIRST_DAY = 8;
+    private static final int LAST_DAY = 12;
+    private static final int DESCRIPTION_START = 16;
+    private static final int DESCRIPTION_LENGTH = 20;
+    private static final int TYPE = 24;
+    private static final int PRIORITY = 25;
+    private static final int DONE = 26;
+    static final int RECORD_BYTES = 28;
+
+    private ByteBuffer records;
+    private ByteBuffer arena;
+    private int arenaBytes;
+
+    /**
+     * Creates empty columns with room for the given number of slots.
+     *
+     * @param capacity Number of slots
+     */
+    DirectTaskColumns(int capacity) {
+        int slots = Math.max(MIN_CAPACITY, capacity);
+        records = ByteBuffer.allocateDirect(Math.multiplyExact(slots, RECORD_BYTES));
+        arena = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE - 8,
+                (long) slots * AVERAGE_DESCRIPTION_BYTES));
+    }
+
+    @Override
+    int capacity() {
+        return records.capacity() / RECORD_BYTES;
+    }
+
+    @Override
+    void grow(int capacity) {
+        ByteBuffer grown = ByteBuffer.allocateDirect(Math.multiplyExact(Math.max(MIN_CAPACITY, capacity),
+                RECORD_BYTES));
+        grown.put(0, records, 0, records.capacity());
+        records = grown;
+    }
+
+    @Override
+    DirectTaskColumns create(int capacity) {
+        return new DirectTaskColumns(capacity);
+    }
+
+    @Override
+    int type(int slot) {
+        return records.get(slot * RECORD_BYTES + TYPE);
+    }
+
+    @Override
+    int priority(int slot) {
+        return records.get(slot * RECORD_BYTES + PRIORITY);
+    }
+
+    @Override
+    boolean isDone(int slot) {
+        return records.get(slot * RECORD_BYTES + DONE) != 0;
+    }
+
+    @Override
+    long id(int slot) {
+        return records.getLong(slot * RECORD_BYTES + ID);
+    }
+
+    @Override
+    int firstDay(int slot) {
+        return records.getInt(slot * RECORD_BYTES + FIRST_DAY);
+    }
+
+    @Override
+    int lastDay(int slot) {
+        return records.getInt(slot * RECORD_BYTES + LAST_DAY);
+    }
+
+    @Override
+    void setFields(int slot, int type, int priority, boolean isDone, long id, int firstDay, int lastDay) {
+        int record = slot * RECORD_BYTES;
+        records.putLong(record + ID, id);
+        records.putInt(record + FIRST_DAY, firstDay);
+        records.putInt(record + LAST_DAY, lastDay);
+        records.put(record + TYPE, (byte) type);
+        records.put(record + PRIORITY, (byte) priority);
+        records.put(record + DONE, (byte) (isDone ? 1 : 0));
+    }
+
+    @Override
+    void setDone(int slot, boolean isDone) {
+        records.put(slot * RECORD_BYTES + DONE, (byte) (isDone ? 1 : 0));
+    }
+
+    @Override
+    void move(int from, int to) {
+        records.put(to * RECORD_BYTES, records, from * RECORD_BYTES, RECORD_BYTES);
+    }
+
+    @Override
+    String description(int slot) {
+        return new String(descriptionBytes(slot), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    byte[] descriptionBytes(int slot) {
+        byte[] bytes = new byte[descriptionLength(slot)];
+        arena.get(descriptionStart(slot), bytes);
+        return bytes;
+    }
+
+    @Override
+    int descriptionLength(int slot) {
+        return records.getInt(slot * RECORD_BYTES + DESCRIPTION_LENGTH);
+    }
+
+    @Override
+    boolean hasDescription(int slot, byte[] description) {
+        if (descriptionLength(slot) != description.length) {
+            return false;
+        }
+        int start = descriptionStart(slot);
+        for (int i = 0; i < description.length; i++) {
+            if (arena.get(start + i) != description[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    void setDescription(int slot, byte[] description) {
+        ensureArenaCapacity(description.length);
+        arena.put(arenaBytes, description);
+        records.putInt(slot * RECORD_BYTES + DESCRIPTION_START, arenaBytes);
+        records.putInt(slot * RECORD_BYTES + DESCRIPTION_LENGTH, description.length);
+        arenaBytes += description.length;
+    }
+
+    @Override
+    int arenaBytes() {
+        return arenaBytes;
+    }
+
+    @Override
+    void compactArena(BitSet removed, int slotCount) {
+        long liveBytes = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (!removed.get(slot)) {
+                liveBytes += descriptionLength(slot);
+            }
+        }
+        ByteBuffer oldArena = arena;
+        arena = ByteBuffer.allocateDirect((int) Math.max(MIN_CAPACITY, liveBytes));
+        arenaBytes = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (!removed.get(slot)) {
+                int length = descriptionLength(slot);
+                arena.put(arenaBytes, oldArena, descriptionStart(slot), length);
+                records.putInt(slot * RECORD_BYTES + DESCRIPTION_START, arenaBytes);
+                arenaBytes += length;
+            }
+        }
+    }
+
+    private int descriptionStart(int slot) {
+        return records.getInt(slot * RECORD_BYTES + DESCRIPTION_START);
+    }
+
+    private void ensureArenaCapacity(int length) {
+        if (arenaBytes + length <= arena.capacity()) {
+            return;
+        }
+        long capacity = Math.max(arenaBytes + (long) length, arena.capacity() * 2L);
+        if (capacity > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Descriptions do not fit in a single arena");
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity);
+        grown.put(0, arena, 0, arenaBytes);
+        arena = grown;
+    }
+}
@@ -0,0 +1,96 @@
+package dickie.utils;
+
+import java.util.Arrays;
+
+/**
+ * A Fenwick tree of counts, one per slot, that can find the slot holding a given rank in O(log n).
+ * Used to count the live slots of a list that removes entries by leaving tombstones behind,
+ * so that a position in the list can be turned into its slot without scanning.
+ */
+class FenwickTree {
+    // tree[i] holds the sum of the counts of slots (i - lowbit(i), i], one based
+    private int[] tree;
+    private int size;
+
+    /**
+     * Creates a tree of the given number of slots, each with a count of 1.
+     *
+     * @param size Number of slots
+     */
+    FenwickTree(int size) {
+        this.tree = new int[Math.max(16, size + 1)];
+        this.size = size;
+        for (int i = 1; i <= size; i++) {
+            tree[i] = i & -i;
+        }
+    }
+
+    /**
+     * Returns the number of slots in the tree.
+     *
+     * @return Number of slots
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a slot to the end of the tree.
+     *
+     * @param count Count of the new slot
+     */
+    void append(int count) {
+        if (size + 1 == tree.length) {
+            tree = Arrays.copyOf(tree, tree.length + (tree.length >> 1));
+        }
+        size++;
+        int lowBit = size & -size;
+        tree[size] = count + prefixSum(size - 1) - prefixSum(size - lowBit);
+    }
+
+    /**
+     * Adds to the count of a slot.
+     *
+     * @param slot Zero based slot
+     * @param delta Amount to add to its count
+     */
+    void add(int slot, int delta) {
+        for (int i = slot + 1; i <= size; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Returns the sum of the counts of the first slots.
+     *
+     * @param slots Number of slots to sum
+     * @return Sum of their counts
+     */
+    int prefixSum(int slots) {
+        int sum = 0;
+        for (int i = slots; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Finds the slot at which the prefix sum first exceeds the given rank.
+     * With counts of 0 and 1, this is the slot of the live entry at that zero based position.
+     *
+     * @param rank Zero based rank, less than the sum of all counts
+     * @return Zero based slot
+     */
+    int findSlot(int rank) {
+        int position = 0;
+        int remaining = rank;
+        for (int step = Integer.highestOneBit(Math.max(size, 1)); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= size && tree[next] <= remaining) {
+                position = next;
+                remaining -= tree[next];
+            }
+        }
+        return position;
+    }
+}
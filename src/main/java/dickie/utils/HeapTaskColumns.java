@@ -0,0 +1,184 @@
+package dickie.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * TaskColumns kept on the heap, as one primitive array per field and a byte array for the descriptions.
+ * Apart from its description a slot takes 27 bytes. Whether it is done is a byte of its own rather than a bit,
+ * so that marking one slot never writes to the same byte as marking another.
+ */
+class HeapTaskColumns extends TaskColumns {
+    private static final int MIN_CAPACITY = 16;
+    // room for descriptions of this many bytes on average before the arena has to grow
+    private static final int AVERAGE_DESCRIPTION_BYTES = 16;
+
+    private byte[] types;
+    private byte[] priorities;
+    private byte[] done;
+    private long[] ids;
+    private int[] firstDays;
+    private int[] lastDays;
+    private int[] descriptionStarts;
+    private int[] descriptionLengths;
+    private byte[] arena;
+    private int arenaBytes;
+
+    /**
+     * Creates empty columns with room for the given number of slots.
+     *
+     * @param capacity Number of slots
+     */
+    HeapTaskColumns(int capacity) {
+        int slots = Math.max(MIN_CAPACITY, capacity);
+        types = new byte[slots];
+        priorities = new byte[slots];
+        done = new byte[slots];
+        ids = new long[slots];
+        firstDays = new int[slots];
+        lastDays = new int[slots];
+        descriptionStarts = new int[slots];
+        descriptionLengths = new int[slots];
+        arena = new byte[(int) Math.min(Integer.MAX_VALUE - 8, (long) slots * AVERAGE_DESCRIPTION_BYTES)];
+    }
+
+    @Override
+    int capacity() {
+        return types.length;
+    }
+
+    @Override
+    void grow(int capacity) {
+        int slots = Math.max(MIN_CAPACITY, capacity);
+        types = Arrays.copyOf(types, slots);
+        priorities = Arrays.copyOf(priorities, slots);
+        done = Arrays.copyOf(done, slots);
+        ids = Arrays.copyOf(ids, slots);
+        firstDays = Arrays.copyOf(firstDays, slots);
+        lastDays = Arrays.copyOf(lastDays, slots);
+        descriptionStarts = Arrays.copyOf(descriptionStarts, slots);
+        descriptionLengths = Arrays.copyOf(descriptionLengths, slots);
+    }
+
+    @Override
+    HeapTaskColumns create(int capacity) {
+        return new HeapTaskColumns(capacity);
+    }
+
+    @Override
+    int type(int slot) {
+        return types[slot];
+    }
+
+    @Override
+    int priority(int slot) {
+        return priorities[slot];
+    }
+
+    @Override
+    boolean isDone(int slot) {
+        return done[slot] != 0;
+    }
+
+    @Override
+    long id(int slot) {
+        return ids[slot];
+    }
+
+    @Override
+    int firstDay(int slot) {
+        return firstDays[slot];
+    }
+
+    @Override
+    int lastDay(int slot) {
+        return lastDays[slot];
+    }
+
+    @Override
+    void setFields(int slot, int type, int priority, boolean isDone, long id, int firstDay, int lastDay) {
+        types[slot] = (byte) type;
+        priorities[slot] = (byte) priority;
+        done[slot] = (byte) (isDone ? 1 : 0);
+        ids[slot] = id;
+        firstDays[slot] = firstDay;
+        lastDays[slot] = lastDay;
+    }
+
+    @Override
+    void setDone(int slot, boolean isDone) {
+        done[slot] = (byte) (isDone ? 1 : 0);
+    }
+
+    @Override
+    void move(int from, int to) {
+        setFields(to, types[from], priorities[from], done[from] != 0, ids[from], firstDays[from], lastDays[from]);
+        descriptionStarts[to] = descriptionStarts[from];
+        descriptionLengths[to] = descriptionLengths[from];
+    }
+
+    @Override
+    String description(int slot) {
+        return new String(arena, descriptionStarts[slot], descriptionLengths[slot], StandardCharsets.UTF_8);
+    }
+
+    @Override
+    byte[] descriptionBytes(int slot) {
+        return Arrays.copyOfRange(arena, descriptionStarts[slot], descriptionStarts[slot] + descriptionLengths[slot]);
+    }
+
+    @Override
+    int descriptionLength(int slot) {
+        return descriptionLengths[slot];
+    }
+
+    @Override
+    boolean hasDescription(int slot, byte[] description) {
+        int start = descriptionStarts[slot];
+        return Arrays.equals(arena, start, start + descriptionLengths[slot], description, 0, description.length);
+    }
+
+    @Override
+    void setDescription(int slot, byte[] description) {
+        descriptionStarts[slot] = append(description, 0, description.length);
+        descriptionLengths[slot] = description.length;
+    }
+
+    @Override
+    int arenaBytes() {
+        return arenaBytes;
+    }
+
+    @Override
+    void compactArena(BitSet removed, int slotCount) {
+        long liveBytes = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (!removed.get(slot)) {
+                liveBytes += descriptionLengths[slot];
+            }
+        }
+        byte[] oldArena = arena;
+        arena = new byte[(int) Math.max(MIN_CAPACITY, liveBytes)];
+        arenaBytes = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (!removed.get(slot)) {
+                descriptionStarts[slot] = append(oldArena, descriptionStarts[slot], descriptionLengths[slot]);
+            }
+        }
+    }
+
+    private int append(byte[] bytes, int offset, int length) {
+        if (arenaBytes + length > arena.length) {
+            long capacity = Math.max(arenaBytes + (long) length, arena.length * 2L);
+            if (capacity > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Descriptions do not fit in a single arena");
+            }
+            arena = Arrays.copyOf(arena, (int) capacity);
+        }
+        System.arraycopy(bytes, offset, arena, arenaBytes, length);
+        int start = arenaBytes;
+        arenaBytes += length;
+        return start;
+    }
+}
@@ -0,0 +1,285 @@
+package dickie.utils;
+
+import dickie.task.Event;
+import dickie.task.Task;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * An interval tree of the date ranges of events, from the epoch day each event starts to the day it ends.
+ * The events are kept in a treap ordered by start day and then by id, and every node also holds the latest
+ * end day below it, so that a search can skip any subtree that ends before the range it is looking for.
+ * Finding the k events that overlap a range takes O(log n + k) when events are of similar lengths,
+ * and no more than O(log n) per event found otherwise. Adding or removing an event takes O(log n).
+ * All of these are expected bounds, since the treap is only balanced by its random priorities.
+ */
+class IntervalTree {
+    private Node root;
+    private int size;
+
+    private static class Node {
+        final long start;
+        final long end;
+        final long id;
+        // heap priority of the treap, taken from the id so that the shape does not depend on the order of adds
+        final int priority;
+        long maxEnd;
+        Node left;
+        Node right;
+
+        Node(long start, long end, long id) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.priority = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32);
+            this.maxEnd = end;
+        }
+
+        boolean isBefore(long start, long id) {
+            return this.start < start || (this.start == start && this.id < id);
+        }
+    }
+
+    /**
+     * Returns the number of events in the tree.
+     *
+     * @return Number of events
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a task to the tree if it is an event.
+     *
+     * @param task Task to add, which must have an id
+     */
+    void add(Task task) {
+        assert task.getId() != 0 : "Only tasks with ids can be indexed";
+        long[] range = rangeOf(task);
+        if (range != null) {
+            root = insert(root, new Node(range[0], range[1], task.getId()));
+            size++;
+        }
+    }
+
+    /**
+     * Removes a task from the tree, if it is there.
+     *
+     * @param task Task to remove
+     */
+    void remove(Task task) {
+        long[] range = rangeOf(task);
+        if (range != null) {
+            root = delete(root, range[0], task.getId());
+        }
+    }
+
+    /**
+     * Finds the events that share at least one day with a range of days.
+     *
+     * @param from First day of the range
+     * @param to Last day of the range, inclusive
+     * @return Ids of the overlapping events, ordered by start day and then by id
+     */
+    long[] findOverlapping(LocalDate from, LocalDate to) {
+        Collector found = new Collector();
+        collectOverlapping(root, from.toEpochDay(), to.toEpochDay(), found);
+        return Arrays.copyOf(found.ids, found.size);
+    }
+
+    /**
+     * Finds the events that share a day within a range with at least one other event.
+     * The events overlapping the range are found in order of start day, and each is cut down to the part
+     * within the range. An event then clashes with an earlier one if any earlier event ends on or after
+     * the day it starts, and with a later one if the next event starts on or before the day it ends,
+     * so the clashes are found in one pass over the events found.
+     *
+     * @param from First day of the range
+     * @param to Last day of the range, inclusive
+     * @return Ids of the clashing events, ordered by start day and then by id
+     */
+    long[] findConflicting(LocalDate from, LocalDate to) {
+        Collector found = new Collector();
+        collectOverlapping(root, from.toEpochDay(), to.toEpochDay(), found);
+        long[] ids = new long[found.size];
+        int size = 0;
+        long latestEnd = Long.MIN_VALUE;
+        for (int i = 0; i < found.size; i++) {
+            long start = Math.max(found.starts[i], from.toEpochDay());
+            long end = Math.min(found.ends[i], to.toEpochDay());
+            boolean isClashingBefore = latestEnd >= start;
+            boolean isClashingAfter = i + 1 < found.size && Math.max(found.starts[i + 1], from.toEpochDay()) <= end;
+            if (isClashingBefore || isClashingAfter) {
+                ids[size++] = found.ids[i];
+            }
+            latestEnd = Math.max(latestEnd, end);
+        }
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Finds the runs of days within a range on which no event takes place.
+     *
+     * @param from First day of the range
+     * @param to Last day of the range, inclusive
+     * @return First and last epoch day of every free run in order, two entries per run
+     */
+    long[] findFreeDays(LocalDate from, LocalDate to) {
+        Collector found = new Collector();
+        collectOverlapping(root, from.toEpochDay(), to.toEpochDay(), found);
+        // there is at most one free run before each event and one after the last
+        long[] free = new long[2 * found.size + 2];
+        int freeSize = 0;
+        long nextFree = from.toEpochDay();
+        // the events are in order of start day, so a run is free up to the next start not yet covered
+        for (int i = 0; i < found.size; i++) {
+            if (found.starts[i] > nextFree) {
+                free[freeSize++] = nextFree;
+                free[freeSize++] = found.starts[i] - 1;
+            }
+            nextFree = Math.max(nextFree, found.ends[i] + 1);
+        }
+        if (nextFree <= to.toEpochDay()) {
+            free[freeSize++] = nextFree;
+            free[freeSize++] = to.toEpochDay();
+        }
+        return Arrays.copyOf(free, freeSize);
+    }
+
+    /**
+     * Returns the first and last epoch day of an event, or null if the task is not an event.
+     */
+    private static long[] rangeOf(Task task) {
+        if (!(task instanceof Event)) {
+            return null;
+        }
+        Event event = (Event) task;
+        return new long[]{event.getFrom().toEpochDay(), event.getTo().toEpochDay()};
+    }
+
+    private static void collectOverlapping(Node node, long from, long to, Collector found) {
+        // nothing below ends on or after the first day of the range
+        if (node == null || node.maxEnd < from) {
+            return;
+        }
+        collectOverlapping(node.left, from, to, found);
+        // the node and everything to its right start after the range ends
+        if (node.start > to) {
+            return;
+        }
+        if (node.end >= from) {
+            found.add(node.id, node.start, node.end);
+        }
+        collectOverlapping(node.right, from, to, found);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.isBefore(node.start, node.id)) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private Node delete(Node node, long start, long id) {
+        if (node == null) {
+            return null;
+        }
+        if (node.start == start && node.id == id) {
+            size--;
+            return merge(node.left, node.right);
+        }
+        if (node.isBefore(start, id)) {
+            node.right = delete(node.right, start, id);
+        } else {
+            node.left = delete(node.left, start, id);
+        }
+        update(node);
+        return node;
+    }
+
+    /**
+     * Joins two treaps whose events are all ordered before and after each other respectively.
+     */
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        } else {
+            right.left = merge(left, right.left);
+            update(right);
+            return right;
+        }
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        long maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    /**
+     * A growable buffer of ids found, with the range of each.
+     */
+    private static class Collector {
+        long[] ids = new long[16];
+        long[] starts = new long[16];
+        long[] ends = new long[16];
+        int size;
+
+        void add(long id, long start, long end) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            ids[size] = id;
+            starts[size] = start;
+            ends[size] = end;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,717 @@
+package dickie.utils;
+
+import dickie.exception.DickieException;
+import dickie.task.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of task list mutations, kept next to the data file.
+ * Every add, mark, unmark and delete is written as one short line, so a mutation costs O(1) I/O
+ * instead of a full rewrite of the data file, and nothing is lost if the app is killed before "bye".
+ * Recording a mutation only adds its record to a queue that takes no lock, which TaskList does while holding
+ * its locks so that the queue is in the order the changes were made, and changes to different tasks do not
+ * wait for each other to record. flush() numbers the queued records and writes them through a file kept open
+ * for appending, after those locks are released: a thread that finds another writing waits for it and then
+ * writes every record queued meanwhile in one write, so concurrent changes share their appends.
+ * Each record carries a sequence number so that records already covered by a snapshot are skipped on replay.
+ * When the journal is compacted, the active file is sealed into a numbered segment ("dickie.txt.journal.3")
+ * so that new records can keep being appended while the snapshot is written.
+ * Format: "seq | A | #id | task file string", "seq | M | taskNumber", "seq | U | taskNumber" or "seq | X | taskNumber".
+ * Several records written as one change, such as a committed batch or a bulk delete, are framed by
+ * "seq | B | count" before them and "seq | C | crc" after them, where crc is the CRC32C of the record lines.
+ * An append cut short by a crash leaves an unterminated last line, or a batch without its commit marker;
+ * replay drops both, so it never applies half a batch or a record whose task number was cut short, and cuts
+ * the journal file back to the last whole record so that later appends start on a line of their own.
+ */
+public class Journal {
+    private static final String ADD = "A";
+    private static final String MARK = "M";
+    private static final String UNMARK = "U";
+    private static final String DELETE = "X";
+    private static final String BEGIN = "B";
+    private static final String COMMIT = "C";
+
+    private final Path path;
+    // Held while writing to the file, taken before the monitor of the journal
+    private final Object writeLock = new Object();
+    // Records not numbered yet, each group of them recorded as one change, in the order they were recorded
+    private final ConcurrentLinkedQueue<List<String[]>> unnumbered = new ConcurrentLinkedQueue<>();
+    // Numbered records waiting to be written by flush()
+    private final StringBuilder pending = new StringBuilder();
+    // The journal file open for appending, or null until the next write; guarded by writeLock
+    private FileChannel out;
+    private long lastSeq;
+    private int segmentCount;
+    private int recordCount;
+    private long sizeBytes;
+    private long firstRecordMillis;
+    // Records held back until the open batch is committed, each a type and a payload, or null outside a batch
+    private volatile List<String[]> batch;
+
+    /**
+     * Creates a Journal backed by the file at the given path.
+     * The file is only created once the first record is appended.
+     *
+     * @param path The path to the journal file
+     */
+    public Journal(Path path) {
+        this.path = path;
+        this.lastSeq = 0;
+        List<Path> segments = listSegments();
+        this.segmentCount = segments.isEmpty() ? 0 : segmentNumber(segments.get(segments.size() - 1));
+    }
+
+    /**
+     * Returns the sequence number of the most recently recorded or replayed record, numbering any record
+     * queued since the last flush().
+     *
+     * @return Last sequence number
+     */
+    public synchronized long getLastSeq() {
+        number();
+        return lastSeq;
+    }
+
+    /**
+     * Returns the number of records written since the journal was last compacted.
+     *
+     * @return Number of uncompacted records
+     */
+    public synchronized int getRecordCount() {
+        number();
+        return recordCount;
+    }
+
+    /**
+     * Returns the size of the records written since the journal was last compacted.
+     *
+     * @return Size of uncompacted records in bytes
+     */
+    public synchronized long getSizeBytes() {
+        number();
+        return sizeBytes;
+    }
+
+    /**
+     * Returns how long ago the oldest uncompacted record was written.
+     *
+     * @param nowMillis Current time in milliseconds
+     * @return Age of the oldest uncompacted record in milliseconds, or 0 if there is none
+     */
+    public synchronized long getAgeMillis(long nowMillis) {
+        number();
+        return recordCount == 0 ? 0 : nowMillis - firstRecordMillis;
+    }
+
+    /**
+     * Records that a task has been added to the task list. Like every record, it is written by the next flush().
+     *
+     * @param task Task that was added
+     */
+    public void recordAdd(Task task) {
+        append(ADD, Storage.toFileLine(task));
+    }
+
+    /**
+     * Records that a task has been marked as done.
+     *
+     * @param taskNumber Task number provided by the user
+     */
+    public void recordMark(String taskNumber) {
+        append(MARK, taskNumber);
+    }
+
+    /**
+     * Records that a task has been marked as not done.
+     *
+     * @param taskNumber Task number provided by the user
+     */
+    public void recordUnmark(String taskNumber) {
+        append(UNMARK, taskNumber);
+    }
+
+    /**
+     * Records that a task has been deleted.
+     *
+     * @param taskNumber Task number provided by the user
+     */
+    public void recordDelete(String taskNumber) {
+        append(DELETE, taskNumber);
+    }
+
+    /**
+     * Records that several tasks have been marked as done, in one write.
+     *
+     * @param taskNumbers Task numbers, each as it was when its task was marked
+     */
+    public void recordMarks(List<String> taskNumbers) {
+        append(MARK, taskNumbers);
+    }
+
+    /**
+     * Records that several tasks have been marked as not done, in one write.
+     *
+     * @param taskNumbers Task numbers, each as it was when its task was unmarked
+     */
+    public void recordUnmarks(List<String> taskNumbers) {
+        append(UNMARK, taskNumbers);
+    }
+
+    /**
+     * Records that several tasks have been deleted one after another, in one write.
+     *
+     * @param taskNumbers Task numbers, each as it was when its task was deleted
+     */
+    public void recordDeletes(List<String> taskNumbers) {
+        append(DELETE, taskNumbers);
+    }
+
+    /**
+     * Holds back every record from now on until commitBatch() writes them together or abortBatch() drops them.
+     */
+    public synchronized void beginBatch() {
+        assert batch == null : "Batches do not nest";
+        batch = new ArrayList<>();
+    }
+
+    /**
+     * Queues every record held back since beginBatch(), framed as one batch, to be written together
+     * by the next flush().
+     */
+    public synchronized void commitBatch() {
+        List<String[]> records = batch;
+        batch = null;
+        if (!records.isEmpty()) {
+            unnumbered.add(records);
+        }
+    }
+
+    /**
+     * Drops every record held back since beginBatch(), without writing any of them.
+     */
+    public synchronized void abortBatch() {
+        batch = null;
+    }
+
+    /**
+     * Queues a single record.
+     *
+     * @param type Record type
+     * @param payload Record payload
+     */
+    private void append(String type, String payload) {
+        append(type, List.of(payload));
+    }
+
+    /**
+     * Queues one record per payload without taking any lock, to be framed as one batch if there are several,
+     * or holds them back while a batch is open. Each record still has its own sequence number and is replayed
+     * on its own.
+     *
+     * @param type Record type
+     * @param payloads Record payloads, in the order they are replayed
+     */
+    private void append(String type, List<String> payloads) {
+        List<String[]> records = new ArrayList<>(payloads.size());
+        for (String payload : payloads) {
+            records.add(new String[]{type, payload});
+        }
+        if (batch != null) {
+            synchronized (this) {
+                batch.addAll(records);
+            }
+            return;
+        }
+        unnumbered.add(records);
+    }
+
+    /**
+     * Numbers every queued record, in the order they were queued, and adds them to the text flush() writes.
+     * Should be called while holding the monitor of the journal.
+     */
+    private void number() {
+        for (List<String[]> records = unnumbered.poll(); records != null; records = unnumbered.poll()) {
+            queue(records);
+        }
+    }
+
+    /**
+     * Numbers records, each a type and a payload, and adds them to the text that flush() writes.
+     * Several records are framed by begin and commit markers, so that replay applies all of them or none.
+     */
+    private void queue(List<String[]> records) {
+        if (records.size() == 1) {
+            queueLine(records.get(0)[0], records.get(0)[1]);
+            return;
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+        queueLine(BEGIN, String.valueOf(records.size()));
+        CRC32C crc = new CRC32C();
+        for (String[] record : records) {
+            crc.update(toCrcBytes(queueLine(record[0], record[1])));
+        }
+        queueLine(COMMIT, Long.toHexString(crc.getValue()));
+    }
+
+    /**
+     * Numbers a single line and adds it to the text flush() writes.
+     *
+     * @return The line, without its line separator
+     */
+    private String queueLine(String type, String payload) {
+        lastSeq++;
+        String line = lastSeq + " | " + type + " | " + payload;
+        pending.append(line).append(System.lineSeparator());
+        countRecord(line.length() + System.lineSeparator().length());
+        return line;
+    }
+
+    /**
+     * Returns the bytes of a record line that the CRC of a batch covers, the same whatever line separator
+     * the file was written with.
+     */
+    private static byte[] toCrcBytes(String line) {
+        return (line + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes every queued record to the end of the journal file. If another thread is writing, waits for it
+     * and then writes every record queued in the meantime with a single write, including those of any other
+     * thread waiting, so that the records of changes made at the same time are appended together.
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            String text;
+            synchronized (this) {
+                number();
+                if (pending.length() == 0) {
+                    return; // written by the thread that held the lock before
+                }
+                text = pending.toString();
+                pending.setLength(0);
+            }
+            write(text);
+        }
+    }
+
+    /**
+     * Appends text to the journal file, opening it if needed. Should be called while holding writeLock.
+     */
+    private void write(String text) {
+        long sizeBefore = -1;
+        try {
+            if (out == null) {
+                out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            sizeBefore = out.size();
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(text);
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            System.out.println("Error writing to journal: " + e.getMessage());
+            // drop whatever part of the records was written, so the next append does not continue it
+            if (out != null && sizeBefore >= 0) {
+                try {
+                    out.truncate(sizeBefore);
+                } catch (IOException truncateError) {
+                    System.out.println("Error writing to journal: " + truncateError.getMessage());
+                }
+            }
+            close();
+        }
+    }
+
+    /**
+     * Closes the journal file if it is open, so that it can be moved or deleted. Should be called while
+     * holding writeLock.
+     */
+    private void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.out.println("Error closing journal: " + e.getMessage());
+        }
+        out = null;
+    }
+
+    /**
+     * Updates the statistics used to decide when the journal should be compacted.
+     *
+     * @param recordLength Length of the record that was written
+     */
+    private void countRecord(long recordLength) {
+        if (recordCount == 0) {
+            firstRecordMillis = System.currentTimeMillis();
+        }
+        recordCount++;
+        sizeBytes += recordLength;
+    }
+
+    /**
+     * Replays all records newer than the given sequence number onto the task list,
+     * reading sealed segments oldest first and the active journal file last.
+     * The task list must not have a journal attached, otherwise the replayed mutations are journaled again.
+     *
+     * @param taskList Task list restored from the last snapshot
+     * @param snapshotSeq Sequence number already covered by the snapshot
+     */
+    public synchronized void replay(TaskList taskList, long snapshotSeq) {
+        lastSeq = snapshotSeq;
+        recordCount = 0;
+        sizeBytes = 0;
+
+        List<Path> files = listSegments();
+        files.add(path);
+        for (Path file : files) {
+            if (Files.exists(file)) {
+                replayFile(file, taskList);
+            }
+        }
+    }
+
+    /**
+     * Replays the whole records and committed batches of a single journal file onto the task list,
+     * dropping an unterminated last line and a batch cut short. The active journal file is cut back to
+     * the end of what was replayed, so that the next append does not follow on from a torn one.
+     *
+     * @param file Journal file or sealed segment to read
+     * @param taskList Task list to apply the records to
+     */
+    private void replayFile(Path file, TaskList taskList) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (IOException e) {
+            System.out.println("Error reading journal: " + e.getMessage());
+            return;
+        }
+
+        List<String> lines = new ArrayList<>();
+        List<Integer> lineEnds = new ArrayList<>();
+        int lineStart = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                lines.add(new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8).trim());
+                lineEnds.add(i + 1);
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart < bytes.length) {
+            System.out.println("Dropping journal record cut short: "
+                    + new String(bytes, lineStart, bytes.length - lineStart, StandardCharsets.UTF_8).trim());
+        }
+
+        int replayedEnd = 0;
+        for (int i = 0; i < lines.size(); ) {
+            int count = batchCount(lines.get(i));
+            if (count < 0) {
+                replayLine(lines.get(i), taskList);
+                i++;
+            } else if (i + count + 1 < lines.size() && isCommitted(lines.subList(i + 1, i + count + 2))) {
+                for (String line : lines.subList(i, i + count + 2)) {
+                    replayLine(line, taskList);
+                }
+                i += count + 2;
+            } else {
+                System.out.println("Dropping journal batch that was never committed: " + lines.get(i));
+                if (i + count + 1 >= lines.size()) {
+                    break; // cut short by the end of the file, so nothing after it was written
+                }
+                i += count + 2;
+            }
+            replayedEnd = lineEnds.get(i - 1);
+        }
+
+        if (file.equals(path) && replayedEnd < bytes.length) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(replayedEnd);
+            } catch (IOException e) {
+                System.out.println("Error cutting back journal: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of records a batch begin marker says follow it, or -1 if the line is not one.
+     */
+    private static int batchCount(String line) {
+        String[] splitLine = line.split(" \\| ", 3);
+        if (splitLine.length != 3 || !splitLine[1].equals(BEGIN)) {
+            return -1;
+        }
+        try {
+            return Math.max(-1, Integer.parseInt(splitLine[2]));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Checks that the last of the given lines is a commit marker holding the CRC of the lines before it.
+     */
+    private static boolean isCommitted(List<String> recordsAndCommit) {
+        String[] commit = recordsAndCommit.get(recordsAndCommit.size() - 1).split(" \\| ", 3);
+        if (commit.length != 3 || !commit[1].equals(COMMIT)) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        for (String line : recordsAndCommit.subList(0, recordsAndCommit.size() - 1)) {
+            crc.update(toCrcBytes(line));
+        }
+        try {
+            return Long.parseLong(commit[2], 16) == crc.getValue();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Counts a replayed line towards compaction and applies it, reporting it if it is invalid.
+     */
+    private void replayLine(String line, TaskList taskList) {
+        if (line.isEmpty()) {
+            return;
+        }
+        countRecord(line.length() + System.lineSeparator().length());
+        try {
+            applyRecord(line, taskList);
+        } catch (DickieException e) {
+            System.out.println("Skipping invalid journal record: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies a single journal record to the task list, unless the snapshot already covers it.
+     *
+     * @param record The line from the journal file
+     * @param taskList Task list to apply the record to
+     * @throws DickieException If the record is malformed or refers to a task that does not exist
+     */
+    private void applyRecord(String record, TaskList taskList) throws DickieException {
+        String[] splitRecord = record.split(" \\| ", 3);
+        if (splitRecord.length != 3) {
+            throw new DickieException(record);
+        }
+
+        long seq;
+        try {
+            seq = Long.parseLong(splitRecord[0]);
+        } catch (NumberFormatException e) {
+            throw new DickieException(record);
+        }
+        if (seq <= lastSeq) {
+            return; // already part of the snapshot
+        }
+
+        String payload = splitRecord[2];
+        switch (splitRecord[1]) {
+        case BEGIN:
+        case COMMIT:
+            break; // checked by replayFile() before any record of the batch is applied
+        case ADD:
+            taskList.addTask(Storage.parseTask(payload));
+            break;
+        case MARK:
+            taskList.mark(requireTaskNumber(payload, taskList, record));
+            break;
+        case UNMARK:
+            taskList.unmark(requireTaskNumber(payload, taskList, record));
+            break;
+        case DELETE:
+            taskList.delete(requireTaskNumber(payload, taskList, record));
+            break;
+        default:
+            throw new DickieException(record);
+        }
+        lastSeq = seq;
+    }
+
+    /**
+     * Checks that a journaled task number still refers to a task in the task list.
+     *
+     * @param taskNumber Task number stored in the record
+     * @param taskList Task list the record is applied to
+     * @param record Full record, used in the error message
+     * @return The task number
+     * @throws DickieException If the task number is out of range
+     */
+    private static String requireTaskNumber(String taskNumber, TaskList taskList, String record)
+            throws DickieException {
+        try {
+            int number = Integer.parseInt(taskNumber);
+            if (number >= 1 && number <= taskList.getSize()) {
+                return taskNumber;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to the error below
+        }
+        throw new DickieException(record);
+    }
+
+    /**
+     * Seals the active journal file into a new numbered segment, so that records appended from now on
+     * go to a fresh file while the sealed records are compacted into a snapshot.
+     * Records queued but not yet flushed are written first, since they come before the next record.
+     *
+     * @return All sealed segments, including any left over from an earlier interrupted compaction
+     */
+    public List<Path> rotate() {
+        synchronized (writeLock) {
+            synchronized (this) {
+                number();
+                if (pending.length() > 0) {
+                    write(pending.toString());
+                    pending.setLength(0);
+                }
+                close();
+                if (Files.exists(path)) {
+                    try {
+                        segmentCount++;
+                        Files.move(path, segmentPath(segmentCount));
+                    } catch (IOException e) {
+                        System.out.println("Error sealing journal: " + e.getMessage());
+                    }
+                }
+                recordCount = 0;
+                sizeBytes = 0;
+                return listSegments();
+            }
+        }
+    }
+
+    /**
+     * Moves every record in the journal, sealed segments first, to the end of a file next to it that is never
+     * replayed, and empties the journal. Used when the snapshot the records follow on from is not known,
+     * since replaying them onto the wrong tasks would apply numbered changes to the wrong tasks.
+     *
+     * @return Path of the file holding the set aside records, or null if the journal was empty
+     */
+    public Path setAside() {
+        synchronized (writeLock) {
+            synchronized (this) {
+                unnumbered.clear();
+                pending.setLength(0);
+                close();
+                return setAsideFiles();
+            }
+        }
+    }
+
+    /**
+     * Moves the journal file and its sealed segments to the set aside file. Should be called while holding
+     * writeLock, with the journal file closed.
+     */
+    private Path setAsideFiles() {
+        List<Path> files = listSegments();
+        files.add(path);
+        Path asidePath = path.resolveSibling(path.getFileName() + ".unreplayed");
+        boolean isAnySetAside = false;
+        for (Path file : files) {
+            try {
+                if (Files.exists(file)) {
+                    Files.write(asidePath, Files.readAllBytes(file), StandardOpenOption.CREATE,
+                            StandardOpenOption.APPEND);
+                    Files.delete(file);
+                    isAnySetAside = true;
+                }
+            } catch (IOException e) {
+                System.out.println("Error setting journal aside: " + e.getMessage());
+            }
+        }
+        lastSeq = 0;
+        recordCount = 0;
+        sizeBytes = 0;
+        return isAnySetAside ? asidePath : null;
+    }
+
+    /**
+     * Deletes sealed segments once a snapshot containing all their records has been written.
+     *
+     * @param segments Segments returned by an earlier call to rotate
+     * @return Number of bytes freed
+     */
+    public long deleteSegments(List<Path> segments) {
+        long bytesFreed = 0;
+        for (Path segment : segments) {
+            try {
+                if (Files.exists(segment)) {
+                    bytesFreed += Files.size(segment);
+                    Files.delete(segment);
+                }
+            } catch (IOException e) {
+                System.out.println("Error deleting journal segment: " + e.getMessage());
+            }
+        }
+        return bytesFreed;
+    }
+
+    /**
+     * Returns the path of the sealed segment with the given number.
+     *
+     * @param number Segment number
+     * @return Path of the segment file
+     */
+    private Path segmentPath(int number) {
+        return path.resolveSibling(path.getFileName() + "." + number);
+    }
+
+    /**
+     * Returns the number of a sealed segment file, or -1 if the file is not a segment of this journal.
+     *
+     * @param file File next to the journal
+     * @return Segment number
+     */
+    private int segmentNumber(Path file) {
+        String prefix = path.getFileName() + ".";
+        String name = file.getFileName().toString();
+        if (!name.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Lists the sealed segments of this journal, oldest first.
+     *
+     * @return Sealed segment paths in the order they were written
+     */
+    private List<Path> listSegments() {
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory == null || !Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> segmentNumber(file) > 0)
+                    .sorted(Comparator.comparingInt(this::segmentNumber))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        } catch (IOException e) {
+            System.out.println("Error listing journal segments: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package dickie.utils;
+
+import dickie.task.Priority;
+import dickie.task.Task;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A list of tasks backed by the bytes of a binary data file, which decodes a task only when it is accessed.
+ * Each entry is either a handle to a record in the file, or a pinned Task that has been added or changed
+ * since the file was read. Decoded records are kept in a bounded least recently used cache, so that
+ * listing or searching a large list does not keep every task in memory.
+ * A Task returned by get() may be evicted from the cache, so changes to it are only kept if the task is
+ * passed back to set(), which pins it.
+ * Removing a task leaves a tombstone in its slot instead of shifting the slots after it, and a FenwickTree
+ * over the live slots finds the slot of a position in O(log n). The slots are compacted once more than half
+ * of them are tombstones, so removing stays O(log n) amortized and appending stays O(1) amortized.
+ * Tasks are found by id through a LongIntMap from id to slot, read from the records without decoding them
+ * when it is first needed and kept up to date until the slots move.
+ * Changing a task with setShared() only pins the changed task in its slot, so that any number of threads
+ * can change different tasks at once.
+ */
+class LazyTaskList extends AbstractList<Task> implements TaskStore {
+    // Decoders for peek(), one per thread, since a decoder keeps a buffer between records
+    private static final ThreadLocal<BinaryTaskFile> PEEK_DECODERS = ThreadLocal.withInitial(BinaryTaskFile::new);
+    // Reads and writes single slots of pinned with release and acquire ordering, for setShared()
+    private static final VarHandle PINNED = MethodHandles.arrayElementVarHandle(Task[].class);
+
+    private final byte[] data;
+    private final int cacheSize;
+    private final BinaryTaskFile decoder = new BinaryTaskFile();
+    private final Map<Integer, Task> cache;
+    private final BitSet removed = new BitSet();
+    private int[] starts;
+    private int[] ends;
+    private Task[] pinned;
+    private int slotCount;
+    private int size;
+    // Counts the live slots, or null while there are no tombstones and every position is its own slot
+    private FenwickTree liveSlots;
+    // Slot of each task id, or null until a task is first looked up by id after the slots last moved
+    private volatile LongIntMap slotsById;
+    // Highest id a task is known to have had, including deleted tasks
+    private long usedMaxId;
+
+    /**
+     * Creates a list over the records of a binary data file.
+     *
+     * @param data Contents of the data file, which must not be changed afterwards
+     * @param starts Offset of the first byte of each record, in list order
+     * @param ends Offset just past the last byte of each record, in list order
+     * @param cacheSize Maximum number of decoded tasks to keep
+     */
+    LazyTaskList(byte[] data, int[] starts, int[] ends, int cacheSize) {
+        assert starts.length == ends.length : "Every record should have a start and an end";
+        this.data = data;
+        this.starts = starts;
+        this.ends = ends;
+        this.pinned = new Task[starts.length];
+        this.slotCount = starts.length;
+        this.size = starts.length;
+        this.cacheSize = cacheSize;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Task> eldest) {
+                return size() > LazyTaskList.this.cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Creates a list holding tasks that are not backed by a data file, each of which is pinned.
+     *
+     * @param tasks Tasks in list order
+     * @return List of the tasks
+     */
+    static LazyTaskList of(List<Task> tasks) {
+        int[] noRecords = new int[tasks.size()];
+        Arrays.fill(noRecords, -1);
+        LazyTaskList list = new LazyTaskList(new byte[0], noRecords, noRecords.clone(), 0);
+        tasks.toArray(list.pinned);
+        return list;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized Task get(int index) {
+        return getSlot(slotOf(index));
+    }
+
+    private Task getSlot(int slot) {
+        Task pinnedTask = pinnedAt(slot);
+        if (pinnedTask != null) {
+            return pinnedTask;
+        }
+
+        Task task = cache.get(starts[slot]);
+        if (task == null) {
+            try {
+                task = decoder.decodeRecord(data, starts[slot]);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot decode record at " + starts[slot] + ": " + e.getMessage(), e);
+            }
+            if (cacheSize > 0) {
+                cache.put(starts[slot], task);
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Returns the task at the given position, decoding it without the cache if it is not pinned.
+     */
+    @Override
+    public Task peek(int index) {
+        int slot = slotOf(index);
+        Task pinnedTask = pinnedAt(slot);
+        if (pinnedTask != null) {
+            return pinnedTask;
+        }
+        try {
+            return PEEK_DECODERS.get().decodeRecord(data, starts[slot]);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot decode record at " + starts[slot] + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Replaces the task at the given position, pinning it in memory until the list is saved.
+     */
+    @Override
+    public synchronized Task set(int index, Task task) {
+        int slot = slotOf(index);
+        Task previous = getSlot(slot);
+        long previousId = idAt(slot);
+        pinned[slot] = task;
+        if (slotsById != null && previousId != task.getId()) {
+            if (slotsById.get(previousId, -1) == slot) {
+                slotsById.remove(previousId);
+            }
+            indexId(slot);
+        }
+        return previous;
+    }
+
+    /**
+     * Replaces the task at the given position by pinning the new task in its slot alone, without the monitor
+     * of the list or the cache, so that tasks in different slots can be changed by different threads at once.
+     */
+    @Override
+    public void setShared(int index, Task task) {
+        int slot = slotOf(index);
+        assert task.getId() == idAt(slot) : "The id of the task should not change";
+        PINNED.setRelease(pinned, slot, task);
+    }
+
+    /**
+     * Returns the task pinned in the given slot, or null, seeing every field of a task pinned by setShared().
+     */
+    private Task pinnedAt(int slot) {
+        return (Task) PINNED.getAcquire(pinned, slot);
+    }
+
+    /**
+     * Inserts a task at the given position. Appending is O(1) amortized, inserting anywhere else
+     * compacts the slots and shifts the ones after it.
+     */
+    @Override
+    public synchronized void add(int index, Task task) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (index < size) {
+            compact();
+            slotsById = null;
+        }
+        if (slotCount == starts.length) {
+            int capacity = Math.max(16, slotCount + (slotCount >> 1));
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            pinned = Arrays.copyOf(pinned, capacity);
+        }
+        // After compacting, an insert before the end has its position as its slot
+        int slot = index < size ? index : slotCount;
+        System.arraycopy(starts, slot, starts, slot + 1, slotCount - slot);
+        System.arraycopy(ends, slot, ends, slot + 1, slotCount - slot);
+        System.arraycopy(pinned, slot, pinned, slot + 1, slotCount - slot);
+        starts[slot] = -1;
+        ends[slot] = -1;
+        pinned[slot] = task;
+        if (liveSlots != null) {
+            liveSlots.append(1);
+        }
+        if (slotsById != null) {
+            indexId(slot);
+        }
+        slotCount++;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Removes the task at the given position by leaving a tombstone in its slot.
+     */
+    @Override
+    public synchronized Task remove(int index) {
+        int slot = slotOf(index);
+        Task removedTask = getSlot(slot);
+        if (slotsById != null) {
+            slotsById.remove(idAt(slot));
+        }
+        cache.remove(starts[slot]);
+        if (liveSlots == null) {
+            liveSlots = new FenwickTree(slotCount);
+        }
+        liveSlots.add(slot, -1);
+        removed.set(slot);
+        pinned[slot] = null;
+        size--;
+        modCount++;
+        if (slotCount - size > slotCount / 2) {
+            compact();
+        }
+        return removedTask;
+    }
+
+    /**
+     * Returns the slot holding the task at the given position.
+     */
+    private int slotOf(int index) {
+        checkIndex(index, size);
+        return liveSlots == null ? index : liveSlots.findSlot(index);
+    }
+
+    /**
+     * Drops the tombstones left by removed tasks, so that every position is its own slot again.
+     */
+    private void compact() {
+        if (liveSlots == null) {
+            return;
+        }
+        int live = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (!removed.get(slot)) {
+                starts[live] = starts[slot];
+                ends[live] = ends[slot];
+                pinned[live] = pinned[slot];
+                live++;
+            }
+        }
+        assert live == size : "Every slot should be live or a tombstone";
+        Arrays.fill(pinned, live, slotCount, null);
+        slotCount = live;
+        removed.clear();
+        liveSlots = null;
+        slotsById = null;
+    }
+
+    /**
+     * Finds the position of the task with the given id in O(1), plus O(log n) while there are tombstones.
+     *
+     * @param id Id of the task
+     * @return Position of the task, or -1 if no task has that id
+     */
+    @Override
+    public int indexOfId(long id) {
+        if (id <= 0) {
+            return -1;
+        }
+        LongIntMap slots = slotsById;
+        int slot = (slots != null ? slots : indexIds()).get(id, -1);
+        if (slot < 0) {
+            return -1;
+        }
+        return liveSlots == null ? slot : liveSlots.prefixSum(slot);
+    }
+
+    /**
+     * Reads the id of every live slot into the map from id to slot, unless another thread has just done so.
+     */
+    private synchronized LongIntMap indexIds() {
+        if (slotsById == null) {
+            LongIntMap slots = new LongIntMap(size);
+            for (int slot = 0; slot < slotCount; slot++) {
+                long id = removed.get(slot) ? 0 : idAt(slot);
+                if (id != 0) {
+                    slots.put(id, slot);
+                }
+            }
+            slotsById = slots;
+        }
+        return slotsById;
+    }
+
+    /**
+     * Returns the highest task id in the list, reading the ids from the records without decoding them,
+     * or the highest id passed to raiseMaxId() if that is higher.
+     *
+     * @return Highest id, or 0 if no task has an id
+     */
+    @Override
+    public synchronized long maxId() {
+        long maxId = usedMaxId;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (!removed.get(slot)) {
+                maxId = Math.max(maxId, idAt(slot));
+            }
+        }
+        return maxId;
+    }
+
+    @Override
+    public synchronized void raiseMaxId(long id) {
+        usedMaxId = Math.max(usedMaxId, id);
+    }
+
+    private void indexId(int slot) {
+        long id = idAt(slot);
+        if (id != 0) {
+            slotsById.put(id, slot);
+        }
+    }
+
+    /**
+     * Returns the id of the task in the given slot, without decoding it.
+     */
+    private long idAt(int slot) {
+        Task pinnedTask = pinnedAt(slot);
+        return pinnedTask != null ? pinnedTask.getId() : BinaryTaskFile.recordId(data, starts[slot]);
+    }
+
+    /**
+     * Sorts the list. The natural order, HIGH priority first as in Task.compareTo, is sorted stably
+     * by reading each record's priority straight from its flags byte, so no task is decoded.
+     * Any other order decodes and pins every task.
+     */
+    @Override
+    public synchronized void sort(Comparator<? super Task> comparator) {
+        if (comparator != null) {
+            super.sort(comparator);
+            slotsById = null;
+            return;
+        }
+        compact();
+        slotsById = null;
+
+        int priorityCount = Priority.values().length;
+        int[] counts = new int[priorityCount + 1];
+        int[] priorities = new int[size];
+        for (int i = 0; i < size; i++) {
+            // HIGH first, so the highest ordinal gets the first bucket
+            priorities[i] = priorityCount - 1 - priorityOrdinal(i);
+            counts[priorities[i] + 1]++;
+        }
+        for (int p = 0; p < priorityCount; p++) {
+            counts[p + 1] += counts[p];
+        }
+
+        int[] sortedStarts = new int[starts.length];
+        int[] sortedEnds = new int[ends.length];
+        Task[] sortedPinned = new Task[pinned.length];
+        for (int i = 0; i < size; i++) {
+            int position = counts[priorities[i]]++;
+            sortedStarts[position] = starts[i];
+            sortedEnds[position] = ends[i];
+            sortedPinned[position] = pinned[i];
+        }
+        starts = sortedStarts;
+        ends = sortedEnds;
+        pinned = sortedPinned;
+        modCount++;
+    }
+
+    /**
+     * Splits this list into one list per priority without decoding any task, keeping the order within each.
+     * The cache size is shared out between the new lists.
+     *
+     * @return Lists of the tasks of each priority, from HIGH to LOW
+     */
+    @Override
+    public synchronized List<LazyTaskList> splitByPriority() {
+        compact();
+        int priorityCount = Priority.values().length;
+        int[] counts = new int[priorityCount];
+        for (int i = 0; i < size; i++) {
+            counts[priorityOrdinal(i)]++;
+        }
+
+        List<LazyTaskList> lists = new ArrayList<>(priorityCount);
+        for (int ordinal = priorityCount - 1; ordinal >= 0; ordinal--) {
+            LazyTaskList list = new LazyTaskList(data, new int[counts[ordinal]], new int[counts[ordinal]],
+                    cacheSize / priorityCount);
+            list.usedMaxId = usedMaxId;
+            int position = 0;
+            for (int i = 0; i < size; i++) {
+                if (priorityOrdinal(i) == ordinal) {
+                    list.starts[position] = starts[i];
+                    list.ends[position] = ends[i];
+                    list.pinned[position] = pinned[i];
+                    position++;
+                }
+            }
+            lists.add(list);
+        }
+        return lists;
+    }
+
+    /**
+     * Creates an independent copy of this list that shares the file contents but not the cache,
+     * so that it can be read on another thread while this list keeps changing.
+     *
+     * @return Copy of the list
+     */
+    @Override
+    public synchronized LazyTaskList copy() {
+        compact();
+        LazyTaskList copy = new LazyTaskList(data, Arrays.copyOf(starts, size), Arrays.copyOf(ends, size), cacheSize);
+        System.arraycopy(pinned, 0, copy.pinned, 0, size);
+        copy.usedMaxId = usedMaxId;
+        return copy;
+    }
+
+    /**
+     * Checks whether the task at the given position has been added or changed since the file was read.
+     *
+     * @param index Position of the task
+     * @return true if the task is pinned in memory, false if it is only a record in the file
+     */
+    synchronized boolean isPinned(int index) {
+        return pinned[slotOf(index)] != null;
+    }
+
+    /**
+     * Copies the undecoded record of the task at the given position, which must not be pinned.
+     *
+     * @param index Position of the task
+     * @param out Output to copy the record to
+     * @throws IOException If the record cannot be written
+     */
+    synchronized void copyRecord(int index, DataOutput out) throws IOException {
+        int slot = slotOf(index);
+        assert pinned[slot] == null : "Pinned tasks have no record to copy";
+        out.write(data, starts[slot], ends[slot] - starts[slot]);
+    }
+
+    /**
+     * Returns the priority ordinal of the task in the given slot, without decoding it.
+     */
+    private int priorityOrdinal(int slot) {
+        return pinned[slot] != null
+                ? pinned[slot].getPriority().ordinal()
+                : BinaryTaskFile.priorityOrdinal(data, starts[slot]);
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
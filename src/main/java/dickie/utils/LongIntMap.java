@@ -0,0 +1,146 @@
+package dickie.utils;
+
+/**
+ * A hash map from positive long keys to int values, stored in two primitive arrays with open addressing,
+ * so that entries need no boxing and no node objects.
+ * Collisions are resolved by linear probing, and removal shifts later entries of the run back into the gap
+ * instead of leaving tombstones, so lookups stay short however many entries have been removed.
+ */
+class LongIntMap {
+    // 0 marks an empty slot, which is why keys must be positive
+    private static final long EMPTY = 0;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Creates a map with room for the given number of entries before it has to grow.
+     *
+     * @param expectedSize Number of entries expected
+     */
+    LongIntMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     *
+     * @return Number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value for the given key.
+     *
+     * @param key Positive key
+     * @param missing Value to return if the key is not in the map
+     * @return Value for the key, or missing
+     */
+    int get(long key, int missing) {
+        for (int slot = slotOf(key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Maps the key to the value, replacing any value it had.
+     *
+     * @param key Positive key
+     * @param value Value for the key
+     */
+    void put(long key, int value) {
+        assert key > 0 : "Keys should be positive";
+        int slot = slotOf(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        // kept at most half full, so that probe runs stay short
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Removes the key from the map, if it is there.
+     *
+     * @param key Positive key
+     */
+    void remove(long key) {
+        int slot = slotOf(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // move back every later entry of the run that may no longer be reachable past the gap
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = slotOf(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+        size--;
+    }
+
+    /**
+     * Estimates the heap memory taken by the map, its two arrays and their headers.
+     *
+     * @return Approximate size of the map in bytes
+     */
+    long estimateMemoryBytes() {
+        return 32 + 16 + (long) keys.length * Long.BYTES + 16 + (long) values.length * Integer.BYTES;
+    }
+
+    private int slotOf(long key) {
+        // Fibonacci hashing spreads sequential ids over the whole table
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slotOf(oldKeys[i]);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long capacity = Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max(1, expectedSize) * 2L - 1) * 2);
+        return (int) Math.min(capacity, 1 << 30);
+    }
+}
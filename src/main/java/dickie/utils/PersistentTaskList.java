@@ -0,0 +1,361 @@
+package dickie.utils;
+
+import dickie.task.Task;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An immutable list of tasks, which a change copies in O(log n) by sharing everything it does not touch
+ * with the list it was made from, so that TaskList can publish a new list on every change.
+ * The list is a sequence of pieces, each either a range of a TaskStore that never changes again, such as
+ * a copy of a bucket, or a single task put in by a change. The pieces are held in a treap ordered by position,
+ * whose random priorities keep it O(log m) deep for m pieces, and a change copies only the nodes on the path
+ * to the pieces it touches. Every change adds at most two pieces, so the owner replaces the list with one
+ * made from a fresh copy of its tasks once there are too many.
+ */
+final class PersistentTaskList extends AbstractList<Task> {
+    private static final PersistentTaskList EMPTY = new PersistentTaskList(null);
+
+    private final Node root;
+
+    private PersistentTaskList(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Creates a list of the tasks of a list that is never changed again, without building any task.
+     *
+     * @param tasks Copy of the tasks, either a TaskStore or a PriorityBucketList of them
+     * @return List of the same tasks
+     */
+    static PersistentTaskList of(List<Task> tasks) {
+        Node root = null;
+        for (Piece piece : piecesOf(tasks)) {
+            if (piece.to > piece.from) {
+                root = merge(root, new Node((TaskStore) piece.tasks, piece.from, piece.to - piece.from, null));
+            }
+        }
+        return root == null ? EMPTY : new PersistentTaskList(root);
+    }
+
+    /**
+     * Returns the ranges a list of tasks is made of in order, so that a writer can copy the records
+     * of the tasks in a LazyTaskList without decoding them.
+     *
+     * @param tasks A PersistentTaskList, a PriorityBucketList or any other list of tasks
+     * @return Pieces covering every task of the list, in list order
+     */
+    static List<Piece> piecesOf(List<Task> tasks) {
+        List<Piece> pieces = new ArrayList<>();
+        if (tasks instanceof PersistentTaskList) {
+            for (Iterator<Node> nodes = ((PersistentTaskList) tasks).nodes(); nodes.hasNext(); ) {
+                Node node = nodes.next();
+                pieces.add(node.task != null
+                        ? new Piece(List.of(node.task), 0, 1)
+                        : new Piece(node.store, node.from, node.from + node.count));
+            }
+        } else if (tasks instanceof PriorityBucketList) {
+            for (TaskStore bucket : ((PriorityBucketList) tasks).getBuckets()) {
+                pieces.add(new Piece(bucket, 0, bucket.size()));
+            }
+        } else {
+            pieces.add(new Piece(tasks, 0, tasks.size()));
+        }
+        return pieces;
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Returns the task at the given position in O(log m), building it from its store if needed.
+     */
+    @Override
+    public Task get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index >= leftSize + node.count) {
+                index -= leftSize + node.count;
+                node = node.right;
+            } else {
+                return node.taskAt(index - leftSize);
+            }
+        }
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        Iterator<Node> nodes = nodes();
+        return new Iterator<>() {
+            private Node node;
+            private int offset;
+
+            @Override
+            public boolean hasNext() {
+                return (node != null && offset < node.count) || nodes.hasNext();
+            }
+
+            @Override
+            public Task next() {
+                if (node == null || offset == node.count) {
+                    node = nodes.next();
+                    offset = 0;
+                }
+                return node.taskAt(offset++);
+            }
+        };
+    }
+
+    /**
+     * Returns the number of pieces the list is made of, which every change adds at most two to.
+     *
+     * @return Number of pieces
+     */
+    int getPieceCount() {
+        return root == null ? 0 : root.pieces;
+    }
+
+    /**
+     * Returns a list with the task at the given position replaced.
+     *
+     * @param index Position of the task
+     * @param task Task to put in its place
+     * @return Changed list
+     */
+    PersistentTaskList withSet(int index, Task task) {
+        Node[] parts = splitAround(index);
+        return new PersistentTaskList(merge(merge(parts[0], new Node(null, 0, 1, task)), parts[2]));
+    }
+
+    /**
+     * Returns a list with a task inserted at the given position.
+     *
+     * @param index Position to insert the task at, from 0 to the size of the list
+     * @param task Task to insert
+     * @return Changed list
+     */
+    PersistentTaskList withAdded(int index, Task task) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        Node[] parts = split(cut(root, index), index);
+        return new PersistentTaskList(merge(merge(parts[0], new Node(null, 0, 1, task)), parts[1]));
+    }
+
+    /**
+     * Returns a list with the task at the given position removed.
+     *
+     * @param index Position of the task
+     * @return Changed list
+     */
+    PersistentTaskList withRemoved(int index) {
+        Node[] parts = splitAround(index);
+        Node root = merge(parts[0], parts[2]);
+        return root == null ? EMPTY : new PersistentTaskList(root);
+    }
+
+    /**
+     * Splits the tree into the tasks before the given position, the task at it and the tasks after it.
+     */
+    private Node[] splitAround(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        Node[] before = split(cut(cut(root, index), index + 1), index);
+        Node[] after = split(before[1], 1);
+        return new Node[]{before[0], after[0], after[1]};
+    }
+
+    /**
+     * Returns a tree of the same tasks with a piece starting at the given position, splitting the piece
+     * containing it in two. The first half keeps the place of the piece in the tree, and the second is
+     * inserted after it as a node of its own.
+     */
+    private static Node cut(Node node, int index) {
+        Node containing = node;
+        int offset = index;
+        while (containing != null) {
+            int leftSize = size(containing.left);
+            if (offset <= leftSize) {
+                containing = containing.left;
+            } else if (offset >= leftSize + containing.count) {
+                offset -= leftSize + containing.count;
+                containing = containing.right;
+            } else {
+                offset -= leftSize;
+                break;
+            }
+        }
+        if (containing == null) {
+            return node; // a piece already starts there
+        }
+        Node tail = new Node(containing.store, containing.from + offset, containing.count - offset, null);
+        return insert(shorten(node, index, offset), index, tail);
+    }
+
+    /**
+     * Returns a tree with the piece containing the given position cut short to the given number of tasks.
+     */
+    private static Node shorten(Node node, int index, int count) {
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+            return node.withChildren(shorten(node.left, index, count), node.right);
+        }
+        if (index >= leftSize + node.count) {
+            return node.withChildren(node.left, shorten(node.right, index - leftSize - node.count, count));
+        }
+        return new Node(node.store, node.from, count, null, node.priority, node.left, node.right);
+    }
+
+    /**
+     * Inserts a node at the given position, which must be the start of a piece or the end of the tree.
+     */
+    private static Node insert(Node node, int index, Node inserted) {
+        if (node == null) {
+            return inserted;
+        }
+        if (inserted.priority > node.priority) {
+            Node[] parts = split(node, index);
+            return inserted.withChildren(parts[0], parts[1]);
+        }
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+            return node.withChildren(insert(node.left, index, inserted), node.right);
+        }
+        return node.withChildren(node.left, insert(node.right, index - leftSize - node.count, inserted));
+    }
+
+    /**
+     * Splits a tree into the tasks before the given position and the rest. A piece must start at the position.
+     */
+    private static Node[] split(Node node, int index) {
+        if (node == null) {
+            return new Node[2];
+        }
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+            Node[] parts = split(node.left, index);
+            parts[1] = node.withChildren(parts[1], node.right);
+            return parts;
+        }
+        assert index >= leftSize + node.count : "A piece should start at the position";
+        Node[] parts = split(node.right, index - leftSize - node.count);
+        parts[0] = node.withChildren(node.left, parts[0]);
+        return parts;
+    }
+
+    /**
+     * Joins two trees, every task of the first coming before every task of the second.
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            return first.withChildren(first.left, merge(first.right, second));
+        }
+        return second.withChildren(merge(first, second.left), second.right);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Returns the nodes of the tree in list order.
+     */
+    private Iterator<Node> nodes() {
+        ArrayDeque<Node> path = new ArrayDeque<>();
+        for (Node node = root; node != null; node = node.left) {
+            path.push(node);
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !path.isEmpty();
+            }
+
+            @Override
+            public Node next() {
+                if (path.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node node = path.pop();
+                for (Node next = node.right; next != null; next = next.left) {
+                    path.push(next);
+                }
+                return node;
+            }
+        };
+    }
+
+    /**
+     * A range of tasks of a list, from the first position up to but not including the last.
+     */
+    static final class Piece {
+        final List<Task> tasks;
+        final int from;
+        final int to;
+
+        Piece(List<Task> tasks, int from, int to) {
+            this.tasks = tasks;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private static final class Node {
+        // Store the piece is a range of, or null for a piece of a single task
+        final TaskStore store;
+        final int from;
+        final int count;
+        final Task task;
+        final int priority;
+        final Node left;
+        final Node right;
+        // Number of tasks and of pieces in the subtree of this node
+        final int size;
+        final int pieces;
+
+        Node(TaskStore store, int from, int count, Task task) {
+            this(store, from, count, task, ThreadLocalRandom.current().nextInt(), null, null);
+        }
+
+        Node(TaskStore store, int from, int count, Task task, int priority, Node left, Node right) {
+            this.store = store;
+            this.from = from;
+            this.count = count;
+            this.task = task;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + count + size(right);
+            this.pieces = (left == null ? 0 : left.pieces) + 1 + (right == null ? 0 : right.pieces);
+        }
+
+        Node withChildren(Node left, Node right) {
+            return new Node(store, from, count, task, priority, left, right);
+        }
+
+        Task taskAt(int offset) {
+            return task != null ? task : store.peek(from + offset);
+        }
+    }
+}
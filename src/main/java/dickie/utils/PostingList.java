@@ -0,0 +1,104 @@
+package dickie.utils;
+
+import java.util.Arrays;
+
+/**
+ * A sorted list of task ids, as kept by the indexes for each trigram or date.
+ * Ids are given out in increasing order, so adding a new task is an append.
+ */
+class PostingList {
+    private long[] ids = new long[2];
+    private int size;
+
+    /**
+     * Returns the number of ids in the list.
+     *
+     * @return Number of ids
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds an id to the list, unless it is already there.
+     *
+     * @param id Id to add
+     */
+    void add(long id) {
+        int position = size == 0 || ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0) {
+            return; // already in the list
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        int insertAt = -position - 1;
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+    }
+
+    /**
+     * Removes an id from the list, if it is there.
+     *
+     * @param id Id to remove
+     */
+    void remove(long id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0) {
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+        }
+    }
+
+    /**
+     * Returns a copy of the ids.
+     *
+     * @return Sorted ids
+     */
+    long[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Copies the ids into an array.
+     *
+     * @param target Array to copy to
+     * @param offset Position in the array to copy the first id to
+     */
+    void copyTo(long[] target, int offset) {
+        System.arraycopy(ids, 0, target, offset, size);
+    }
+
+    /**
+     * Returns the given sorted ids that are also in this list, looking each one up by binary search,
+     * so that a short list of candidates is checked against a long list quickly.
+     *
+     * @param candidates Sorted ids
+     * @return Sorted ids that are in both
+     */
+    long[] retainAll(long[] candidates) {
+        long[] kept = new long[candidates.length];
+        int keptCount = 0;
+        int from = 0;
+        for (long id : candidates) {
+            int position = Arrays.binarySearch(ids, from, size, id);
+            if (position >= 0) {
+                kept[keptCount++] = id;
+                from = position + 1;
+            } else {
+                from = -position - 1;
+            }
+        }
+        return Arrays.copyOf(kept, keptCount);
+    }
+
+    /**
+     * Estimates the heap memory taken by the list and its array.
+     *
+     * @return Approximate size in bytes
+     */
+    long estimateMemoryBytes() {
+        return 24 + 16 + 8L * ids.length;
+    }
+}
@@ -0,0 +1,241 @@
+package dickie.utils;
+
+import dickie.task.Priority;
+import dickie.task.Task;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A list of tasks kept in the order of Task.compareTo, HIGH priority first, by holding one bucket per priority.
+ * Within a bucket tasks stay in the order they were added, so the list is the same as appending a task
+ * and stably sorting the whole list, but adding a task only appends it to its bucket.
+ * Finding the task at a position walks past at most one bucket per priority.
+ * Each bucket is a TaskStore of the same kind as the list the tasks came from, such as a LazyTaskList,
+ * so that lazily loaded tasks stay undecoded and removing a task is O(log n).
+ */
+class PriorityBucketList extends AbstractList<Task> {
+    private static final int BUCKET_COUNT = Priority.values().length;
+
+    private final List<TaskStore> buckets;
+
+    /**
+     * Creates a list holding the given tasks, stably sorted by priority, without decoding any of them.
+     *
+     * @param tasks Tasks in their current order
+     */
+    PriorityBucketList(TaskStore tasks) {
+        buckets = new ArrayList<>(tasks.splitByPriority());
+    }
+
+    private PriorityBucketList() {
+        buckets = new ArrayList<>(BUCKET_COUNT);
+    }
+
+    /**
+     * Returns the bucket a task belongs in. HIGH priority tasks come first, so the highest ordinal is bucket 0.
+     */
+    private TaskStore bucketOf(Task task) {
+        return buckets.get(BUCKET_COUNT - 1 - task.getPriority().ordinal());
+    }
+
+    /**
+     * Returns the buckets in list order, each holding the tasks of one priority.
+     *
+     * @return Buckets from HIGH to LOW priority
+     */
+    List<TaskStore> getBuckets() {
+        return buckets;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (TaskStore bucket : buckets) {
+            size += bucket.size();
+        }
+        return size;
+    }
+
+    @Override
+    public Task get(int index) {
+        int position = index;
+        for (TaskStore bucket : buckets) {
+            if (position >= 0 && position < bucket.size()) {
+                return bucket.get(position);
+            }
+            position -= bucket.size();
+        }
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+
+    /**
+     * Replaces the task at the given position with a task of the same priority.
+     */
+    @Override
+    public Task set(int index, Task task) {
+        int position = index;
+        for (TaskStore bucket : buckets) {
+            if (position >= 0 && position < bucket.size()) {
+                assert bucket.get(position).getPriority() == task.getPriority() : "Priority should not change";
+                return bucket.set(position, task);
+            }
+            position -= bucket.size();
+        }
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+
+    /**
+     * Returns the task at the given position without locking any bucket, as TaskStore.peek() does.
+     *
+     * @param index Position of the task
+     * @return Task at the position
+     */
+    Task peek(int index) {
+        int position = index;
+        for (TaskStore bucket : buckets) {
+            if (position >= 0 && position < bucket.size()) {
+                return bucket.peek(position);
+            }
+            position -= bucket.size();
+        }
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+
+    /**
+     * Replaces the task at the given position with a marked or unmarked copy of it, without locking its bucket,
+     * as TaskStore.setShared() does.
+     *
+     * @param index Position of the task
+     * @param task Changed copy of the task
+     */
+    void setShared(int index, Task task) {
+        int position = index;
+        for (TaskStore bucket : buckets) {
+            if (position >= 0 && position < bucket.size()) {
+                bucket.setShared(position, task);
+                return;
+            }
+            position -= bucket.size();
+        }
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+
+    /**
+     * Adds a task after every task of the same or higher priority.
+     *
+     * @return true
+     */
+    @Override
+    public boolean add(Task task) {
+        bucketOf(task).add(task);
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Returns the position just past the last task of the given priority, which is where add() puts
+     * the next task of that priority.
+     *
+     * @param priority Priority of the tasks
+     * @return Position after the tasks of the priority
+     */
+    int endOf(Priority priority) {
+        int end = 0;
+        for (int i = 0; i < BUCKET_COUNT - priority.ordinal(); i++) {
+            end += buckets.get(i).size();
+        }
+        return end;
+    }
+
+    /**
+     * Inserts a task at the given position, which must be within the run of tasks of its priority,
+     * such as the position it was removed from.
+     */
+    @Override
+    public void add(int index, Task task) {
+        TaskStore bucket = bucketOf(task);
+        int offset = 0;
+        for (TaskStore other : buckets) {
+            if (other == bucket) {
+                break;
+            }
+            offset += other.size();
+        }
+        if (index < offset || index > offset + bucket.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + " is outside the tasks of priority "
+                    + task.getPriority());
+        }
+        bucket.add(index - offset, task);
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        int position = index;
+        for (TaskStore bucket : buckets) {
+            if (position >= 0 && position < bucket.size()) {
+                modCount++;
+                return bucket.remove(position);
+            }
+            position -= bucket.size();
+        }
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+
+    /**
+     * Finds the position of the task with the given id.
+     *
+     * @param id Id of the task
+     * @return Position of the task, or -1 if no task has that id
+     */
+    int indexOfId(long id) {
+        int offset = 0;
+        for (TaskStore bucket : buckets) {
+            int index = bucket.indexOfId(id);
+            if (index >= 0) {
+                return offset + index;
+            }
+            offset += bucket.size();
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the highest task id in the list, or the highest id passed to raiseMaxId() if that is higher.
+     *
+     * @return Highest id, or 0 if no task has an id
+     */
+    long maxId() {
+        long maxId = 0;
+        for (TaskStore bucket : buckets) {
+            maxId = Math.max(maxId, bucket.maxId());
+        }
+        return maxId;
+    }
+
+    /**
+     * Records that a task with the given id has been in the list, so that maxId() never returns less.
+     *
+     * @param id Id that has been used
+     */
+    void raiseMaxId(long id) {
+        for (TaskStore bucket : buckets) {
+            bucket.raiseMaxId(id);
+        }
+    }
+
+    /**
+     * Creates a copy of this list that later mutations do not affect, without decoding any task.
+     *
+     * @return Copy of the list
+     */
+    PriorityBucketList copy() {
+        PriorityBucketList copy = new PriorityBucketList();
+        for (TaskStore bucket : buckets) {
+            copy.buckets.add(bucket.copy());
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,100 @@
+package dickie.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes what the recovery scan salvaged from a damaged data file:
+ * how many tasks it recovered, which byte ranges it had to skip, and whether the file was cut short.
+ */
+class RecoveryReport {
+    private final long expectedCount;
+    private final List<long[]> skippedRanges = new ArrayList<>();
+    private int recoveredCount;
+    private boolean isTruncated;
+
+    /**
+     * Creates an empty report.
+     *
+     * @param expectedCount Number of tasks the file header lists, or -1 if the header is damaged
+     */
+    RecoveryReport(long expectedCount) {
+        this.expectedCount = expectedCount;
+    }
+
+    void addSkipped(long start, long end) {
+        skippedRanges.add(new long[] {start, end});
+    }
+
+    void setRecoveredCount(int recoveredCount) {
+        this.recoveredCount = recoveredCount;
+    }
+
+    void setTruncated(boolean isTruncated) {
+        this.isTruncated = isTruncated;
+    }
+
+    /**
+     * Returns the number of tasks the recovery scan salvaged.
+     *
+     * @return Number of recovered tasks
+     */
+    public int getRecoveredCount() {
+        return recoveredCount;
+    }
+
+    /**
+     * Returns the number of tasks the file header lists.
+     *
+     * @return Expected number of tasks, or -1 if the header is damaged
+     */
+    public long getExpectedCount() {
+        return expectedCount;
+    }
+
+    /**
+     * Returns the byte ranges that could not be read, each as {start, end} with the end exclusive.
+     *
+     * @return Skipped byte ranges in file order
+     */
+    public List<long[]> getSkippedRanges() {
+        return skippedRanges;
+    }
+
+    /**
+     * Returns whether the file ends partway through a record, as it does after an interrupted write.
+     *
+     * @return true if the file was cut short
+     */
+    public boolean isTruncated() {
+        return isTruncated;
+    }
+
+    /**
+     * Returns whether the header, and with it the journal sequence number, could not be read.
+     *
+     * @return true if the header is damaged
+     */
+    public boolean isHeaderDamaged() {
+        return expectedCount < 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("recovered " + recoveredCount);
+        if (expectedCount >= 0) {
+            sb.append(" of ").append(expectedCount);
+        }
+        sb.append(" tasks");
+        for (long[] range : skippedRanges) {
+            sb.append(", skipped bytes ").append(range[0]).append("-").append(range[1]);
+        }
+        if (isTruncated) {
+            sb.append(", file was cut short");
+        }
+        if (isHeaderDamaged()) {
+            sb.append(", header was damaged");
+        }
+        return sb.toString();
+    }
+}
@@ -2,16 +2,26 @@ package dickie.utils;
 import dickie.exception.DickieException;
 import dickie.task.*;
 
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.BufferedWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
-import java.util.Scanner;
-import java.io.FileWriter;
+import java.util.concurrent.CompletionException;
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Handles all file I/O operations for the dickie application.
@@ -19,20 +29,152 @@ import java.io.IOException;
  * when they are modified.
  */
 public class Storage {
+    private static final String SEQ_HEADER = "#seq ";
+    private static final String NEXT_ID_HEADER = "#next ";
+    private static final String ID_PREFIX = "#";
+    private static final int MIN_CHUNK_SIZE = 1024 * 1024;
+
     private final String filePath;
-    private ArrayList<Task> tasks;  // Store tasks in Storage
+    // File the tasks are moved from if the data file does not exist yet, or null if there is none to migrate
+    private final Path migrationPath;
+    private final Journal journal;
+    private final StorageConfig config;
+    private final StorageFormat format;
+    private final Compactor compactor;
+    private AutoSaver autoSaver;
+    private List<Task> tasks;  // Store tasks in Storage
+    // Id for the next added task read from the data file, or 0 if the file does not have one
+    private long nextId;
 
     /**
-     * Creates a Storage instance with the specified file path.
+     * Creates a Storage instance with the specified file path and default settings.
      *
      * @param filePath The path to the data file
      */
     public Storage(String filePath) {
-        this.filePath = filePath; // Trust that this filePath will be valid since it's hardcoded to be
-                                  // ./data/dickie.txt
+        this(filePath, new StorageConfig());
+    }
+
+    /**
+     * Creates a Storage instance with the specified file path and settings.
+     * A file path ending in ".gz" is always stored compressed, and one ending in ".bin" always in binary,
+     * whatever format the settings ask for.
+     * Binary files have a name of their own: with the binary format, any other path, such as "dickie.txt",
+     * is stored as "dickie.bin" instead, and a file found at the given path when that one does not exist yet
+     * is migrated into it once and then left as it was.
+     * The journal is named after the given path either way, so that it carries over to the migrated file.
+     *
+     * @param filePath The path to the data file
+     * @param config Settings such as the journal compaction thresholds
+     */
+    public Storage(String filePath, StorageConfig config) {
+        // Trust that this filePath will be valid since it's hardcoded to be ./data/dickie.txt
+        this.config = config;
+        if (filePath.endsWith(CompressedTaskFile.EXTENSION)) {
+            this.format = StorageFormat.COMPRESSED;
+        } else if (filePath.endsWith(BinaryTaskFile.EXTENSION)) {
+            this.format = StorageFormat.BINARY;
+        } else {
+            this.format = config.getFormat();
+        }
+        if (format == StorageFormat.BINARY && !filePath.endsWith(BinaryTaskFile.EXTENSION)) {
+            this.filePath = replaceExtension(filePath, BinaryTaskFile.EXTENSION);
+            this.migrationPath = Paths.get(filePath);
+        } else {
+            this.filePath = filePath;
+            this.migrationPath = null;
+        }
+        this.journal = new Journal(Paths.get(filePath + ".journal"));
+        this.compactor = new Compactor(this, journal, config);
         this.tasks = new ArrayList<>();
     }
 
+    /**
+     * Attaches a task list to this storage, so that its mutations are journaled,
+     * the journal is compacted in the background once it grows too large,
+     * and unsaved changes are autosaved in the background.
+     *
+     * @param taskList The TaskList loaded from this storage
+     */
+    public void attach(TaskList taskList) {
+        taskList.setJournal(journal);
+        compactor.start(taskList);
+        autoSaver = new AutoSaver(this, taskList, config);
+        autoSaver.start();
+    }
+
+    /**
+     * Saves any changes the autosaver has not saved yet, and waits until they are on disk.
+     * Should be called before the app exits.
+     */
+    public void flush() {
+        if (autoSaver != null) {
+            autoSaver.flush();
+        }
+    }
+
+    /**
+     * Saves any changes the autosaver has not saved yet, then stops the background autosave and compaction
+     * of the attached task list. Should be called once the task list is no longer used.
+     */
+    public void close() {
+        flush();
+        if (autoSaver != null) {
+            autoSaver.stop();
+        }
+        compactor.stop();
+    }
+
+    /**
+     * Returns the path of the file the tasks are stored in, which is not the given path for binary files
+     * whose given path has another extension.
+     *
+     * @return Path of the data file
+     */
+    public Path getDataPath() {
+        return Paths.get(filePath);
+    }
+
+    /**
+     * Replaces the extension of the file name at the end of a path, or adds one if it has none.
+     */
+    private static String replaceExtension(String filePath, String extension) {
+        int nameStart = Math.max(filePath.lastIndexOf('/'), filePath.lastIndexOf('\\')) + 1;
+        int dot = filePath.lastIndexOf('.');
+        return (dot > nameStart ? filePath.substring(0, dot) : filePath) + extension;
+    }
+
+    /**
+     * Returns the journal that records mutations made since the last save.
+     *
+     * @return Journal kept next to the data file
+     */
+    public Journal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Returns the statistics of the journal compactions run so far.
+     *
+     * @return Compaction metrics
+     */
+    public CompactionMetrics getCompactionMetrics() {
+        return compactor.getMetrics();
+    }
+
+    /**
+     * Returns the current size of the data file.
+     *
+     * @return Size of the data file in bytes, or 0 if it cannot be read
+     */
+    long getFileSize() {
+        try {
+            return Files.size(Paths.get(filePath));
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
     /**
      * Checks if the data file exists at the given path, creating it if it does not.
      *
@@ -54,40 +196,105 @@ public class Storage {
     }
 
     /**
-     * Loads tasks from file specified in filePath when chatbot starts
+     * Loads tasks from file specified in filePath when chatbot starts,
+     * then replays any journaled mutations made after that file was last saved.
+     * The list keeps the next task id saved with the file and raised by the replay, so that a TaskList
+     * created from it never gives out the id of a deleted task again.
      *
-     * @return ArrayList containing all tasks in file in filePath, or empty list if file doesn't exist
+     * @return List containing all tasks in file in filePath, or empty list if file doesn't exist
      */
-    public ArrayList<Task> load() {
-        tasks = new ArrayList<>();
+    public List<Task> load() {
+        // tasks held in columns are read straight into them, so that they are never all on the heap as objects
+        tasks = config.isColumnar() ? ColumnarTaskList.create(config.isOffHeap()) : new ArrayList<>();
+        nextId = 0;
 
         // Check if file path exists, and file exists in filePath
         Path path = Paths.get(filePath);
         // Check if parent directory exists. If not, create new directory.
         ensureFileDirectoryExists(path);
-        // If file does not exist yet, create path
-        boolean existed = ensureFileExists(path);
 
-        // If new file was created, return empty arraylist
-        if (!existed) {
-            return tasks;
+        long snapshotSeq;
+        if (migrationPath != null && !Files.exists(path) && Files.exists(migrationPath)) {
+            snapshotSeq = readSnapshot(migrationPath);
+        } else {
+            // If file does not exist yet, create path
+            boolean existed = ensureFileExists(path);
+            // Only read the file if it existed before, a newly created file is empty
+            snapshotSeq = existed ? readSnapshot(path) : 0;
         }
+        TaskList replayedTasks = new TaskList(tasks);
+        replayedTasks.reserveIds(nextId);
+        journal.replay(replayedTasks, snapshotSeq);
+        replayedTasks.reserveIds(replayedTasks.getNextId());
+        // the replayed list is not shared, so it is handed over as it is rather than as a snapshot
+        return replayedTasks.taskList;
+    }
+
+    /**
+     * Reads the last saved snapshot of tasks from file into the tasks list, whichever format it is in.
+     * A file in a different format from the configured one, such as a text file from an older version,
+     * is rewritten in the configured format once it has been read completely.
+     * A binary file is opened lazily if configured, so its tasks are only decoded when they are used,
+     * unless the tasks are to be held in columns, which are filled one task at a time as the file is read.
+     * If a binary file is damaged, whatever the recovery scan salvages is loaded and written back,
+     * and the damaged file is kept next to it for inspection. If its header is damaged too, the journal is set
+     * aside rather than replayed.
+     * A file read from the migration path is always written to the data file, and left as it was.
+     * The next task id from the header of the file, if it has one, is kept in nextId.
+     *
+     * @param path Path to read, either the data file or the file to migrate from
+     * @return Journal sequence number covered by the snapshot, or 0 if the file has no header
+     */
+    private long readSnapshot(Path path) {
+        long seq = 0;
 
         // Try to read the file
-        try (Scanner s = new Scanner(new File(filePath))) {
-            while (s.hasNextLine()) {
-                try {
-                    String nextLine = s.nextLine().trim();
-                    if (!nextLine.isEmpty()) {
-                        Task task = parseTask(nextLine);
-                        tasks.add(task);
+        try {
+            StorageFormat fileFormat;
+            boolean isOutdated = false;
+            int version = BinaryTaskFile.readVersion(path);
+            if (version > 0) {
+                fileFormat = StorageFormat.BINARY;
+                BinaryTaskFile binaryFile = new BinaryTaskFile();
+                if (config.isLazyLoading() && !config.isColumnar() && version == BinaryTaskFile.VERSION) {
+                    tasks = binaryFile.readLazily(path, config.getLazyCacheSize());
+                } else {
+                    binaryFile.read(path, tasks);
+                }
+                seq = binaryFile.getSeq();
+                nextId = binaryFile.getNextId();
+                isOutdated = version < BinaryTaskFile.VERSION;
+
+                RecoveryReport report = binaryFile.getRecoveryReport();
+                if (report != null) {
+                    System.out.println("Data file is damaged, " + report);
+                    Files.copy(path, Paths.get(path + ".damaged"), StandardCopyOption.REPLACE_EXISTING);
+                    isOutdated = true;
+                    if (report.isHeaderDamaged()) {
+                        setJournalAside();
                     }
-                } catch (DickieException e) {
-                    System.out.println("Skipping invalid line: " + e.getMessage());
                 }
+            } else if (CompressedTaskFile.isCompressed(path)) {
+                fileFormat = StorageFormat.COMPRESSED;
+                TaskFileScanner scanner = CompressedTaskFile.read(path, tasks);
+                seq = scanner.getSeq();
+                nextId = scanner.getNextId();
+            } else {
+                fileFormat = StorageFormat.TEXT;
+                seq = readTextSnapshot(path);
+            }
+            if (!(tasks instanceof LazyTaskList) && TaskList.assignMissingIds(tasks)) {
+                isOutdated = true;
             }
 
-        } catch (FileNotFoundException e) {
+            boolean isMigrated = !path.equals(Paths.get(filePath));
+            if (fileFormat != format || isOutdated || isMigrated) {
+                if (writeSnapshot(tasks, seq, nextId) && isMigrated) {
+                    System.out.println("Moved tasks from " + path + " to " + filePath
+                            + ", the old file is left as it was.");
+                }
+            }
+        } catch (NoSuchFileException e) {
             // This should rarely happen since we checked file.exists()
             System.out.println("File disappeared while reading: " + e.getMessage());
             System.out.println("Starting with empty task list.");
@@ -96,7 +303,50 @@ public class Storage {
             System.out.println("Unexpected error loading file: " + e.getMessage());
         }
 
-        return tasks;
+        return seq;
+    }
+
+    /**
+     * Moves the journal out of the way of the replay, since without the sequence number from the header
+     * there is no telling which of its records the salvaged tasks already include.
+     */
+    private void setJournalAside() {
+        Path asidePath = journal.setAside();
+        if (asidePath != null) {
+            System.out.println("Changes made since the last save were not replayed, and are kept in " + asidePath);
+        }
+    }
+
+    /**
+     * Reads a text data file into the tasks list.
+     * The file is read into a buffer and scanned byte by byte rather than read line by line through a Scanner.
+     * Files above the parallel load threshold are split into chunks that are parsed on all available cores.
+     *
+     * @param path Path to the data file
+     * @return Journal sequence number covered by the snapshot, or 0 if the file has no header
+     * @throws IOException If the file cannot be read
+     */
+    private long readTextSnapshot(Path path) throws IOException {
+        TaskFileScanner scanner = new TaskFileScanner();
+        long size = Files.size(path);
+        if (size >= config.getParallelLoadThreshold()) {
+            scanner.scanFileInParallel(path, tasks, getChunkSize(size));
+        } else {
+            scanner.scanFile(path, tasks);
+        }
+        nextId = scanner.getNextId();
+        return scanner.getSeq();
+    }
+
+    /**
+     * Picks a chunk size that gives every core a few chunks, so that uneven chunks still balance out.
+     *
+     * @param fileSize Size of the data file in bytes
+     * @return Chunk size in bytes
+     */
+    private static int getChunkSize(long fileSize) {
+        long chunks = 4L * Runtime.getRuntime().availableProcessors();
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_CHUNK_SIZE, fileSize / chunks));
     }
 
     /**
@@ -116,9 +366,23 @@ public class Storage {
         }
     }
 
+    /**
+     * Returns the line a task is stored as in the text formats and the journal:
+     * its file string, preceded by "#id | " if it has an id.
+     *
+     * @param task Task to convert
+     * @return Line for the task, without a line break
+     */
+    static String toFileLine(Task task) {
+        if (task.getId() == 0) {
+            return task.toFileString();
+        }
+        return ID_PREFIX + task.getId() + " | " + task.toFileString();
+    }
+
     /**
      * Parses a single line from the data file into a Task object.
-     * Expected formats:
+     * Expected formats, each optionally preceded by "#id | ":
      * - Todo: "T | X | description"
      * - Deadline: "D | X | description | deadline"
      * - Event: "E | X | description | from | to"
@@ -128,30 +392,75 @@ public class Storage {
      * @throws DickieException If the file string has invalid format or unknown task type
      */
     public static Task parseTask(String fileString) throws DickieException {
+        long id = 0;
+        String line = fileString;
+        if (line.startsWith(ID_PREFIX)) {
+            int idEnd = line.indexOf(" | ");
+            id = parseId(line.substring(ID_PREFIX.length(), idEnd < 0 ? line.length() : idEnd));
+            line = idEnd < 0 ? "" : line.substring(idEnd + 3);
+        }
+
+        Task task = parseFields(line);
+        if (id != 0) {
+            task.setId(id);
+        }
+        return task;
+    }
+
+    private static long parseId(String str) throws DickieException {
+        try {
+            long id = Long.parseLong(str.trim());
+            if (id > 0) {
+                return id;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new DickieException("Error in when parsing file: Invalid task id.");
+    }
+
+    private static Task parseFields(String fileString) throws DickieException {
         String[] splitString = fileString.split(" \\| ");
-        assert splitString.length >= 4 : "Corrupted file format: " + fileString;
+        if (splitString.length < 4) {
+            throw new DickieException("Error in when parsing file: Missing fields.");
+        }
         String taskType = splitString[0].trim();
         String description = splitString[2].trim();
         boolean isMarked = Objects.equals(splitString[1], "X");
 
         return switch (taskType) {
             case "T" -> {
-                assert splitString.length == 4 : "Todo must have 4 fields (including priority tag)";
+                requireFieldCount(splitString, 4);
                 yield new Todo(description, strToPriority(splitString[3].trim()), isMarked);
             }
             case "D" -> {
-                assert splitString.length == 5 : "Deadline must have 5 fields";
-                yield new Deadline(description, splitString[3].trim(), strToPriority(splitString[4].trim()), isMarked);
+                requireFieldCount(splitString, 5);
+                yield new Deadline(description, parseDate(splitString[3].trim()), strToPriority(splitString[4].trim()),
+                        isMarked);
             }
             case "E" -> {
-                assert splitString.length == 6 : "Event must have 6 fields";
-                yield new Event(description, splitString[3].trim(), splitString[4].trim(),
+                requireFieldCount(splitString, 6);
+                yield new Event(description, parseDate(splitString[3].trim()), parseDate(splitString[4].trim()),
                         strToPriority(splitString[5].trim()), isMarked);
             }
             default -> throw new DickieException("Error in when parsing file: Invalid task type.");
         };
     }
 
+    private static LocalDate parseDate(String date) throws DickieException {
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new DickieException("Error in when parsing file: Invalid date.");
+        }
+    }
+
+    private static void requireFieldCount(String[] fields, int expected) throws DickieException {
+        if (fields.length != expected) {
+            throw new DickieException("Error in when parsing file: Expected " + expected + " fields.");
+        }
+    }
+
     /**
      * Converts a priority string from the data file into a Priority enum value.
      *
@@ -160,7 +469,6 @@ public class Storage {
      * @throws DickieException If the string does not match a valid priority value
      */
     public static Priority strToPriority(String str) throws DickieException {
-        assert str.equals("LOW") || str.equals("MEDIUM") || str.equals("HIGH");
         return switch (str) {
             case "LOW" -> Priority.LOW;
             case "MEDIUM" -> Priority.MEDIUM;
@@ -171,34 +479,141 @@ public class Storage {
 
     /**
      * Save a TaskList object to the data file.
-     * This method extracts tasks from the TaskList and writes them to disk.
+     * This compacts the journal into a snapshot of the TaskList and waits until it is on disk,
+     * after which the journal records it contains are no longer needed and are dropped.
      *
      * @param taskList The TaskList containing tasks to save
+     * @throws CompletionException If the snapshot could not be written, in which case the journal is kept
      */
     public void save(TaskList taskList) {
-        ArrayList<Task> tasks = taskList.getTasks();
-        saveTasksToFile(tasks);
+        compactor.compact(taskList).join();
     }
 
     /**
-     * Writes tasks to file
+     * Writes tasks to file in the configured format, together with the journal sequence number they include
+     * and the id the next added task is given.
+     * The tasks are written to a uniquely named temporary file next to the data file and forced to disk,
+     * which is then renamed over the data file, so a crash mid-write never leaves a half-written list behind.
+     * The directory is forced to disk after the rename too, so that the rename itself survives a crash.
      *
      * @param tasks The list of tasks to write to the file
+     * @param seq Sequence number of the last journal record reflected in tasks
+     * @param nextId Id the next added task is given, or 0 if unknown
+     * @return true if the file was written successfully
      */
-    private void saveTasksToFile(ArrayList<Task> tasks) {
+    boolean writeSnapshot(List<Task> tasks, long seq, long nextId) {
+        Path path = Paths.get(filePath).toAbsolutePath();
+        Path tempPath;
         try {
-            FileWriter writer = new FileWriter(filePath);
+            tempPath = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        } catch (IOException e) {
+            System.out.println("Error writing to file: " + e.getMessage());
+            return false;
+        }
 
-            for (Task task : tasks) {
-                // Convert task to file format
-                String fileString = task.toFileString();
-                writer.write(fileString + System.lineSeparator());
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            switch (format) {
+            case BINARY:
+                BinaryTaskFile.write(out, tasks, seq, nextId);
+                break;
+            case COMPRESSED:
+                CompressedTaskFile.write(out, tasks, seq, nextId);
+                break;
+            default:
+                Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+                writeText(writer, tasks, seq, nextId);
+                break;
             }
-
-            writer.close();
+            channel.force(true);
         } catch (IOException e) {
             System.out.println("Error writing to file: " + e.getMessage());
+            deleteQuietly(tempPath);
+            return false;
+        }
+
+        try {
+            moveAtomically(tempPath, path);
+            forceDirectory(path.getParent());
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error replacing data file: " + e.getMessage());
+            deleteQuietly(tempPath);
+            return false;
+        }
+    }
+
+    /**
+     * Writes tasks as text, one line per task after the "#seq N" header and, if the next id is known,
+     * the "#next N" header, and flushes the writer.
+     *
+     * @param writer Writer to write to
+     * @param tasks The list of tasks to write
+     * @param seq Sequence number of the last journal record reflected in tasks
+     * @param nextId Id the next added task is given, or 0 to leave the header out
+     * @throws IOException If the tasks cannot be written
+     */
+    static void writeText(Writer writer, List<Task> tasks, long seq, long nextId) throws IOException {
+        writer.write(SEQ_HEADER + seq + System.lineSeparator());
+        if (nextId != 0) {
+            writer.write(NEXT_ID_HEADER + nextId + System.lineSeparator());
+        }
+
+        String lineSeparator = System.lineSeparator();
+        for (Task task : tasks) {
+            // the same line as toFileLine, written in pieces so that the cached file string is not copied
+            if (task.getId() != 0) {
+                writer.write(ID_PREFIX);
+                writer.write(Long.toString(task.getId()));
+                writer.write(" | ");
+            }
+            writer.write(task.toFileString());
+            writer.write(lineSeparator);
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Deletes a leftover temporary file, ignoring any error.
+     *
+     * @param path File to delete
+     */
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // nothing more can be done, the file is only a leftover
+        }
+    }
+
+    /**
+     * Forces a directory to disk, so that a file renamed into it is still there after a crash.
+     * Platforms that cannot open a directory, such as Windows, are left to persist the rename themselves.
+     *
+     * @param directory Directory to force
+     */
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // the rename has happened, it is only not known to be on disk yet
         }
     }
-}
 
+    /**
+     * Renames a file over another one in a single step, falling back to a plain replace
+     * on file systems that do not support atomic moves.
+     *
+     * @param source File to move
+     * @param target File to replace
+     * @throws IOException If the file cannot be moved
+     */
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
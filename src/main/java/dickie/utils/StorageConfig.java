@@ -0,0 +1,268 @@
+package dickie.utils;
+
+import java.time.Duration;
+
+/**
+ * Holds the tunable settings used by Storage and its background workers.
+ * The defaults suit a personal task list, and can be changed before the Storage is created.
+ */
+public class StorageConfig {
+    private long maxJournalBytes = 64 * 1024;
+    private int maxJournalRecords = 500;
+    private Duration maxJournalAge = Duration.ofMinutes(5);
+    private Duration compactionCheckInterval = Duration.ofSeconds(1);
+    private Duration commitWindow = Duration.ofMillis(5);
+    private int autosaveMutations = 50;
+    private Duration autosaveInterval = Duration.ofSeconds(30);
+    private long parallelLoadThreshold = 16L * 1024 * 1024;
+    private StorageFormat format = StorageFormat.BINARY;
+    private boolean isLazyLoading = true;
+    private int lazyCacheSize = 1024;
+    private boolean isColumnar = false;
+    private boolean isOffHeap = false;
+
+    /**
+     * Returns the journal size in bytes above which the journal is compacted into a snapshot.
+     *
+     * @return Journal size threshold in bytes
+     */
+    public long getMaxJournalBytes() {
+        return maxJournalBytes;
+    }
+
+    /**
+     * Sets the journal size in bytes above which the journal is compacted into a snapshot.
+     *
+     * @param maxJournalBytes Journal size threshold in bytes
+     */
+    public void setMaxJournalBytes(long maxJournalBytes) {
+        assert maxJournalBytes > 0 : "Journal size threshold should be positive";
+        this.maxJournalBytes = maxJournalBytes;
+    }
+
+    /**
+     * Returns the number of journal records above which the journal is compacted into a snapshot.
+     *
+     * @return Journal record count threshold
+     */
+    public int getMaxJournalRecords() {
+        return maxJournalRecords;
+    }
+
+    /**
+     * Sets the number of journal records above which the journal is compacted into a snapshot.
+     *
+     * @param maxJournalRecords Journal record count threshold
+     */
+    public void setMaxJournalRecords(int maxJournalRecords) {
+        assert maxJournalRecords > 0 : "Journal record threshold should be positive";
+        this.maxJournalRecords = maxJournalRecords;
+    }
+
+    /**
+     * Returns how long the oldest journal record may wait before the journal is compacted.
+     *
+     * @return Journal age threshold
+     */
+    public Duration getMaxJournalAge() {
+        return maxJournalAge;
+    }
+
+    /**
+     * Sets how long the oldest journal record may wait before the journal is compacted.
+     *
+     * @param maxJournalAge Journal age threshold
+     */
+    public void setMaxJournalAge(Duration maxJournalAge) {
+        this.maxJournalAge = maxJournalAge;
+    }
+
+    /**
+     * Returns how often the compaction and autosave thresholds are checked in the background.
+     *
+     * @return Interval between threshold checks
+     */
+    public Duration getCompactionCheckInterval() {
+        return compactionCheckInterval;
+    }
+
+    /**
+     * Sets how often the compaction and autosave thresholds are checked in the background.
+     *
+     * @param compactionCheckInterval Interval between threshold checks
+     */
+    public void setCompactionCheckInterval(Duration compactionCheckInterval) {
+        this.compactionCheckInterval = compactionCheckInterval;
+    }
+
+    /**
+     * Returns how long a save request waits for other save requests to share its write with.
+     *
+     * @return Group commit window
+     */
+    public Duration getCommitWindow() {
+        return commitWindow;
+    }
+
+    /**
+     * Sets how long a save request waits for other save requests to share its write with.
+     * A zero window still coalesces requests that arrive while a write is queued.
+     *
+     * @param commitWindow Group commit window
+     */
+    public void setCommitWindow(Duration commitWindow) {
+        this.commitWindow = commitWindow;
+    }
+
+    /**
+     * Returns the number of unsaved mutations that triggers an autosave.
+     *
+     * @return Autosave mutation threshold
+     */
+    public int getAutosaveMutations() {
+        return autosaveMutations;
+    }
+
+    /**
+     * Sets the number of unsaved mutations that triggers an autosave.
+     *
+     * @param autosaveMutations Autosave mutation threshold
+     */
+    public void setAutosaveMutations(int autosaveMutations) {
+        assert autosaveMutations > 0 : "Autosave mutation threshold should be positive";
+        this.autosaveMutations = autosaveMutations;
+    }
+
+    /**
+     * Returns how long unsaved mutations may wait before they are autosaved.
+     *
+     * @return Autosave interval
+     */
+    public Duration getAutosaveInterval() {
+        return autosaveInterval;
+    }
+
+    /**
+     * Sets how long unsaved mutations may wait before they are autosaved.
+     *
+     * @param autosaveInterval Autosave interval
+     */
+    public void setAutosaveInterval(Duration autosaveInterval) {
+        this.autosaveInterval = autosaveInterval;
+    }
+
+    /**
+     * Returns the data file size in bytes from which the file is parsed in parallel on startup.
+     *
+     * @return Parallel load threshold in bytes
+     */
+    public long getParallelLoadThreshold() {
+        return parallelLoadThreshold;
+    }
+
+    /**
+     * Sets the data file size in bytes from which the file is parsed in parallel on startup.
+     *
+     * @param parallelLoadThreshold Parallel load threshold in bytes
+     */
+    public void setParallelLoadThreshold(long parallelLoadThreshold) {
+        this.parallelLoadThreshold = parallelLoadThreshold;
+    }
+
+    /**
+     * Returns the format the data file is written in.
+     * A data file found in the other format on load is rewritten in this one.
+     *
+     * @return Format of the data file
+     */
+    public StorageFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Sets the format the data file is written in.
+     * A data file path ending in ".gz" is written compressed regardless of this setting.
+     *
+     * @param format Format of the data file
+     */
+    public void setFormat(StorageFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Returns whether a binary data file is loaded lazily, decoding each task only when it is first used.
+     *
+     * @return true if binary data files are loaded lazily
+     */
+    public boolean isLazyLoading() {
+        return isLazyLoading;
+    }
+
+    /**
+     * Sets whether a binary data file is loaded lazily, decoding each task only when it is first used.
+     *
+     * @param isLazyLoading true to load binary data files lazily
+     */
+    public void setLazyLoading(boolean isLazyLoading) {
+        this.isLazyLoading = isLazyLoading;
+    }
+
+    /**
+     * Returns the maximum number of decoded tasks kept in memory by a lazily loaded task list.
+     *
+     * @return Maximum number of cached tasks
+     */
+    public int getLazyCacheSize() {
+        return lazyCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of decoded tasks kept in memory by a lazily loaded task list.
+     * Tasks that have been added or changed since the load are always kept.
+     *
+     * @param lazyCacheSize Maximum number of cached tasks
+     */
+    public void setLazyCacheSize(int lazyCacheSize) {
+        assert lazyCacheSize >= 0 : "Cache size should not be negative";
+        this.lazyCacheSize = lazyCacheSize;
+    }
+
+    /**
+     * Returns whether loaded tasks are held in primitive columns instead of as one object per task.
+     *
+     * @return true if tasks are held in columns
+     */
+    public boolean isColumnar() {
+        return isColumnar;
+    }
+
+    /**
+     * Sets whether loaded tasks are held in primitive columns instead of as one object per task,
+     * which takes less memory for very large lists but builds a Task every time one is read.
+     * A columnar list is read in full when loaded, so lazy loading does not apply to it.
+     *
+     * @param isColumnar true to hold tasks in columns
+     */
+    public void setColumnar(boolean isColumnar) {
+        this.isColumnar = isColumnar;
+    }
+
+    /**
+     * Returns whether columnar tasks are kept off the heap.
+     *
+     * @return true if columns are kept in direct buffers
+     */
+    public boolean isOffHeap() {
+        return isOffHeap;
+    }
+
+    /**
+     * Sets whether columnar tasks are kept in direct buffers outside the heap, where a very large list
+     * adds almost nothing for the garbage collector to trace. Only applies when tasks are held in columns.
+     *
+     * @param isOffHeap true to keep columns off the heap
+     */
+    public void setOffHeap(boolean isOffHeap) {
+        this.isOffHeap = isOffHeap;
+    }
+}
@@ -0,0 +1,8 @@
+package dickie.utils;
+
+/**
+ * Represents the formats the data file can be written in
+ */
+public enum StorageFormat {
+    TEXT, BINARY, COMPRESSED
+}
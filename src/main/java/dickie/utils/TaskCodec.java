@@ -0,0 +1,35 @@
+package dickie.utils;
+
+import dickie.task.Priority;
+import dickie.task.Task;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encodes and decodes the fields specific to one type of task in the binary data file.
+ * The fields every task has, its type, status, priority and description, are written by BinaryTaskFile.
+ */
+interface TaskCodec {
+    /**
+     * Writes the fields specific to the task's type.
+     *
+     * @param task Task to write
+     * @param out Output to write to
+     * @throws IOException If the fields cannot be written
+     */
+    void writeFields(Task task, DataOutput out) throws IOException;
+
+    /**
+     * Reads the fields specific to this type of task and creates the task.
+     *
+     * @param description Description of the task
+     * @param priority Priority of the task
+     * @param isDone Whether the task is done
+     * @param in Input to read from
+     * @return The decoded Task
+     * @throws IOException If the fields cannot be read
+     */
+    Task readTask(String description, Priority priority, boolean isDone, DataInput in) throws IOException;
+}
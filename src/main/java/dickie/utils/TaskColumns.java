@@ -0,0 +1,103 @@
+package dickie.utils;
+
+import java.util.BitSet;
+
+/**
+ * The storage behind a ColumnarTaskList: the fixed size fields of each slot, and an arena of UTF-8 descriptions
+ * that each slot points into. ColumnarTaskList decides which slots are live and what goes in them,
+ * so an implementation only reads, writes and moves slots, and chooses where the bytes are kept.
+ */
+abstract class TaskColumns {
+    /**
+     * Returns the number of slots there is room for.
+     *
+     * @return Number of slots
+     */
+    abstract int capacity();
+
+    /**
+     * Makes room for at least the given number of slots, keeping the ones already written.
+     *
+     * @param capacity Number of slots
+     */
+    abstract void grow(int capacity);
+
+    /**
+     * Creates empty columns of the same kind as these.
+     *
+     * @param capacity Number of slots to make room for
+     * @return New columns
+     */
+    abstract TaskColumns create(int capacity);
+
+    abstract int type(int slot);
+
+    abstract int priority(int slot);
+
+    abstract boolean isDone(int slot);
+
+    abstract long id(int slot);
+
+    /**
+     * Returns the day a deadline is due or an event starts, as an epoch day.
+     */
+    abstract int firstDay(int slot);
+
+    /**
+     * Returns the day an event ends, as an epoch day.
+     */
+    abstract int lastDay(int slot);
+
+    /**
+     * Writes every fixed size field of a slot.
+     */
+    abstract void setFields(int slot, int type, int priority, boolean isDone, long id, int firstDay, int lastDay);
+
+    /**
+     * Writes whether a slot is done without touching the bytes of any other slot, so that different slots
+     * can be written by different threads at once.
+     */
+    abstract void setDone(int slot, boolean isDone);
+
+    /**
+     * Copies every field of a slot, including where its description is, to another slot.
+     */
+    abstract void move(int from, int to);
+
+    /**
+     * Returns the description of a slot, decoded from the arena.
+     */
+    abstract String description(int slot);
+
+    /**
+     * Returns the UTF-8 bytes of the description of a slot.
+     */
+    abstract byte[] descriptionBytes(int slot);
+
+    abstract int descriptionLength(int slot);
+
+    /**
+     * Checks whether the description of a slot is made of exactly the given bytes.
+     */
+    abstract boolean hasDescription(int slot, byte[] description);
+
+    /**
+     * Appends a description to the arena and points the slot at it.
+     */
+    abstract void setDescription(int slot, byte[] description);
+
+    /**
+     * Returns the number of bytes written to the arena, including descriptions no longer used.
+     *
+     * @return Bytes used by the arena
+     */
+    abstract int arenaBytes();
+
+    /**
+     * Rebuilds the arena with only the descriptions of the given slots that are not removed.
+     *
+     * @param removed Slots whose descriptions are no longer needed
+     * @param slotCount Number of slots in use
+     */
+    abstract void compactArena(BitSet removed, int slotCount);
+}
@@ -0,0 +1,500 @@
+package dickie.utils;
+
+import dickie.exception.DickieException;
+import dickie.task.Deadline;
+import dickie.task.Event;
+import dickie.task.Priority;
+import dickie.task.Task;
+import dickie.task.Todo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Reads the data file through a FileChannel into a reused buffer and scans the bytes for line breaks and
+ * " | " delimiters, instead of going through a Scanner and a regex split for every line.
+ * The file is read rather than memory-mapped, since a mapping stays open until it is garbage collected,
+ * and an open mapping stops the file from being replaced on Windows, as Storage does right after a load
+ * that migrates the file.
+ * Type, status and priority are decoded straight from the bytes, so only the description
+ * and the dates of each task are turned into Strings.
+ * Accepts exactly the lines that Storage.parseTask accepts, plus the "#seq N" and "#next N" snapshot headers.
+ * Large files can also be split into line-aligned chunks that are scanned in parallel.
+ */
+class TaskFileScanner {
+    private static final int READ_BUFFER_SIZE = 1 << 20; // read 1 MiB at a time
+    private static final int WINDOW_SIZE = 64 << 20; // read 64 MiB at a time when scanning in parallel
+    private static final byte[] SEQ_HEADER = "#seq ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NEXT_ID_HEADER = "#next ".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_FIELDS = 7; // an id and the six fields of an event
+
+    private final int[] fieldStarts = new int[MAX_FIELDS];
+    private final int[] fieldEnds = new int[MAX_FIELDS];
+    private byte[] scratch = new byte[256];
+    private long seq;
+    private long nextId;
+
+    /**
+     * Returns the sequence number from the "#seq N" header, if one has been scanned.
+     *
+     * @return Journal sequence number covered by the file, or 0 if it has no header
+     */
+    long getSeq() {
+        return seq;
+    }
+
+    /**
+     * Returns the next task id from the "#next N" header, if one has been scanned.
+     *
+     * @return Id the next added task is given, or 0 if the file has no such header
+     */
+    long getNextId() {
+        return nextId;
+    }
+
+    /**
+     * Scans the whole file at the given path, adding every valid task to the list in file order.
+     *
+     * @param path Path to the data file
+     * @param tasks List to add the tasks to
+     * @throws IOException If the file cannot be read
+     */
+    void scanFile(Path path, List<Task> tasks) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            scanChannel(channel, tasks, (int) Math.max(1, Math.min(channel.size(), READ_BUFFER_SIZE)));
+        }
+    }
+
+    /**
+     * Scans a stream of text in the data file format, such as a decompressed file, one buffer at a time.
+     * The buffer only grows if a single line does not fit in it.
+     *
+     * @param in Stream to read from
+     * @param tasks List to add the tasks to
+     * @param bufferSize Initial size of the buffer in bytes
+     * @throws IOException If the stream cannot be read
+     */
+    void scanStream(InputStream in, List<Task> tasks, int bufferSize) throws IOException {
+        scanChannel(Channels.newChannel(in), tasks, bufferSize);
+    }
+
+    private void scanChannel(ReadableByteChannel channel, List<Task> tasks, int bufferSize) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        boolean isEnd = false;
+        while (!isEnd) {
+            isEnd = channel.read(buffer) < 0;
+            int scanned = scan(buffer, 0, buffer.position(), isEnd, tasks);
+            buffer = keepUnscanned(buffer, scanned);
+        }
+    }
+
+    /**
+     * Scans the whole file at the given path by reading it one window at a time and splitting each window into
+     * line-aligned chunks of about chunkSize bytes, which are scanned in parallel on the common ForkJoinPool.
+     * The chunks are made smaller if that is needed to give every core a few chunks of each window.
+     * The tasks of each chunk are added to the list in file order, so the result is the same as scanFile.
+     *
+     * @param path Path to the data file
+     * @param tasks List to add the tasks to
+     * @param chunkSize Approximate number of bytes scanned by each parallel task
+     * @throws IOException If the file cannot be read
+     */
+    void scanFileInParallel(Path path, List<Task> tasks, int chunkSize) throws IOException {
+        int windowChunkSize = Math.min(chunkSize, WINDOW_SIZE / (4 * Runtime.getRuntime().availableProcessors()));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(1, Math.min(channel.size(), WINDOW_SIZE)));
+            boolean isEnd = false;
+            while (!isEnd) {
+                isEnd = channel.read(buffer) < 0;
+                int windowEnd = isEnd ? buffer.position() : lastLineStart(buffer, buffer.position());
+                scanChunks(buffer, windowEnd, windowChunkSize, tasks);
+                buffer = keepUnscanned(buffer, windowEnd);
+            }
+        }
+    }
+
+    /**
+     * Moves the bytes after the scanned ones to the start of the buffer, ready for the next read,
+     * growing the buffer if a single line fills it.
+     *
+     * @return Buffer to read into next, positioned after the unscanned bytes
+     */
+    private static ByteBuffer keepUnscanned(ByteBuffer buffer, int scanned) {
+        buffer.limit(buffer.position()).position(scanned);
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            return ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+        }
+        return buffer;
+    }
+
+    /**
+     * Splits the first end bytes of the buffer into line-aligned chunks and scans them in parallel.
+     */
+    private void scanChunks(ByteBuffer buffer, int end, int chunkSize, List<Task> tasks) throws IOException {
+        List<Callable<TaskFileScanner>> chunks = new ArrayList<>();
+        List<List<Task>> chunkTasks = new ArrayList<>();
+        int chunkStart = 0;
+        while (chunkStart < end) {
+            int chunkEnd = end - chunkStart <= chunkSize ? end : nextLineStart(buffer, chunkStart + chunkSize, end);
+            if (chunkEnd == 0) {
+                chunkEnd = end;
+            }
+            List<Task> chunkResult = new ArrayList<>();
+            ByteBuffer chunkBuffer = buffer.duplicate();
+            int start = chunkStart;
+            int stop = chunkEnd;
+            chunkTasks.add(chunkResult);
+            chunks.add(() -> {
+                TaskFileScanner scanner = new TaskFileScanner();
+                scanner.scan(chunkBuffer, start, stop, true, chunkResult);
+                return scanner;
+            });
+            chunkStart = chunkEnd;
+        }
+
+        try {
+            for (Future<TaskFileScanner> chunk : ForkJoinPool.commonPool().invokeAll(chunks)) {
+                TaskFileScanner scanner = chunk.get();
+                seq = Math.max(seq, scanner.getSeq());
+                nextId = Math.max(nextId, scanner.getNextId());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading file", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error loading file chunk: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        for (List<Task> chunkResult : chunkTasks) {
+            tasks.addAll(chunkResult);
+        }
+    }
+
+    /**
+     * Finds the start of the line after the first line break at or after from.
+     *
+     * @return Index just past the first line break in [from, end), or 0 if there is none
+     */
+    private static int nextLineStart(ByteBuffer buffer, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Finds the start of the line after the last line break before end.
+     *
+     * @return Index just past the last line break in [0, end), or 0 if there is none
+     */
+    private static int lastLineStart(ByteBuffer buffer, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Scans the lines in the byte range [start, end) of the buffer, adding every valid task to the list.
+     * A line that is cut off at the end of the range is left unscanned unless isLastRange is set.
+     *
+     * @param buffer Buffer holding the file contents
+     * @param start Index of the first byte of a line
+     * @param end Index just past the last byte to scan
+     * @param isLastRange Whether the range ends at the end of the file
+     * @param tasks List to add the tasks to
+     * @return Number of bytes scanned, which ends just after the last complete line
+     */
+    int scan(ByteBuffer buffer, int start, int end, boolean isLastRange, List<Task> tasks) {
+        int lineStart = start;
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == '\n') {
+                scanLine(buffer, lineStart, i, tasks);
+                lineStart = i + 1;
+            }
+        }
+        if (isLastRange && lineStart < end) {
+            scanLine(buffer, lineStart, end, tasks);
+            lineStart = end;
+        }
+        return lineStart - start;
+    }
+
+    /**
+     * Parses a single line, printing a message and skipping it if it is invalid.
+     *
+     * @param buffer Buffer holding the file contents
+     * @param start Index of the first byte of the line
+     * @param end Index of the line break, or of the end of the file
+     * @param tasks List to add the task to
+     */
+    private void scanLine(ByteBuffer buffer, int start, int end, List<Task> tasks) {
+        int lineStart = skipSpaces(buffer, start, end);
+        int lineEnd = trimSpaces(buffer, lineStart, end);
+        if (lineStart == lineEnd) {
+            return;
+        }
+
+        try {
+            if (startsWith(buffer, lineStart, lineEnd, SEQ_HEADER)) {
+                seq = parseLong(buffer, lineStart + SEQ_HEADER.length, lineEnd);
+            } else if (startsWith(buffer, lineStart, lineEnd, NEXT_ID_HEADER)) {
+                nextId = parseLong(buffer, lineStart + NEXT_ID_HEADER.length, lineEnd);
+            } else {
+                tasks.add(parseTask(buffer, lineStart, lineEnd));
+            }
+        } catch (DickieException e) {
+            System.out.println("Skipping invalid line: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses a trimmed line into a Task, splitting it into fields at every " | ".
+     *
+     * @param buffer Buffer holding the file contents
+     * @param start Index of the first byte of the line
+     * @param end Index just past the last byte of the line
+     * @return The parsed Task
+     * @throws DickieException If the line has an unknown task type or the wrong number of fields
+     */
+    private Task parseTask(ByteBuffer buffer, int start, int end) throws DickieException {
+        int fieldCount = splitFields(buffer, start, end);
+        // an optional "#id" field comes before the task's own fields
+        long id = 0;
+        int first = 0;
+        if (fieldLength(0) > 0 && buffer.get(fieldStarts[0]) == '#') {
+            id = parseId(buffer, fieldStarts[0] + 1, fieldEnds[0]);
+            first = 1;
+        }
+        if (fieldCount - first < 4) {
+            throw new DickieException("Error in when parsing file: Missing fields.");
+        }
+
+        byte taskType = fieldLength(first) == 1 ? buffer.get(fieldStarts[first]) : 0;
+        boolean isMarked = fieldLength(first + 1) == 1 && buffer.get(fieldStarts[first + 1]) == 'X';
+        String description = decodeField(buffer, first + 2);
+
+        Task task;
+        switch (taskType) {
+        case 'T':
+            requireFieldCount(fieldCount - first, 4);
+            task = new Todo(description, parsePriority(buffer, first + 3), isMarked);
+            break;
+        case 'D':
+            requireFieldCount(fieldCount - first, 5);
+            task = new Deadline(description, decodeDate(buffer, first + 3), parsePriority(buffer, first + 4),
+                    isMarked);
+            break;
+        case 'E':
+            requireFieldCount(fieldCount - first, 6);
+            task = new Event(description, decodeDate(buffer, first + 3), decodeDate(buffer, first + 4),
+                    parsePriority(buffer, first + 5), isMarked);
+            break;
+        default:
+            throw new DickieException("Error in when parsing file: Invalid task type.");
+        }
+        if (id != 0) {
+            task.setId(id);
+        }
+        return task;
+    }
+
+    private static long parseId(ByteBuffer buffer, int start, int end) throws DickieException {
+        if (start == end || end - start > 18) {
+            throw new DickieException("Error in when parsing file: Invalid task id.");
+        }
+        long id = 0;
+        for (int i = start; i < end; i++) {
+            byte digit = buffer.get(i);
+            if (digit < '0' || digit > '9') {
+                throw new DickieException("Error in when parsing file: Invalid task id.");
+            }
+            id = id * 10 + (digit - '0');
+        }
+        if (id == 0) {
+            throw new DickieException("Error in when parsing file: Invalid task id.");
+        }
+        return id;
+    }
+
+    /**
+     * Records the trimmed start and end of every field in the line.
+     *
+     * @return Number of fields found
+     * @throws DickieException If the line has more fields than any task type
+     */
+    private int splitFields(ByteBuffer buffer, int start, int end) throws DickieException {
+        int fieldCount = 0;
+        int fieldStart = start;
+        int i = start;
+        while (i <= end - 3) {
+            if (buffer.get(i) == ' ' && buffer.get(i + 1) == '|' && buffer.get(i + 2) == ' ') {
+                addField(buffer, fieldCount++, fieldStart, i);
+                i += 3;
+                fieldStart = i;
+            } else {
+                i++;
+            }
+        }
+        addField(buffer, fieldCount++, fieldStart, end);
+        return fieldCount;
+    }
+
+    private void addField(ByteBuffer buffer, int index, int start, int end) throws DickieException {
+        if (index >= MAX_FIELDS) {
+            throw new DickieException("Error in when parsing file: Too many fields.");
+        }
+        int fieldStart = skipSpaces(buffer, start, end);
+        fieldStarts[index] = fieldStart;
+        fieldEnds[index] = trimSpaces(buffer, fieldStart, end);
+    }
+
+    private int fieldLength(int index) {
+        return fieldEnds[index] - fieldStarts[index];
+    }
+
+    private static void requireFieldCount(int fieldCount, int expected) throws DickieException {
+        if (fieldCount != expected) {
+            throw new DickieException("Error in when parsing file: Expected " + expected + " fields.");
+        }
+    }
+
+    /**
+     * Decodes a field as UTF-8 text.
+     */
+    private String decodeField(ByteBuffer buffer, int index) {
+        int length = fieldLength(index);
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(fieldStarts[index], scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes a field as a date, so that tasks with dates the app cannot display or store are skipped.
+     * The digits are checked straight from the bytes, since LocalDate.parse costs more than the rest of the line.
+     *
+     * @throws DickieException If the field is not a date in YYYY-MM-DD format
+     */
+    private LocalDate decodeDate(ByteBuffer buffer, int index) throws DickieException {
+        int start = fieldStarts[index];
+        if (fieldLength(index) != 10 || buffer.get(start + 4) != '-' || buffer.get(start + 7) != '-') {
+            throw new DickieException("Error in when parsing file: Invalid date.");
+        }
+        try {
+            return LocalDate.of(parseDigits(buffer, start, start + 4), parseDigits(buffer, start + 5, start + 7),
+                    parseDigits(buffer, start + 8, start + 10));
+        } catch (DateTimeException e) {
+            throw new DickieException("Error in when parsing file: Invalid date.");
+        }
+    }
+
+    private static int parseDigits(ByteBuffer buffer, int start, int end) throws DickieException {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                throw new DickieException("Error in when parsing file: Invalid date.");
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Matches a field against the priority names without creating a String.
+     *
+     * @throws DickieException If the field is not LOW, MEDIUM or HIGH
+     */
+    private Priority parsePriority(ByteBuffer buffer, int index) throws DickieException {
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        for (Priority priority : Priority.values()) {
+            if (equalsAscii(buffer, start, end, priority.name())) {
+                return priority;
+            }
+        }
+        throw new DickieException("invalid priority syntax");
+    }
+
+    private static boolean equalsAscii(ByteBuffer buffer, int start, int end, String text) {
+        if (end - start != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (buffer.get(start + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(start + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseLong(ByteBuffer buffer, int start, int end) throws DickieException {
+        int digitsStart = skipSpaces(buffer, start, end);
+        if (digitsStart == end || end - digitsStart > 18) {
+            throw new DickieException("Error in when parsing file: Invalid header.");
+        }
+        long value = 0;
+        for (int i = digitsStart; i < end; i++) {
+            byte digit = buffer.get(i);
+            if (digit < '0' || digit > '9') {
+                throw new DickieException("Error in when parsing file: Invalid header.");
+            }
+            value = value * 10 + (digit - '0');
+        }
+        return value;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static int skipSpaces(ByteBuffer buffer, int start, int end) {
+        int i = start;
+        while (i < end && isSpace(buffer.get(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int trimSpaces(ByteBuffer buffer, int start, int end) {
+        int i = end;
+        while (i > start && isSpace(buffer.get(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+}
@@ -1,24 +1,150 @@
 package dickie.utils;
 
+import dickie.task.Deadline;
+import dickie.task.Event;
 import dickie.task.Task;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.stream.Collectors;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.UnaryOperator;
 
 /**
  * Manages a collection of Task objects in memory.
  * Provides operations to add, remove, mark, unmark, and list tasks.
+ * Tasks are kept HIGH priority first. The list is kept in the order it was given in until the first add,
+ * when it is moved into a PriorityBucketList, so that each add only appends to its priority's bucket.
+ * The tasks are always held in TaskStores, either LazyTaskLists or ColumnarTaskLists, which find and remove
+ * a task by its number in O(log n).
+ * Every added task is given an id one higher than any id in the list, like a database row id, so that
+ * "#id" keeps referring to the same task while its number changes. Journal records keep using numbers,
+ * since replaying them in order reaches the same numbers.
+ * find() narrows its search with a TokenIndex of the words of every description, built on the first search
+ * and kept up to date by every add and delete after that. Searches by date use a DateIndex in the same way,
+ * and searches for clashing events an IntervalTree.
+ * Changes to the structure of the list, such as adding and deleting, hold the structure lock exclusively,
+ * so there is a single writer at a time and a background compaction sees the list and the journal in step.
+ * Marking and unmarking only change one task, so they share the structure lock, which keeps every number
+ * pointing at the same task, and are ordered by a lock striped by task id, so that changes to different tasks
+ * do not wait for each other. They read and replace the task through TaskStore.peek() and setShared(),
+ * which take no lock of the store, and queue their journal records without locking the journal.
+ * Searches share the structure lock too, once the index they use has been built.
+ * Readers of the whole list, such as listing and saving, get a snapshot from getTasks() instead of the live
+ * list: a PersistentTaskList, which every change replaces in O(log n) with a new one sharing all it did not
+ * touch, so that readers take no lock of the list once the first snapshot has been taken. A change to the
+ * structure makes its change to the snapshot at once. A mark or unmark only queues its change under the task
+ * lock it holds anyway, and the next reader, or the next change to the structure, makes every queued change
+ * to the snapshot, so that changes to different tasks never wait for each other to replace the snapshot.
+ * The snapshot is made again from a copy of the tasks once changes have split it into too many pieces.
+ * A task is never changed in place once it is in the list, since a snapshot may share it; mark() and
+ * unmark() change a copy and put the copy in its place. A Task read from a TaskStore may be built on demand,
+ * so that copy is passed back to the store either way.
+ * Several changes can be made as one transaction between begin() and commit(), which rollback() undoes
+ * from an undo log of the changes made.
  */
 public class TaskList {
-    ArrayList<Task> taskList;
+    // Deleting more than 1 / SCAN_FRACTION of the tasks rebuilds the indexes rather than updating them
+    private static final int SCAN_FRACTION = 8;
+    // Number of locks that changes to single tasks are spread over, a power of two
+    private static final int TASK_LOCK_STRIPES = 64;
+    // The snapshot is made again once it has more pieces than this, plus one per SNAPSHOT_TASKS_PER_PIECE tasks
+    private static final int MIN_SNAPSHOT_PIECES = 64;
+    private static final int SNAPSHOT_TASKS_PER_PIECE = 16;
+    // A mark or unmark makes the queued changes to the snapshot itself once its task lock has more than this
+    private static final int MAX_UNPUBLISHED_MARKS = 64;
+
+    List<Task> taskList;
+    private Journal journal;
+    // Shared by changes to single tasks and by searches, held exclusively by changes to the structure
+    // and while building an index
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TaskLock[] taskLocks = new TaskLock[TASK_LOCK_STRIPES];
+    // Counted per thread, so that changes to different tasks do not all update one counter
+    private final LongAdder version = new LongAdder();
+    private volatile int size;
+    // Tasks as of the last change outside a transaction but for queued marks, or null until they are first read;
+    // only replaced while holding publishLock
+    private volatile PersistentTaskList snapshot;
+    private final Object publishLock = new Object();
+    // Tasks as of the last change of the open transaction, which commit() publishes, or null if not read yet
+    private PersistentTaskList transactionSnapshot;
+    // Id for the next added task, or 0 until the ids in the list have been read
+    private long nextId;
+    // Undoes each change of the open transaction, in the order they were made, or null outside a transaction
+    private ArrayList<Runnable> undoLog;
+    private long nextIdAtBegin;
+    // Words of every description, or null until the first search
+    private TokenIndex searchIndex;
+    // Dates of every deadline and event, or null until the first search by date
+    private DateIndex dateIndex;
+    // Date ranges of every event, or null until the first search for clashes
+    private IntervalTree eventIndex;
 
     /**
      * Creates a TaskList with the provided list of tasks.
      *
      * @param taskList Initial list of tasks
      */
-    public TaskList(ArrayList<Task> taskList) {
-        this.taskList = taskList;
+    public TaskList(List<Task> taskList) {
+        if (taskList instanceof TaskStore || taskList instanceof PriorityBucketList) {
+            this.taskList = taskList;
+        } else {
+            assignMissingIds(taskList);
+            this.taskList = LazyTaskList.of(taskList);
+        }
+        this.size = this.taskList.size();
+        for (int i = 0; i < TASK_LOCK_STRIPES; i++) {
+            taskLocks[i] = new TaskLock();
+        }
+    }
+
+    /**
+     * Gives an id to every task that does not have one yet, numbering them after the highest id.
+     * Each task given an id is set back into the list, for lists such as a ColumnarTaskList
+     * that build a new task on every get().
+     *
+     * @param tasks Tasks to give ids to
+     * @return true if any task was given an id
+     */
+    static boolean assignMissingIds(List<Task> tasks) {
+        long maxId = 0;
+        for (Task task : tasks) {
+            maxId = Math.max(maxId, task.getId());
+        }
+        boolean isAssigned = false;
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            if (task.getId() == 0) {
+                task.setId(++maxId);
+                tasks.set(i, task);
+                isAssigned = true;
+            }
+        }
+        return isAssigned;
+    }
+
+    /**
+     * Returns the number of mutations made to this task list since it was created.
+     * Comparing versions tells whether the list has changed since it was last saved.
+     *
+     * @return Version counter of the task list
+     */
+    public long getVersion() {
+        return version.sum();
+    }
+
+    /**
+     * Attaches a journal that every subsequent mutation is recorded to.
+     *
+     * @param journal Journal to record mutations to
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
     }
 
     /**
@@ -27,7 +153,7 @@ public class TaskList {
      * @return size of tasklist
      */
     public int getSize() {
-        return taskList.size();
+        return size;
     }
 
     /**
@@ -35,69 +161,990 @@ public class TaskList {
      *
      * @param task Task to be added
      */
-    public void addTask(Task task){
-        taskList.add(task);
-        Collections.sort(taskList);
+    public void addTask(Task task) {
+        lock.writeLock().lock();
+        try {
+            if (!(taskList instanceof PriorityBucketList)) {
+                TaskStore unsortedTasks = (TaskStore) taskList;
+                // the buckets are copies, so rolling back puts the tasks back in their old order as well
+                taskList = new PriorityBucketList(unsortedTasks);
+                if (undoLog != null) {
+                    undoLog.add(() -> taskList = unsortedTasks);
+                }
+                // the tasks are in priority order now, which a snapshot of them in their old order is not
+                publishAll(0);
+            }
+            if (nextId == 0) {
+                nextId = maxId() + 1;
+            }
+            if (task.getId() == 0) {
+                task.setId(nextId);
+            }
+            nextId = Math.max(nextId, task.getId() + 1);
+            int taskPos = ((PriorityBucketList) taskList).endOf(task.getPriority());
+            taskList.add(task);
+            index(task);
+            size++;
+            if (undoLog != null) {
+                undoLog.add(() -> removeAt(taskPos));
+            }
+            publish(1, tasks -> tasks.withAdded(taskPos, task));
+            if (journal != null) {
+                journal.recordAdd(task);
+            }
+            compactSnapshot();
+        } finally {
+            lock.writeLock().unlock();
+            flushJournal();
+        }
+    }
+
+    /**
+     * Returns the id the next added task is given, which is above the id of every task the list has held,
+     * including deleted tasks, so that saving it keeps their ids from being given out again.
+     *
+     * @return Next task id
+     */
+    public long getNextId() {
+        lock.readLock().lock();
+        try {
+            return nextId != 0 ? nextId : maxId() + 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keeps every added task from being given an id below the given one, such as the next id saved with
+     * the tasks. The list of tasks keeps it too, so a TaskList later created from it does the same.
+     *
+     * @param nextId Lowest id the next added task may be given
+     */
+    public void reserveIds(long nextId) {
+        lock.writeLock().lock();
+        try {
+            if (taskList instanceof PriorityBucketList) {
+                ((PriorityBucketList) taskList).raiseMaxId(nextId - 1);
+            } else {
+                ((TaskStore) taskList).raiseMaxId(nextId - 1);
+            }
+            if (this.nextId != 0) {
+                this.nextId = Math.max(this.nextId, nextId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long maxId() {
+        if (taskList instanceof PriorityBucketList) {
+            return ((PriorityBucketList) taskList).maxId();
+        }
+        return ((TaskStore) taskList).maxId();
+    }
+
+    /**
+     * Returns the position of the task with the given id.
+     *
+     * @param id Id of the task
+     * @return Zero based position of the task, or -1 if no task has that id
+     */
+    public int indexOfId(long id) {
+        lock.readLock().lock();
+        try {
+            if (taskList instanceof PriorityBucketList) {
+                return ((PriorityBucketList) taskList).indexOfId(id);
+            }
+            return ((TaskStore) taskList).indexOfId(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Converts a task number or a "#id" reference into a zero based position.
+     */
+    private int toPosition(String taskNumber) {
+        if (taskNumber.startsWith("#")) {
+            long id = Long.parseLong(taskNumber.substring(1));
+            int taskPos = indexOfId(id);
+            if (taskPos < 0) {
+                throw new IndexOutOfBoundsException("No task has id " + id);
+            }
+            return taskPos;
+        }
+        return Integer.parseInt(taskNumber) - 1; // zero based indexing
     }
 
     /**
      * Marks a task as done based on the given task number.
      *
-     * @param taskNumber Task number provided by the user
+     * @param taskNumber Task number provided by the user, or "#id" for the task with that id
      *
      * @return Task that has been marked
      */
     public Task mark(String taskNumber){
-        int taskPos = Integer.parseInt(taskNumber) - 1; // zero based indexing
-        assert taskPos >= 0 && taskPos < taskList.size() : "Task index" +
-                "out of bounds";
-        Task taskToMark = taskList.get(taskPos);
-        taskToMark.mark();
-        return taskToMark;
+        return setDone(taskNumber, true);
     }
 
     /**
      * Unmarks a task based on the given task number.
      *
-     * @param taskNumber Task number provided by the user
+     * @param taskNumber Task number provided by the user, or "#id" for the task with that id
      */
     public Task unmark(String taskNumber){
-        int taskPos = Integer.parseInt(taskNumber) - 1; // zero based indexing
-        Task taskToUnmark = taskList.get(taskPos);
-        taskToUnmark.unmark();
-        return taskToUnmark;
+        return setDone(taskNumber, false);
+    }
+
+    /**
+     * Marks or unmarks a task while sharing the structure lock with changes to other tasks.
+     * The task lock for its id keeps changes to the same task, and their journal records, in order.
+     * Compacts the snapshot afterwards if the marks made to it have split it into too many pieces.
+     */
+    private Task setDone(String taskNumber, boolean isDone) {
+        try {
+            return setDoneShared(taskNumber, isDone);
+        } finally {
+            if (isSnapshotFragmented() && lock.writeLock().tryLock()) {
+                try {
+                    compactSnapshot();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    private Task setDoneShared(String taskNumber, boolean isDone) {
+        boolean isBacklogged = false;
+        lock.readLock().lock();
+        try {
+            int taskPos = toPosition(taskNumber);
+            assert taskPos >= 0 && taskPos < taskList.size() : "Task index" +
+                    "out of bounds";
+            TaskLock taskLock = taskLocks[Long.hashCode(peekTask(taskPos).getId()) & (TASK_LOCK_STRIPES - 1)];
+            synchronized (taskLock) {
+                // read the task again now that no one else can be changing it
+                Task previousTask = peekTask(taskPos);
+                Task changedTask = previousTask.copy();
+                if (isDone) {
+                    changedTask.mark();
+                } else {
+                    changedTask.unmark();
+                }
+                if (taskList instanceof PriorityBucketList) {
+                    ((PriorityBucketList) taskList).setShared(taskPos, changedTask);
+                } else {
+                    ((TaskStore) taskList).setShared(taskPos, changedTask);
+                }
+                logUndoSet(taskPos, previousTask);
+                publishMark(taskLock, tasks -> tasks.withSet(taskPos, changedTask));
+                isBacklogged = taskLock.unpublished.size() > MAX_UNPUBLISHED_MARKS;
+                if (journal != null) {
+                    if (isDone) {
+                        journal.recordMark(String.valueOf(taskPos + 1));
+                    } else {
+                        journal.recordUnmark(String.valueOf(taskPos + 1));
+                    }
+                }
+                return changedTask;
+            }
+        } finally {
+            lock.readLock().unlock();
+            if (isBacklogged) {
+                publishMarks();
+            }
+            flushJournal();
+        }
+    }
+
+    /**
+     * Returns the task at a position without locking the store it is in, for changes that share the
+     * structure lock.
+     */
+    private Task peekTask(int taskPos) {
+        if (taskList instanceof PriorityBucketList) {
+            return ((PriorityBucketList) taskList).peek(taskPos);
+        }
+        return ((TaskStore) taskList).peek(taskPos);
     }
 
     /**
      * Deletes a task based on the given task number and prints a confirmation message.
      *
-     * @param taskNumber Task number provided by the user
+     * @param taskNumber Task number provided by the user, or "#id" for the task with that id
      */
     public Task delete(String taskNumber) {
-        int taskPos = Integer.parseInt(taskNumber) - 1; // zero based indexing
-        Task removedTask = taskList.remove(taskPos);
-        return removedTask;
+        lock.writeLock().lock();
+        try {
+            int taskPos = toPosition(taskNumber);
+            Task removedTask = taskList.remove(taskPos);
+            unindex(removedTask);
+            logUndoRemove(taskPos, removedTask);
+            size--;
+            publish(1, tasks -> tasks.withRemoved(taskPos));
+            if (journal != null) {
+                journal.recordDelete(String.valueOf(taskPos + 1));
+            }
+            compactSnapshot();
+            return removedTask;
+        } finally {
+            lock.writeLock().unlock();
+            flushJournal();
+        }
     }
 
     /**
-     * Returns the underlying list of tasks.
+     * Marks every task in a selection as done, as one change to the list with one journal write.
      *
-     * @return ArrayList containing all tasks
+     * @param selection "/done", "/undone", or task numbers, "#id" references and ranges such as "3-7"
+     *     separated by commas, all referring to the list as it is before the change
+     * @return Tasks that have been marked, in list order
      */
-    public ArrayList<Task> getTasks() {
-        return this.taskList;
+    public ArrayList<Task> markAll(String selection) {
+        return setDoneAll(selection, true);
     }
 
     /**
-     * Finds and returns all tasks that contain the specified keyword in their description.
+     * Unmarks every task in a selection, as one change to the list with one journal write.
      *
-     * @param keyword The keyword to search for in task descriptions
-     * @return ArrayList of tasks whose descriptions contain the keyword
+     * @param selection Selection of tasks, in the same form as for markAll()
+     * @return Tasks that have been unmarked, in list order
+     */
+    public ArrayList<Task> unmarkAll(String selection) {
+        return setDoneAll(selection, false);
+    }
+
+    private ArrayList<Task> setDoneAll(String selection, boolean isDone) {
+        lock.writeLock().lock();
+        try {
+            int[] positions = toPositions(selection);
+            ArrayList<Task> changedTasks = new ArrayList<>(positions.length);
+            List<String> taskNumbers = new ArrayList<>(positions.length);
+            for (int taskPos : positions) {
+                Task changedTask = taskList.get(taskPos).copy();
+                if (isDone) {
+                    changedTask.mark();
+                } else {
+                    changedTask.unmark();
+                }
+                logUndoSet(taskPos, taskList.set(taskPos, changedTask));
+                changedTasks.add(changedTask);
+                taskNumbers.add(String.valueOf(taskPos + 1));
+            }
+            if (positions.length > size / SCAN_FRACTION) {
+                publishAll(positions.length);
+            } else {
+                publish(positions.length, tasks -> {
+                    for (int i = 0; i < positions.length; i++) {
+                        tasks = tasks.withSet(positions[i], changedTasks.get(i));
+                    }
+                    return tasks;
+                });
+            }
+            if (journal != null) {
+                if (isDone) {
+                    journal.recordMarks(taskNumbers);
+                } else {
+                    journal.recordUnmarks(taskNumbers);
+                }
+            }
+            compactSnapshot();
+            return changedTasks;
+        } finally {
+            lock.writeLock().unlock();
+            flushJournal();
+        }
+    }
+
+    /**
+     * Deletes every task in a selection, as one change to the list with one journal write.
+     * The tasks are removed from the last to the first, so that each removal leaves the positions of the tasks
+     * still to be removed as they were, and the journal records one delete per task in that order.
+     * Deleting more than 1 / SCAN_FRACTION of the tasks drops the search indexes instead of updating them,
+     * so that they are rebuilt once on the next search, and makes the snapshot again from a copy of the tasks.
+     *
+     * @param selection Selection of tasks, in the same form as for markAll()
+     * @return Tasks that have been deleted, in the order they were in the list
+     */
+    public ArrayList<Task> deleteAll(String selection) {
+        lock.writeLock().lock();
+        try {
+            int[] positions = toPositions(selection);
+            boolean isReindexing = positions.length > taskList.size() / SCAN_FRACTION;
+            if (isReindexing) {
+                searchIndex = null;
+                dateIndex = null;
+                eventIndex = null;
+            }
+            Task[] removedTasks = new Task[positions.length];
+            List<String> taskNumbers = new ArrayList<>(positions.length);
+            for (int i = positions.length - 1; i >= 0; i--) {
+                removedTasks[i] = taskList.remove(positions[i]);
+                if (!isReindexing) {
+                    unindex(removedTasks[i]);
+                }
+                logUndoRemove(positions[i], removedTasks[i]);
+                taskNumbers.add(String.valueOf(positions[i] + 1));
+            }
+            size -= positions.length;
+            if (isReindexing) {
+                publishAll(positions.length);
+            } else {
+                publish(positions.length, tasks -> {
+                    for (int i = positions.length - 1; i >= 0; i--) {
+                        tasks = tasks.withRemoved(positions[i]);
+                    }
+                    return tasks;
+                });
+            }
+            if (journal != null) {
+                journal.recordDeletes(taskNumbers);
+            }
+            compactSnapshot();
+            return new ArrayList<>(Arrays.asList(removedTasks));
+        } finally {
+            lock.writeLock().unlock();
+            flushJournal();
+        }
+    }
+
+    /**
+     * Converts a selection of tasks into the zero based positions of the tasks it selects, in order and
+     * without repeats. Should be called while holding the structure lock.
+     */
+    private int[] toPositions(String selection) {
+        BitSet selected = new BitSet(taskList.size());
+        if (selection.equals("/done") || selection.equals("/undone")) {
+            boolean isDone = selection.equals("/done");
+            for (int i = 0; i < taskList.size(); i++) {
+                if (taskList.get(i).isDone() == isDone) {
+                    selected.set(i);
+                }
+            }
+            return selected.stream().toArray();
+        }
+        for (String item : selection.split(",")) {
+            int dash = item.indexOf('-');
+            if (dash > 0) {
+                int first = Integer.parseInt(item.substring(0, dash));
+                int last = Integer.parseInt(item.substring(dash + 1));
+                if (first < 1 || last > taskList.size()) {
+                    throw new IndexOutOfBoundsException("Range " + item + ", Size: " + taskList.size());
+                }
+                selected.set(first - 1, last);
+            } else {
+                selected.set(toPosition(item));
+            }
+        }
+        return selected.stream().toArray();
+    }
+
+    /**
+     * Adds a task to every index that has been built.
+     */
+    private void index(Task task) {
+        if (searchIndex != null) {
+            searchIndex.add(task);
+        }
+        if (dateIndex != null) {
+            dateIndex.add(task);
+        }
+        if (eventIndex != null) {
+            eventIndex.add(task);
+        }
+    }
+
+    /**
+     * Removes a deleted task from every index that has been built.
+     */
+    private void unindex(Task task) {
+        if (searchIndex != null) {
+            searchIndex.remove(task);
+        }
+        if (dateIndex != null) {
+            dateIndex.remove(task);
+        }
+        if (eventIndex != null) {
+            eventIndex.remove(task);
+        }
+    }
+
+    /**
+     * Starts a transaction: every change from now until commit() or rollback() is made by this thread alone,
+     * is hidden from readers of snapshots, and is journaled in one write when committed.
+     * Holds the structure lock exclusively until the transaction ends, so it must end on the same thread.
+     * Each change records how to undo it in an undo log, rather than the list being copied up front,
+     * so rolling back costs time in proportion to the changes made.
+     */
+    public void begin() {
+        lock.writeLock().lock();
+        assert undoLog == null : "Transactions do not nest";
+        undoLog = new ArrayList<>();
+        nextIdAtBegin = nextId;
+        transactionSnapshot = publishMarks();
+        if (journal != null) {
+            journal.beginBatch();
+        }
+    }
+
+    /**
+     * Ends the transaction, keeping its changes and writing their journal records.
+     */
+    public void commit() {
+        assert undoLog != null : "No transaction to commit";
+        try {
+            if (journal != null) {
+                journal.commitBatch();
+            }
+        } finally {
+            undoLog = null;
+            if (transactionSnapshot != null) {
+                synchronized (publishLock) {
+                    snapshot = transactionSnapshot;
+                }
+                transactionSnapshot = null;
+            }
+            compactSnapshot();
+            lock.writeLock().unlock();
+            flushJournal();
+        }
+    }
+
+    /**
+     * Ends the transaction, undoing its changes from the last to the first and dropping their journal records.
+     */
+    public void rollback() {
+        assert undoLog != null : "No transaction to roll back";
+        try {
+            if (journal != null) {
+                journal.abortBatch();
+            }
+            for (int i = undoLog.size() - 1; i >= 0; i--) {
+                undoLog.get(i).run();
+            }
+            nextId = nextIdAtBegin;
+            // the undone changes were never published, so the snapshot already shows the tasks as they are now
+            version.add(undoLog.size());
+        } finally {
+            undoLog = null;
+            transactionSnapshot = null;
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records how to put back the task a change replaced, while a transaction is open.
+     */
+    private void logUndoSet(int taskPos, Task previousTask) {
+        if (undoLog != null) {
+            undoLog.add(() -> taskList.set(taskPos, previousTask));
+        }
+    }
+
+    /**
+     * Records how to put back a deleted task at its position, while a transaction is open.
+     */
+    private void logUndoRemove(int taskPos, Task removedTask) {
+        if (undoLog != null) {
+            undoLog.add(() -> {
+                taskList.add(taskPos, removedTask);
+                index(removedTask);
+                size++;
+            });
+        }
+    }
+
+    /**
+     * Removes the task at a position without journaling it, to undo adding it.
+     */
+    private void removeAt(int taskPos) {
+        unindex(taskList.remove(taskPos));
+        size--;
+    }
+
+    /**
+     * Writes the journal records queued by a change, once its locks have been released, so that writing them
+     * does not hold up other changes, and the records of changes made meanwhile are written together.
+     */
+    private void flushJournal() {
+        if (journal != null) {
+            journal.flush();
+        }
+    }
+
+    /**
+     * Counts mutations and makes them to the snapshot, after any queued marks, which readers see at once,
+     * or once the open transaction commits. Should be called while holding the structure lock exclusively.
+     *
+     * @param mutations Number of mutations, one per journal record
+     * @param change Makes the same mutations to a snapshot
+     */
+    private void publish(int mutations, UnaryOperator<PersistentTaskList> change) {
+        version.add(mutations);
+        if (undoLog != null) {
+            if (transactionSnapshot != null) {
+                transactionSnapshot = change.apply(transactionSnapshot);
+            }
+            return;
+        }
+        synchronized (publishLock) {
+            PersistentTaskList tasks = publishMarks();
+            if (tasks != null) {
+                snapshot = change.apply(tasks);
+            }
+        }
+    }
+
+    /**
+     * Counts a mark or unmark and queues its change to the snapshot under the task lock, which the caller
+     * holds, rather than replacing the snapshot, which every change to any task would wait on.
+     * In a transaction the change is made to the transaction snapshot at once, as no other change can be made.
+     *
+     * @param taskLock Task lock held for the task changed
+     * @param change Makes the same mutation to a snapshot
+     */
+    private void publishMark(TaskLock taskLock, UnaryOperator<PersistentTaskList> change) {
+        if (undoLog != null) {
+            publish(1, change);
+            return;
+        }
+        version.add(1);
+        if (snapshot != null) {
+            taskLock.unpublished.add(change);
+            taskLock.hasUnpublished = true;
+        }
+    }
+
+    /**
+     * Makes every change queued by marks and unmarks to the snapshot and returns it, for a reader that must
+     * see every mark made before it, or a change to the structure that comes after them.
+     * Marks queue their changes while sharing the structure lock, when the number of every task stays put,
+     * and changes to the same task are queued under the same task lock, so making them one task lock after
+     * another keeps the changes to each task in the order they were made.
+     *
+     * @return Snapshot with every queued change made to it, or null if there is no snapshot yet
+     */
+    private PersistentTaskList publishMarks() {
+        synchronized (publishLock) {
+            PersistentTaskList tasks = snapshot;
+            List<TaskLock> published = new ArrayList<>();
+            for (TaskLock taskLock : taskLocks) {
+                if (!taskLock.hasUnpublished) {
+                    continue;
+                }
+                List<UnaryOperator<PersistentTaskList>> changes;
+                synchronized (taskLock) {
+                    changes = taskLock.unpublished;
+                    taskLock.unpublished = new ArrayList<>();
+                }
+                for (UnaryOperator<PersistentTaskList> change : changes) {
+                    tasks = change.apply(tasks);
+                }
+                published.add(taskLock);
+            }
+            if (published.isEmpty()) {
+                return tasks;
+            }
+            snapshot = tasks;
+            for (TaskLock taskLock : published) {
+                synchronized (taskLock) {
+                    // only once the changes are in the snapshot, unless more have been queued meanwhile
+                    taskLock.hasUnpublished = !taskLock.unpublished.isEmpty();
+                }
+            }
+            return tasks;
+        }
+    }
+
+    /**
+     * Returns whether any mark or unmark has queued a change that is not in the snapshot yet.
+     */
+    private boolean hasUnpublishedMarks() {
+        for (TaskLock taskLock : taskLocks) {
+            if (taskLock.hasUnpublished) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts mutations and makes the snapshot again from a copy of the tasks, for changes to so many tasks
+     * that making them one at a time would take longer. Should be called while holding the structure lock
+     * exclusively.
+     *
+     * @param mutations Number of mutations, one per journal record
+     */
+    private void publishAll(int mutations) {
+        version.add(mutations);
+        if (undoLog != null) {
+            if (transactionSnapshot != null) {
+                transactionSnapshot = PersistentTaskList.of(copyTasks());
+            }
+        } else if (snapshot != null) {
+            synchronized (publishLock) {
+                // the copy already has every queued mark
+                for (TaskLock taskLock : taskLocks) {
+                    synchronized (taskLock) {
+                        taskLock.unpublished.clear();
+                        taskLock.hasUnpublished = false;
+                    }
+                }
+                snapshot = PersistentTaskList.of(copyTasks());
+            }
+        }
+    }
+
+    /**
+     * Returns whether changes have split the snapshot into so many pieces that it should be made again.
+     */
+    private boolean isSnapshotFragmented() {
+        PersistentTaskList tasks = snapshot;
+        return tasks != null && tasks.getPieceCount() > MIN_SNAPSHOT_PIECES + size / SNAPSHOT_TASKS_PER_PIECE;
+    }
+
+    /**
+     * Makes the snapshot again from a copy of the tasks if it has been split into too many pieces, which
+     * costs O(n) once every O(n) changes. Should be called while holding the structure lock exclusively.
+     */
+    private void compactSnapshot() {
+        if (undoLog == null && isSnapshotFragmented()) {
+            publishAll(0);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the tasks that later mutations do not affect, and that must not be changed.
+     * Only the first call ever takes the structure lock, to take the first snapshot; every other call returns
+     * the snapshot as of the last change without waiting for writers, so listing or saving never sees
+     * a mutation half done, first making any marks queued since to it. The thread running a transaction sees
+     * its changes so far.
+     *
+     * @return Snapshot of every task, in list order
+     */
+    public List<Task> getTasks() {
+        PersistentTaskList tasks = snapshot;
+        if (tasks != null && !lock.isWriteLockedByCurrentThread()) {
+            return hasUnpublishedMarks() ? publishMarks() : tasks;
+        }
+        lock.writeLock().lock();
+        try {
+            if (undoLog != null) {
+                if (transactionSnapshot == null) {
+                    transactionSnapshot = PersistentTaskList.of(copyTasks());
+                }
+                return transactionSnapshot;
+            }
+            if (snapshot == null) {
+                synchronized (publishLock) {
+                    snapshot = PersistentTaskList.of(copyTasks());
+                }
+            }
+            return publishMarks();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the lock that changes to the structure of the list hold, which also keeps every task
+     * from changing while it is held.
+     *
+     * @return Exclusive structure lock
+     */
+    Lock getStructureLock() {
+        return lock.writeLock();
+    }
+
+    /**
+     * Returns a copy of the list of tasks that later mutations do not affect.
+     * Lazily loaded tasks are copied without decoding them.
+     * Should be called while holding the structure lock.
+     *
+     * @return Copy of the list of tasks
+     */
+    List<Task> copyTasks() {
+        if (taskList instanceof PriorityBucketList) {
+            return ((PriorityBucketList) taskList).copy();
+        }
+        return ((TaskStore) taskList).copy();
+    }
+
+    /**
+     * Finds and returns all tasks whose description contains each of the keywords, ignoring case, in list order.
+     * Keywords separated by "OR" are alternatives, so "milk eggs OR bread" finds tasks with both milk and eggs,
+     * and tasks with bread.
+     * The index finds the tasks with a word containing each keyword, which are exactly the tasks containing it,
+     * so a search takes time in proportion to the matching words and tasks rather than to every task;
+     * each of them is still checked for the keywords before it is returned.
+     *
+     * @param keyword The keywords to search for in task descriptions
+     * @return ArrayList of tasks whose descriptions contain the keywords
      */
     public ArrayList<Task> find(String keyword) {
-        String lowerKeyword = keyword.toLowerCase();
-        return taskList.stream()
-                .filter(task -> task.getDescription().toLowerCase().contains(lowerKeyword))
-                .collect(Collectors.toCollection(ArrayList::new));
+        lockForSearch(() -> searchIndex != null, this::getSearchIndex);
+        try {
+            TokenIndex index = searchIndex;
+            BitSet matches = new BitSet(taskList.size());
+            for (List<String> keywords : TokenIndex.parseQuery(keyword)) {
+                long[] candidates = null;
+                for (String word : keywords) {
+                    long[] wordCandidates = index.find(word);
+                    candidates = candidates == null ? wordCandidates : TokenIndex.intersect(candidates, wordCandidates);
+                    if (candidates.length == 0) {
+                        break;
+                    }
+                }
+                for (long id : candidates) {
+                    int position = indexOfId(id);
+                    if (!matches.get(position) && containsAll(taskList.get(position), keywords)) {
+                        matches.set(position);
+                    }
+                }
+            }
+
+            ArrayList<Task> matchingTasks = new ArrayList<>(matches.cardinality());
+            for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                matchingTasks.add(taskList.get(i));
+            }
+            return matchingTasks;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds and returns the deadlines due and the events taking place within a range of dates, ordered by
+     * the day each is due or starts and then by the order they were added in. An event is found on every day
+     * it takes place, so one that started before the range and is still going on is found too.
+     * Deadlines are found through a DateIndex and events through the IntervalTree of their ranges,
+     * each taking O(log n) to find the first date in the range plus O(log n) per task found,
+     * apart from building the indexes on the first search by date.
+     *
+     * @param from First date of the range, or null to find everything up to the last date
+     * @param to Last date of the range, inclusive
+     * @return ArrayList of tasks dated within the range
+     */
+    public ArrayList<Task> findByDate(LocalDate from, LocalDate to) {
+        lockForSearch(() -> dateIndex != null && eventIndex != null, () -> {
+            getDateIndex();
+            getEventIndex();
+        });
+        try {
+            long[] deadlineIds = dateIndex.find(from, to);
+            long[] eventIds = eventIndex.findOverlapping(from == null ? LocalDate.MIN : from, to);
+            ArrayList<Task> datedTasks = new ArrayList<>(deadlineIds.length + eventIds.length);
+            // both are ordered by day and then by id, so they are merged in one pass
+            int d = 0;
+            int e = 0;
+            Task deadline = d < deadlineIds.length ? taskList.get(indexOfId(deadlineIds[d])) : null;
+            Task event = e < eventIds.length ? taskList.get(indexOfId(eventIds[e])) : null;
+            while (deadline != null || event != null) {
+                if (event == null || (deadline != null && isDatedBefore(deadline, event))) {
+                    datedTasks.add(deadline);
+                    d++;
+                    deadline = d < deadlineIds.length ? taskList.get(indexOfId(deadlineIds[d])) : null;
+                } else {
+                    datedTasks.add(event);
+                    e++;
+                    event = e < eventIds.length ? taskList.get(indexOfId(eventIds[e])) : null;
+                }
+            }
+            return datedTasks;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns whether a deadline is due before an event starts, or on the same day and added before it.
+     */
+    private static boolean isDatedBefore(Task deadline, Task event) {
+        int byDay = ((Deadline) deadline).getBy().compareTo(((Event) event).getFrom());
+        return byDay < 0 || (byDay == 0 && deadline.getId() < event.getId());
+    }
+
+    /**
+     * Finds and returns the events taking place on any day within a range of dates, ordered by start date
+     * and then by the order they were added in.
+     * Takes O(log n) per event found at most, apart from building the index on the first search.
+     *
+     * @param from First date of the range
+     * @param to Last date of the range, inclusive
+     * @return ArrayList of events overlapping the range
+     */
+    public ArrayList<Task> findOverlappingEvents(LocalDate from, LocalDate to) {
+        lockForSearch(() -> eventIndex != null, this::getEventIndex);
+        try {
+            long[] ids = eventIndex.findOverlapping(from, to);
+            ArrayList<Task> events = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                events.add(taskList.get(indexOfId(id)));
+            }
+            return events;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds and returns the events that take place on the same day as another event, on a day within a range
+     * of dates, ordered by start date and then by the order they were added in. An event that clashes with
+     * nothing is left out, however long it is.
+     * Takes O(log n) per event in the range at most, apart from building the index on the first search.
+     *
+     * @param from First date of the range
+     * @param to Last date of the range, inclusive
+     * @return ArrayList of events clashing within the range
+     */
+    public ArrayList<Task> findConflictingEvents(LocalDate from, LocalDate to) {
+        lockForSearch(() -> eventIndex != null, this::getEventIndex);
+        try {
+            long[] ids = eventIndex.findConflicting(from, to);
+            ArrayList<Task> events = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                events.add(taskList.get(indexOfId(id)));
+            }
+            return events;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the runs of days within a range of dates on which no event takes place.
+     *
+     * @param from First date of the range
+     * @param to Last date of the range, inclusive
+     * @return ArrayList of the first and last date of every free run, in order
+     */
+    public ArrayList<LocalDate[]> findFreeDays(LocalDate from, LocalDate to) {
+        lockForSearch(() -> eventIndex != null, this::getEventIndex);
+        try {
+            long[] days = eventIndex.findFreeDays(from, to);
+            ArrayList<LocalDate[]> freeDays = new ArrayList<>(days.length / 2);
+            for (int i = 0; i < days.length; i += 2) {
+                freeDays.add(new LocalDate[]{LocalDate.ofEpochDay(days[i]), LocalDate.ofEpochDay(days[i + 1])});
+            }
+            return freeDays;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes the structure lock shared for a search, so that searches run alongside each other and alongside
+     * changes to single tasks, none of which change an index. If the index a search uses has not been built,
+     * or has been dropped, it is first built while holding the lock exclusively.
+     *
+     * @param isIndexBuilt Tells whether the index has been built, while the lock is held
+     * @param buildIndex Builds the index
+     */
+    private void lockForSearch(BooleanSupplier isIndexBuilt, Runnable buildIndex) {
+        while (true) {
+            lock.readLock().lock();
+            if (isIndexBuilt.getAsBoolean()) {
+                return;
+            }
+            lock.readLock().unlock();
+            lock.writeLock().lock();
+            try {
+                buildIndex.run();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private DateIndex getDateIndex() {
+        if (dateIndex == null) {
+            dateIndex = new DateIndex();
+            for (Task task : taskList) {
+                if (task.getId() != 0) {
+                    dateIndex.add(task);
+                }
+            }
+        }
+        return dateIndex;
+    }
+
+    private IntervalTree getEventIndex() {
+        if (eventIndex == null) {
+            eventIndex = new IntervalTree();
+            for (Task task : taskList) {
+                if (task.getId() != 0) {
+                    eventIndex.add(task);
+                }
+            }
+        }
+        return eventIndex;
+    }
+
+    private static boolean containsAll(Task task, List<String> keywords) {
+        String description = task.getDescription().toLowerCase();
+        for (String word : keywords) {
+            if (!description.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of distinct words in the search index, building the index if needed.
+     *
+     * @return Number of words
+     */
+    public int getSearchIndexWordCount() {
+        lockForSearch(() -> searchIndex != null, this::getSearchIndex);
+        try {
+            return searchIndex.getWordCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Estimates the heap memory taken by the search index, building the index if needed.
+     *
+     * @return Approximate size of the search index in bytes
+     */
+    public long getSearchIndexMemory() {
+        lockForSearch(() -> searchIndex != null, this::getSearchIndex);
+        try {
+            return searchIndex.estimateMemoryBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the search index, building it from every task if this is the first time it is needed.
+     * Should be called while holding the structure lock exclusively.
+     *
+     * @return Word index of the task descriptions
+     */
+    TokenIndex getSearchIndex() {
+        if (searchIndex == null) {
+            searchIndex = new TokenIndex();
+            for (Task task : taskList) {
+                if (task.getId() != 0) {
+                    searchIndex.add(task);
+                }
+            }
+        }
+        return searchIndex;
+    }
+
+    /**
+     * One of the locks that changes to single tasks are spread over, which also holds the changes to the snapshot
+     * made under it that are not in the snapshot yet.
+     */
+    private static final class TaskLock {
+        // Changes to make to the snapshot, in the order they were made; guarded by this lock
+        private List<UnaryOperator<PersistentTaskList>> unpublished = new ArrayList<>();
+        // Whether there are changes to make, read without taking this lock
+        private volatile boolean hasUnpublished;
     }
 }
@@ -0,0 +1,75 @@
+package dickie.utils;
+
+import dickie.task.Task;
+
+import java.util.List;
+
+/**
+ * A list of tasks that TaskList can hold its tasks in, which finds a task by id and copies and splits itself
+ * without building every Task it holds.
+ * A Task returned by get() may be built from the store on demand, so changes to it are only kept
+ * if the task is passed back to set().
+ * While nothing else changes the list, peek(), indexOfId() and setShared() take no lock, so that any number
+ * of threads can read tasks and change different ones at once, such as while holding the TaskList structure
+ * lock shared.
+ */
+interface TaskStore extends List<Task> {
+    /**
+     * Finds the position of the task with the given id. Takes no lock once the ids have been read.
+     *
+     * @param id Id of the task
+     * @return Position of the task, or -1 if no task has that id
+     */
+    int indexOfId(long id);
+
+    /**
+     * Returns the highest task id in the list, or the highest id passed to raiseMaxId() if that is higher,
+     * so that the ids of deleted tasks are not given out again.
+     *
+     * @return Highest id, or 0 if no task has an id
+     */
+    long maxId();
+
+    /**
+     * Returns the task at the given position without locking the list or caching the task, so that any number
+     * of threads can read it at once. Must only be called while the list changes through setShared() alone,
+     * such as on a copy that no longer changes.
+     *
+     * @param index Position of the task
+     * @return Task at the position
+     */
+    Task peek(int index);
+
+    /**
+     * Replaces the task at the given position with a copy of it that is only marked or unmarked, without locking
+     * the list, so that different tasks can be changed by different threads at once. Must only be called while
+     * the list changes through setShared() alone, and never by two threads for the same task at once.
+     *
+     * @param index Position of the task
+     * @param task Changed copy of the task, with the same id, priority and description
+     */
+    void setShared(int index, Task task);
+
+    /**
+     * Records that a task with the given id has been in the list, such as one deleted before the list was
+     * last saved, so that maxId() never returns less. Copies and splits of the list keep it.
+     *
+     * @param id Id that has been used
+     */
+    void raiseMaxId(long id);
+
+    /**
+     * Creates an independent copy of this list, so that it can be read on another thread
+     * while this list keeps changing.
+     *
+     * @return Copy of the list
+     */
+    TaskStore copy();
+
+    /**
+     * Splits this list into one list per priority, keeping the order within each.
+     *
+     * @return Lists of the tasks of each priority, from HIGH to LOW
+     */
+    List<? extends TaskStore> splitByPriority();
+}
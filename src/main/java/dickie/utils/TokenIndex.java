@@ -0,0 +1,238 @@
+package dickie.utils;
+
+import dickie.task.Task;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An inverted index from the words of task descriptions to the ids of the tasks containing them.
+ * A word is a run of characters between white space in the lower case description, so a keyword without
+ * white space is in a description exactly when it is in one of its words. The words containing a keyword
+ * are found through a TrigramIndex of the distinct words and checked for it, and the tasks are then read
+ * from their posting lists, so a search takes time in proportion to the matching words and tasks
+ * rather than to every task, whatever the length of the keyword.
+ * Each distinct word has a number, which is what the TrigramIndex holds. A word no task has any more
+ * is dropped, and its number is reused by the next new word.
+ */
+class TokenIndex {
+    private static final String OR = "OR";
+
+    private final Map<String, Integer> numbersByWord = new HashMap<>();
+    // Word and ids of the tasks with it for each word number, or null for a number that is free
+    private final List<String> words = new ArrayList<>();
+    private final List<PostingList> postingLists = new ArrayList<>();
+    private final ArrayDeque<Integer> freeNumbers = new ArrayDeque<>();
+    private final TrigramIndex wordIndex = new TrigramIndex();
+
+    /**
+     * Adds a task to the posting list of every word in its description.
+     *
+     * @param task Task to add, which must have an id
+     */
+    void add(Task task) {
+        assert task.getId() != 0 : "Only tasks with ids can be indexed";
+        for (String word : tokenize(task.getDescription())) {
+            Integer number = numbersByWord.get(word);
+            if (number == null) {
+                number = addWord(word);
+            }
+            postingLists.get(number).add(task.getId());
+        }
+    }
+
+    /**
+     * Removes a task from the posting list of every word in its description, dropping the words
+     * no task has any more.
+     *
+     * @param task Task to remove
+     */
+    void remove(Task task) {
+        for (String word : tokenize(task.getDescription())) {
+            Integer number = numbersByWord.get(word);
+            if (number == null) {
+                continue;
+            }
+            PostingList ids = postingLists.get(number);
+            ids.remove(task.getId());
+            if (ids.size() == 0) {
+                numbersByWord.remove(word);
+                wordIndex.remove(number, word);
+                words.set(number, null);
+                postingLists.set(number, null);
+                freeNumbers.push(number);
+            }
+        }
+    }
+
+    private int addWord(String word) {
+        int number;
+        if (freeNumbers.isEmpty()) {
+            number = words.size();
+            words.add(word);
+            postingLists.add(new PostingList());
+        } else {
+            number = freeNumbers.pop();
+            words.set(number, word);
+            postingLists.set(number, new PostingList());
+        }
+        numbersByWord.put(word, number);
+        wordIndex.add(number, word);
+        return number;
+    }
+
+    /**
+     * Returns the ids of the tasks with a word containing the given keyword.
+     *
+     * @param keyword Lower case keyword without white space, which must not be empty
+     * @return Sorted ids of the tasks
+     */
+    long[] find(String keyword) {
+        List<PostingList> matches = new ArrayList<>();
+        int total = 0;
+        for (long number : wordIndex.findCandidates(keyword)) {
+            if (words.get((int) number).contains(keyword)) {
+                PostingList ids = postingLists.get((int) number);
+                matches.add(ids);
+                total += ids.size();
+            }
+        }
+        long[] ids = new long[total];
+        int size = 0;
+        for (PostingList list : matches) {
+            list.copyTo(ids, size);
+            size += list.size();
+        }
+        if (matches.size() <= 1) {
+            return ids;
+        }
+
+        // a task with several of the words is in several lists
+        Arrays.sort(ids);
+        int distinct = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, distinct);
+    }
+
+    /**
+     * Returns the number of distinct words in the index.
+     *
+     * @return Number of words
+     */
+    int getWordCount() {
+        return numbersByWord.size();
+    }
+
+    /**
+     * Estimates the heap memory taken by the index, counting array contents and object headers
+     * as they are laid out on a 64 bit JVM with compressed references.
+     *
+     * @return Approximate size of the index in bytes
+     */
+    long estimateMemoryBytes() {
+        long bytes = wordIndex.estimateMemoryBytes();
+        bytes += 2 * (16 + 4L * words.size()); // the lists of words and posting lists
+        bytes += 16L * freeNumbers.size(); // the boxed free numbers
+        for (int number = 0; number < words.size(); number++) {
+            String word = words.get(number);
+            if (word != null) {
+                // the map entry and its boxed number, the string and its bytes, and the posting list
+                bytes += 32 + 16 + 24 + 16 + word.length() + postingLists.get(number).estimateMemoryBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Splits text into its distinct lower case words, at the white space that parseQuery splits keywords at.
+     *
+     * @param text Text to split
+     * @return Distinct words of the text, in order of first appearance
+     */
+    static List<String> tokenize(String text) {
+        String lowerText = text.toLowerCase();
+        List<String> tokens = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= lowerText.length(); i++) {
+            if (i < lowerText.length() && !isWhitespace(lowerText.charAt(i))) {
+                continue;
+            }
+            if (i > start) {
+                String word = lowerText.substring(start, i);
+                if (!tokens.contains(word)) {
+                    tokens.add(word);
+                }
+            }
+            start = i + 1;
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns whether a character is white space as "\\s" matches it in a regular expression.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Splits a query into groups of lower case keywords at every "OR".
+     * A task matches the query if it contains every keyword of any one group.
+     * A query of nothing but "OR" has nothing to join, so it is a search for "or" itself.
+     *
+     * @param query Keywords separated by spaces
+     * @return Groups of keywords, none of them empty
+     */
+    static List<List<String>> parseQuery(String query) {
+        List<List<String>> groups = new ArrayList<>();
+        List<String> keywords = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")) {
+            if (word.equals(OR)) {
+                groups.add(keywords);
+                keywords = new ArrayList<>();
+            } else if (!word.isEmpty()) {
+                keywords.add(word.toLowerCase());
+            }
+        }
+        groups.add(keywords);
+        groups.removeIf(List::isEmpty);
+        if (groups.isEmpty() && query.contains(OR)) {
+            groups.add(List.of(OR.toLowerCase()));
+        }
+        return groups;
+    }
+
+    /**
+     * Returns the ids in both of two sorted arrays of ids.
+     *
+     * @param a Sorted ids
+     * @param b Sorted ids
+     * @return Sorted ids that are in both arrays
+     */
+    static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
@@ -0,0 +1,174 @@
+package dickie.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An inverted index from the trigrams of words to the numbers of the words containing them, as kept by
+ * a TokenIndex for the distinct words of every description.
+ * A trigram is three consecutive characters, so a keyword of three or more characters can only be in words
+ * that have every one of its trigrams. Intersecting their lists narrows the words down to a few candidates,
+ * which are then checked for the keyword itself. Every single character and pair of characters of a word
+ * is indexed too, so a keyword shorter than a trigram is looked up directly, with no candidates to check.
+ * Each gram is packed into a long and mapped to its posting list through a LongIntMap,
+ * and each PostingList keeps its numbers sorted, so that lists can be merged without hashing.
+ * A posting list left empty by a removal is dropped, and its slot is reused by the next new gram.
+ */
+class TrigramIndex {
+    static final int GRAM_LENGTH = 3;
+
+    // sets a bit above the characters that tells the length of the gram, so that no gram packs to 0
+    // and grams of different lengths never pack to the same long
+    private static final int MARKER_SHIFT = 48;
+
+    private final LongIntMap listsByGram = new LongIntMap(1024);
+    private final List<PostingList> postingLists = new ArrayList<>();
+    // Slots of postingLists whose list was dropped, to be reused before the list grows
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+
+    /**
+     * Adds a word to the posting list of every gram of it.
+     *
+     * @param number Number of the word
+     * @param word Lower case word
+     */
+    void add(long number, String word) {
+        for (long gram : grams(word)) {
+            int list = listsByGram.get(gram, -1);
+            if (list < 0) {
+                if (freeSlots.isEmpty()) {
+                    list = postingLists.size();
+                    postingLists.add(new PostingList());
+                } else {
+                    list = freeSlots.pop();
+                    postingLists.set(list, new PostingList());
+                }
+                listsByGram.put(gram, list);
+            }
+            postingLists.get(list).add(number);
+        }
+    }
+
+    /**
+     * Removes a word from the posting list of every gram of it, dropping the lists it leaves empty.
+     *
+     * @param number Number of the word
+     * @param word Lower case word, as it was added
+     */
+    void remove(long number, String word) {
+        for (long gram : grams(word)) {
+            int list = listsByGram.get(gram, -1);
+            if (list < 0) {
+                continue;
+            }
+            PostingList numbers = postingLists.get(list);
+            numbers.remove(number);
+            if (numbers.size() == 0) {
+                listsByGram.remove(gram);
+                postingLists.set(list, null);
+                freeSlots.push(list);
+            }
+        }
+    }
+
+    /**
+     * Returns the numbers of the words that may contain the given keyword. For a keyword shorter than a trigram
+     * they are exactly the words containing it, otherwise the words that have every trigram of it.
+     *
+     * @param keyword Lower case keyword, which must not be empty
+     * @return Sorted numbers of the candidate words
+     */
+    long[] findCandidates(String keyword) {
+        long[] grams = keyword.length() < GRAM_LENGTH
+                ? new long[]{pack(keyword, 0, keyword.length())}
+                : gramsOfLength(keyword, GRAM_LENGTH);
+
+        PostingList[] lists = new PostingList[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            int list = listsByGram.get(grams[i], -1);
+            if (list < 0) {
+                return new long[0];
+            }
+            lists[i] = postingLists.get(list);
+        }
+        // start from the rarest trigram, so that every intersection is as small as it can be
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size(), b.size()));
+        long[] candidates = lists[0].toArray();
+        for (int i = 1; i < lists.length && candidates.length > 0; i++) {
+            candidates = lists[i].retainAll(candidates);
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the number of distinct grams in the index.
+     *
+     * @return Number of grams
+     */
+    int getGramCount() {
+        return listsByGram.size();
+    }
+
+    /**
+     * Estimates the heap memory taken by the index, counting array contents and object headers
+     * as they are laid out on a 64 bit JVM with compressed references.
+     *
+     * @return Approximate size of the index in bytes
+     */
+    long estimateMemoryBytes() {
+        long bytes = listsByGram.estimateMemoryBytes();
+        bytes += 16 + 4L * postingLists.size(); // the list of posting lists
+        bytes += 16L * freeSlots.size(); // the boxed free slots
+        for (PostingList list : postingLists) {
+            if (list != null) {
+                bytes += list.estimateMemoryBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the distinct grams of every length up to a trigram of a lower case word, each packed into a long.
+     */
+    private static long[] grams(String word) {
+        long[] grams = new long[GRAM_LENGTH * word.length()];
+        int size = 0;
+        for (int length = 1; length <= GRAM_LENGTH; length++) {
+            long[] ofLength = gramsOfLength(word, length);
+            System.arraycopy(ofLength, 0, grams, size, ofLength.length);
+            size += ofLength.length;
+        }
+        return Arrays.copyOf(grams, size);
+    }
+
+    /**
+     * Returns the distinct grams of the given length of lower case text, each packed into a long.
+     */
+    private static long[] gramsOfLength(String text, int length) {
+        if (text.length() < length) {
+            return new long[0];
+        }
+        long[] grams = new long[text.length() - length + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = pack(text, i, length);
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    private static long pack(String text, int start, int length) {
+        long gram = 1L << (MARKER_SHIFT + length - 1);
+        for (int i = 0; i < length; i++) {
+            gram |= (long) text.charAt(start + i) << (Character.SIZE * (length - 1 - i));
+        }
+        return gram;
+    }
+}
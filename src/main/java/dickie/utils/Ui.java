@@ -2,12 +2,14 @@ package dickie.utils;
 
 import dickie.task.Task;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.List;
 
 public class Ui {
     public String showTaskAdded(Task task, int size) {
         return "okie, I've added the task:\n"
-               + task.toString() +
+               + describe(task) +
                "\nyou now have " + size + " tasks in your list.";
     }
 
@@ -24,11 +26,30 @@ public class Ui {
                 + "\nyou now have " + taskListSize + " tasks in your list.";
     }
 
+    /**
+     * Displays the tasks changed by a command on a selection of tasks, such as "mark 1-5".
+     *
+     * @param heading Line describing the change
+     * @param changedTasks Tasks changed, in list order
+     */
+    public String showTasksChanged(String heading, List<Task> changedTasks) {
+        if (changedTasks.isEmpty()) {
+            return "no tasks matched, so nothing changed!";
+        }
+        StringBuilder sb = new StringBuilder(heading);
+        for (Task task : changedTasks) {
+            sb.append("\n- ");
+            describe(sb, task);
+        }
+        return sb.toString();
+    }
+
     public String showFoundTasks(ArrayList<Task> foundTasks) {
         StringBuilder sb = new StringBuilder("Here are the matching tasks in your list:");
         int idx = 1;
         for (Task task: foundTasks) {
-            sb.append("\n" + idx + ". " + task.toString());
+            sb.append('\n').append(idx).append(". ");
+            describe(sb, task);
             idx++;
         }
         return sb.toString();
@@ -40,23 +61,119 @@ public class Ui {
      * @param taskList The TaskList object containing all tasks to be displayed
      */
     public String listTasks(TaskList taskList) {
-        if (taskList.getSize() == 0)  {
+        List<Task> arrayTaskList = taskList.getTasks();
+        if (arrayTaskList.isEmpty())  {
             return "you currently have no tasks in your tasklist!";
         }
         StringBuilder sb = new StringBuilder();
-        ArrayList<Task> arrayTaskList = taskList.getTasks();
         int number = 1;
         for (Task task : arrayTaskList) {
-            if (number == 1) {
-                sb.append(number + ". " + task.toString());
-            } else {
-                sb.append("\n" + number + ". " + task.toString());
+            if (number > 1) {
+                sb.append('\n');
             }
+            sb.append(number).append(". ");
+            describe(sb, task);
             number++;
         }
         return sb.toString();
     }
 
+    /**
+     * Displays the tasks found by a search by date, in the order given.
+     *
+     * @param heading Line describing the search
+     * @param datedTasks Tasks found
+     */
+    public String showDatedTasks(String heading, List<Task> datedTasks) {
+        if (datedTasks.isEmpty()) {
+            return "nothing there, you're all clear!";
+        }
+        StringBuilder sb = new StringBuilder(heading);
+        int idx = 1;
+        for (Task task : datedTasks) {
+            sb.append('\n').append(idx).append(". ");
+            describe(sb, task);
+            idx++;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Warns about the events a newly added event clashes with, if there are any.
+     *
+     * @param clashes Events sharing a day with the new event
+     * @return Warning to append to the message, or an empty String if there are no clashes
+     */
+    public String showClashes(List<Task> clashes) {
+        if (clashes.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder("\nheads up, it clashes with:");
+        for (Task task : clashes) {
+            sb.append("\n- ");
+            describe(sb, task);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Displays the runs of days with no events on them.
+     *
+     * @param freeDays First and last date of every free run
+     */
+    public String showFreeDays(List<LocalDate[]> freeDays) {
+        if (freeDays.isEmpty()) {
+            return "no free days there, you're fully booked!";
+        }
+        StringBuilder sb = new StringBuilder("you're free on:");
+        for (LocalDate[] days : freeDays) {
+            sb.append("\n- " + (days[0].equals(days[1]) ? days[0] : days[0] + " to " + days[1]));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Displays the number of tasks and the memory taken by the search index.
+     *
+     * @param taskList The TaskList object whose statistics are displayed
+     */
+    public String showStats(TaskList taskList) {
+        int size = taskList.getSize();
+        long indexBytes = taskList.getSearchIndexMemory();
+        return "you have " + size + " tasks in your list."
+                + "\nsearch index: " + taskList.getSearchIndexWordCount() + " words, about "
+                + (indexBytes + 1023) / 1024 + " KiB"
+                + (size == 0 ? "" : " (" + indexBytes / size + " bytes per task)");
+    }
+
+    public String showBatchStarted() {
+        return "okie, send me your commands and type \"commit\" to run them all at once,"
+                + " or \"rollback\" to drop them.";
+    }
+
+    public String showBatchQueued(int count) {
+        return "queued! that's " + count + " commands waiting for \"commit\".";
+    }
+
+    public String showBatchDropped(int count) {
+        return "aite, dropped " + count + " commands, nothing changed.";
+    }
+
+    public String showBatchStillOpen(int count) {
+        return "wait! " + count + " commands are still waiting, type \"commit\" to run them"
+                + " or \"rollback\" to drop them before you go.";
+    }
+
+    /**
+     * Explains that a batch of commands was undone because one of them failed.
+     *
+     * @param input Command that failed
+     * @param message Why the command failed
+     */
+    public String showBatchFailed(String input, String message) {
+        return "\"" + input.trim() + "\" didn't work: " + message + "\nso I didn't change anything!";
+    }
+
     /**
      * Prints the greeting message when the program starts.
      */
@@ -71,4 +188,29 @@ public class Ui {
     public String showGoodbye() {
         return "Byee. See ya~";
     }
+
+    /**
+     * Describes a task followed by its id, which can be used in place of its number in commands.
+     *
+     * @param task Task to describe
+     * @return Description of the task and its id
+     */
+    private static String describe(Task task) {
+        return describe(new StringBuilder(), task).toString();
+    }
+
+    /**
+     * Appends the description of a task followed by its id, without building the joined String.
+     *
+     * @param sb StringBuilder to append to
+     * @param task Task to describe
+     * @return The same StringBuilder
+     */
+    private static StringBuilder describe(StringBuilder sb, Task task) {
+        sb.append(task.toString());
+        if (task.getId() != 0) {
+            sb.append(" (#").append(task.getId()).append(')');
+        }
+        return sb;
+    }
 }
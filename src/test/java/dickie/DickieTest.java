@@ -1,6 +1,11 @@
 package dickie;
 
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -9,11 +14,23 @@ import static org.junit.jupiter.api.Assertions.*;
 // Tests focus on observable behaviour only, avoiding private methods and implementation details.
 // All test cases were reviewed and adapted to align with the project architecture and JUnit 5 standards.
 public class DickieTest {
+    @TempDir
+    Path tempDir;
+
+    private Dickie dickie;
+
+    @BeforeEach
+    public void setUp() {
+        dickie = new Dickie(tempDir.resolve("dickie.txt").toString());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dickie.close();
+    }
 
     @Test
     public void getGreeting_validCall_returnsNonNullGreeting() {
-        Dickie dickie = new Dickie();
-
         String greeting1 = dickie.getGreeting();
         String greeting2 = dickie.getGreeting();
 
@@ -23,8 +40,6 @@ public class DickieTest {
 
     @Test
     public void getResponse_inputBye_returnsGoodbyeMessage() {
-        Dickie dickie = new Dickie();
-
         String response = dickie.getResponse("bye");
 
         assertNotNull(response);
@@ -33,8 +48,6 @@ public class DickieTest {
 
     @Test
     public void getResponse_invalidCommand_returnsErrorMessage() {
-        Dickie dickie = new Dickie();
-
         String response = dickie.getResponse("invalidcommand123");
 
         assertNotNull(response);
@@ -43,8 +56,6 @@ public class DickieTest {
 
     @Test
     public void getResponse_emptyInput_returnsErrorMessage() {
-        Dickie dickie = new Dickie();
-
         String response = dickie.getResponse("");
 
         assertNotNull(response);
@@ -53,8 +64,6 @@ public class DickieTest {
 
     @Test
     public void getResponse_whitespaceInput_returnsErrorMessage() {
-        Dickie dickie = new Dickie();
-
         String response = dickie.getResponse("   ");
 
         assertNotNull(response);
@@ -63,8 +72,6 @@ public class DickieTest {
 
     @Test
     public void getResponse_validTodoCommand_returnsSuccessMessage() {
-        Dickie dickie = new Dickie();
-
         String response = dickie.getResponse("todo read book /p low");
 
         assertNotNull(response);
@@ -73,8 +80,6 @@ public class DickieTest {
 
     @Test
     public void getResponse_addThenList_taskAppearsInList() {
-        Dickie dickie = new Dickie();
-
         dickie.getResponse("todo read book /p low");
         String listResponse = dickie.getResponse("list");
 
@@ -84,8 +89,6 @@ public class DickieTest {
 
     @Test
     public void getResponse_multipleSequentialCalls_noCrash() {
-        Dickie dickie = new Dickie();
-
         assertDoesNotThrow(() -> {
             dickie.getResponse("todo A /p low");
             dickie.getResponse("todo B /p medium");
@@ -93,4 +96,44 @@ public class DickieTest {
             dickie.getResponse("bye");
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getResponse_beginThenRollback_dropsQueuedCommands() {
+        dickie.getResponse("begin");
+        String queued = dickie.getResponse("todo read book /p low");
+        String dropped = dickie.getResponse("rollback");
+
+        assertTrue(queued.contains("1 commands"));
+        assertTrue(dropped.contains("dropped 1"));
+    }
+
+    @Test
+    public void getResponse_semicolonWithoutBatchPrefix_addsOneTask() {
+        dickie.getResponse("todo buy milk; eggs /p low");
+        String listResponse = dickie.getResponse("list");
+
+        assertTrue(listResponse.contains("buy milk; eggs"));
+    }
+
+    @Test
+    public void getResponse_batchPrefix_runsEveryCommand() {
+        dickie.getResponse("batch todo buy milk /p low; todo buy eggs /p low; mark 2");
+        String listResponse = dickie.getResponse("list");
+
+        assertTrue(listResponse.contains("buy milk"));
+        assertTrue(listResponse.contains("[X][LOW] buy eggs"));
+    }
+
+    @Test
+    public void getResponse_byeInsideBlock_refusedUntilCommitted() {
+        dickie.getResponse("begin");
+        dickie.getResponse("todo read book /p low");
+        String refused = dickie.getResponse("bye");
+
+        assertTrue(refused.contains("commit"));
+        assertTrue(dickie.isInBatch());
+        dickie.getResponse("commit");
+        assertFalse(dickie.isInBatch());
+        assertTrue(dickie.getResponse("list").contains("read book"));
+    }
+}
@@ -0,0 +1,144 @@
+package dickie.benchmark;
+
+import dickie.exception.DickieException;
+import dickie.task.Task;
+import dickie.utils.Storage;
+import dickie.utils.StorageConfig;
+import dickie.utils.StorageFormat;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Scanner;
+
+/**
+ * Compares the load throughput of Storage.load() on text files, sequential and parallel, on binary files,
+ * eager and lazy, and on compressed files with the Scanner and regex split based loader it replaced.
+ * Throughput is measured against the size of the text file, so the binary and compressed figures
+ * include their smaller size.
+ * Run with "./gradlew benchmark -Pbench=LoadBenchmark", optionally passing the number of tasks as an argument.
+ */
+public class LoadBenchmark {
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path directory = Files.createTempDirectory("dickie-bench");
+        Path file = directory.resolve("dickie.txt");
+        writeTasks(file, taskCount);
+        double megabytes = Files.size(file) / (1024.0 * 1024.0);
+        System.out.printf("%d tasks, %.1f MB%n", taskCount, megabytes);
+
+        // loading the text file with the default config would migrate it to binary
+        StorageConfig sequentialConfig = new StorageConfig();
+        sequentialConfig.setFormat(StorageFormat.TEXT);
+        sequentialConfig.setParallelLoadThreshold(Long.MAX_VALUE);
+        StorageConfig parallelConfig = new StorageConfig();
+        parallelConfig.setFormat(StorageFormat.TEXT);
+        parallelConfig.setParallelLoadThreshold(0);
+
+        StorageConfig eagerConfig = new StorageConfig();
+        eagerConfig.setLazyLoading(false);
+
+        Path binaryFile = directory.resolve("dickie.bin");
+        Files.copy(file, binaryFile);
+        new Storage(binaryFile.toString()).load();
+        System.out.printf("binary file: %.1f MB%n", Files.size(binaryFile) / (1024.0 * 1024.0));
+
+        Path compressedFile = directory.resolve("dickie.txt.gz");
+        Files.copy(file, compressedFile);
+        new Storage(compressedFile.toString()).load();
+        System.out.printf("compressed file: %.1f MB%n", Files.size(compressedFile) / (1024.0 * 1024.0));
+
+        long scannerNanos = Long.MAX_VALUE;
+        long mappedNanos = Long.MAX_VALUE;
+        long parallelNanos = Long.MAX_VALUE;
+        long binaryNanos = Long.MAX_VALUE;
+        long lazyNanos = Long.MAX_VALUE;
+        long compressedNanos = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            int scannerCount = loadWithScanner(file);
+            scannerNanos = Math.min(scannerNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            int mappedCount = new Storage(file.toString(), sequentialConfig).load().size();
+            mappedNanos = Math.min(mappedNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            int parallelCount = new Storage(file.toString(), parallelConfig).load().size();
+            parallelNanos = Math.min(parallelNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            int binaryCount = new Storage(binaryFile.toString(), eagerConfig).load().size();
+            binaryNanos = Math.min(binaryNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            int lazyCount = new Storage(binaryFile.toString()).load().size();
+            lazyNanos = Math.min(lazyNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            int compressedCount = new Storage(compressedFile.toString()).load().size();
+            compressedNanos = Math.min(compressedNanos, System.nanoTime() - start);
+
+            if (scannerCount != mappedCount || mappedCount != parallelCount || parallelCount != binaryCount
+                    || binaryCount != lazyCount || lazyCount != compressedCount) {
+                throw new IllegalStateException("All loaders should read every task");
+            }
+        }
+
+        System.out.printf("Scanner + split:           %8.1f MB/s%n", megabytes / (scannerNanos / 1e9));
+        System.out.printf("Storage.load() sequential: %8.1f MB/s%n", megabytes / (mappedNanos / 1e9));
+        System.out.printf("Storage.load() parallel:   %8.1f MB/s (%d cores)%n", megabytes / (parallelNanos / 1e9),
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("Storage.load() binary:     %8.1f MB/s%n", megabytes / (binaryNanos / 1e9));
+        System.out.printf("Storage.load() lazy:       %8.1f MB/s%n", megabytes / (lazyNanos / 1e9));
+        System.out.printf("Storage.load() compressed: %8.1f MB/s%n", megabytes / (compressedNanos / 1e9));
+    }
+
+    /**
+     * Writes a data file with a repeating mix of todos, deadlines and events.
+     */
+    static void writeTasks(Path file, int taskCount) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < taskCount; i++) {
+                switch (i % 3) {
+                case 0:
+                    writer.write("T | X | read chapter " + i + " of the book | HIGH");
+                    break;
+                case 1:
+                    writer.write("D |   | submit report " + i + " | 2026-03-01 | MEDIUM");
+                    break;
+                default:
+                    writer.write("E |   | team offsite " + i + " | 2026-03-10 | 2026-03-12 | LOW");
+                    break;
+                }
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Loads the file the way Storage.load() did before it was memory-mapped.
+     */
+    private static int loadWithScanner(Path file) throws IOException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        try (Scanner s = new Scanner(new File(file.toString()), StandardCharsets.UTF_8)) {
+            while (s.hasNextLine()) {
+                String nextLine = s.nextLine().trim();
+                if (!nextLine.isEmpty()) {
+                    try {
+                        tasks.add(Storage.parseTask(nextLine));
+                    } catch (DickieException e) {
+                        System.out.println("Skipping invalid line: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return tasks.size();
+    }
+}
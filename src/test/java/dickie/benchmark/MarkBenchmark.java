@@ -0,0 +1,122 @@
+package dickie.benchmark;
+
+import dickie.task.Priority;
+import dickie.task.Task;
+import dickie.task.Todo;
+import dickie.utils.Journal;
+import dickie.utils.TaskList;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures the throughput of marking and unmarking random tasks by id from several threads at once,
+ * with the striped task locks of TaskList, and with every change also taking one global lock as it did
+ * when mark() and unmark() were synchronized on the whole list. Each is measured with a journal attached,
+ * as the app runs, and the striped locks without one too, to show what writing the journal costs.
+ * The tasks are listed once before measuring, as the app does on start, so that every change also has to reach
+ * the snapshot that listing reads.
+ * Threads only run in parallel with more than one core, so the core count is printed with the results, and
+ * threads are added up to at least the number of cores.
+ * Run with "./gradlew benchmark -Pbench=MarkBenchmark", optionally passing the number of tasks as an argument.
+ */
+public class MarkBenchmark {
+    private static final int RUNS = 3;
+    private static final int OPERATIONS_PER_THREAD = 200_000;
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int coreCount = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d tasks, %d cores%n", taskCount, coreCount);
+        Path directory = Files.createTempDirectory("dickie-bench");
+
+        for (int threadCount = 1; threadCount <= Math.max(8, coreCount); threadCount *= 2) {
+            double stripedRate = 0;
+            double journaledRate = 0;
+            double globalRate = 0;
+            for (int run = 0; run < RUNS; run++) {
+                stripedRate = Math.max(stripedRate, measure(createTaskList(taskCount, null), taskCount,
+                        threadCount, null));
+                Path journalPath = directory.resolve("striped.journal");
+                journaledRate = Math.max(journaledRate, measure(createTaskList(taskCount, journalPath), taskCount,
+                        threadCount, null));
+                Files.delete(journalPath);
+                journalPath = directory.resolve("global.journal");
+                globalRate = Math.max(globalRate, measure(createTaskList(taskCount, journalPath), taskCount,
+                        threadCount, new Object()));
+                Files.delete(journalPath);
+            }
+            System.out.printf("%d threads: striped %10.0f ops/s, striped + journal %10.0f ops/s, "
+                    + "global lock + journal %10.0f ops/s%n", threadCount, stripedRate, journaledRate, globalRate);
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Creates a list of tasks, attaching a journal at the given path unless it is null.
+     */
+    private static TaskList createTaskList(int taskCount, Path journalPath) {
+        List<Task> tasks = new ArrayList<>(taskCount);
+        Priority[] priorities = Priority.values();
+        for (int i = 0; i < taskCount; i++) {
+            tasks.add(new Todo("task " + i, priorities[i % priorities.length]));
+        }
+        TaskList taskList = new TaskList(tasks);
+        // the first add moves the tasks into priority buckets, as in a list that has been used
+        taskList.addTask(new Todo("task " + taskCount, Priority.LOW));
+        if (journalPath != null) {
+            taskList.setJournal(new Journal(journalPath));
+        }
+        taskList.getTasks();
+        return taskList;
+    }
+
+    /**
+     * Runs the given number of threads that each mark or unmark random tasks, and returns the total throughput.
+     *
+     * @param globalLock Lock every change also takes, or null to rely on the task list's own locks
+     */
+    private static double measure(TaskList taskList, int taskCount, int threadCount, Object globalLock)
+            throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    String taskNumber = "#" + (random.nextInt(taskCount) + 1);
+                    if (globalLock == null) {
+                        toggle(taskList, taskNumber, i);
+                    } else {
+                        synchronized (globalLock) {
+                            toggle(taskList, taskNumber, i);
+                        }
+                    }
+                }
+            }));
+        }
+
+        long start = System.nanoTime();
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long nanos = System.nanoTime() - start;
+        if (taskList.getVersion() != (long) threadCount * OPERATIONS_PER_THREAD + 1
+                || taskList.getTasks().size() != taskCount + 1) {
+            throw new IllegalStateException("Every change should count");
+        }
+        return (double) threadCount * OPERATIONS_PER_THREAD / (nanos / 1e9);
+    }
+
+    private static void toggle(TaskList taskList, String taskNumber, int i) {
+        if (i % 2 == 0) {
+            taskList.mark(taskNumber);
+        } else {
+            taskList.unmark(taskNumber);
+        }
+    }
+}
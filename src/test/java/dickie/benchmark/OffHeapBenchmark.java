@@ -0,0 +1,106 @@
+package dickie.benchmark;
+
+import dickie.task.Task;
+import dickie.utils.Storage;
+import dickie.utils.StorageConfig;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Compares the heap used by a loaded list of tasks held as objects, in columns on the heap and in columns
+ * off the heap, and how long a full collection takes while the list is alive.
+ * Run with "./gradlew benchmark -Pbench=OffHeapBenchmark", optionally passing the number of tasks as an argument.
+ */
+public class OffHeapBenchmark {
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path directory = Files.createTempDirectory("dickie-bench");
+        Path file = directory.resolve("dickie.txt");
+        LoadBenchmark.writeTasks(file, taskCount);
+        // migrate the text file to binary once, so every config loads the same file
+        new Storage(file.toString()).load();
+        System.out.printf("%d tasks%n", taskCount);
+
+        StorageConfig objectConfig = new StorageConfig();
+        objectConfig.setLazyLoading(false);
+        StorageConfig columnarConfig = new StorageConfig();
+        columnarConfig.setColumnar(true);
+        StorageConfig offHeapConfig = new StorageConfig();
+        offHeapConfig.setColumnar(true);
+        offHeapConfig.setOffHeap(true);
+
+        measure("objects", file, objectConfig);
+        measure("columns on heap", file, columnarConfig);
+        measure("columns off heap", file, offHeapConfig);
+    }
+
+    /**
+     * Loads the file with the given config and reports the memory the list holds and the time
+     * a full collection takes while it is alive.
+     */
+    private static void measure(String name, Path file, StorageConfig config) {
+        long heapBefore = usedHeapAfterGc();
+        long directBefore = directMemory();
+        List<Task> tasks = new Storage(file.toString(), config).load();
+        long heap = usedHeapAfterGc() - heapBefore;
+        long direct = directMemory() - directBefore;
+
+        long gcNanos = Long.MAX_VALUE;
+        long collectorMillis = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long collectorBefore = collectionMillis();
+            long start = System.nanoTime();
+            System.gc();
+            gcNanos = Math.min(gcNanos, System.nanoTime() - start);
+            collectorMillis = Math.min(collectorMillis, collectionMillis() - collectorBefore);
+        }
+
+        long scanStart = System.nanoTime();
+        int done = 0;
+        for (Task task : tasks) {
+            if (task.isDone()) {
+                done++;
+            }
+        }
+        long scanNanos = System.nanoTime() - scanStart;
+        if (done != (tasks.size() + 2) / 3) {
+            throw new IllegalStateException("Every third task should be done");
+        }
+
+        System.out.printf("%-17s heap %6.1f MB, direct %6.1f MB, full GC %6.1f ms (collector %d ms), "
+                + "scan %6.1f ms%n", name + ":", heap / (1024.0 * 1024.0), direct / (1024.0 * 1024.0),
+                gcNanos / 1e6, collectorMillis, scanNanos / 1e6);
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long directMemory() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    private static long collectionMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+}
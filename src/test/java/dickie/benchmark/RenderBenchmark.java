@@ -0,0 +1,151 @@
+package dickie.benchmark;
+
+import dickie.task.Deadline;
+import dickie.task.Event;
+import dickie.task.Priority;
+import dickie.task.Task;
+import dickie.task.Todo;
+import dickie.utils.TaskList;
+import dickie.utils.Ui;
+
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares rendering every task for "list" and encoding every task for a text save, the first time and
+ * again on the unchanged list, with the String.format and LocalDate.parse based rendering they replaced.
+ * Run with "./gradlew benchmark -Pbench=RenderBenchmark", optionally passing the number of tasks as an argument.
+ */
+public class RenderBenchmark {
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 300_000;
+        Ui ui = new Ui();
+        System.out.printf("%d tasks%n", taskCount);
+
+        long uncachedListNanos = Long.MAX_VALUE;
+        long uncachedSaveNanos = Long.MAX_VALUE;
+        long firstListNanos = Long.MAX_VALUE;
+        long repeatedListNanos = Long.MAX_VALUE;
+        long firstSaveNanos = Long.MAX_VALUE;
+        long repeatedSaveNanos = Long.MAX_VALUE;
+        long blackhole = 0;
+        for (int run = 0; run < RUNS; run++) {
+            List<Task> tasks = createTasks(taskCount);
+            TaskList taskList = new TaskList(tasks);
+
+            long start = System.nanoTime();
+            blackhole += listWithoutCache(tasks).length();
+            uncachedListNanos = Math.min(uncachedListNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            blackhole += encodeWithoutCache(tasks).length();
+            uncachedSaveNanos = Math.min(uncachedSaveNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            blackhole += ui.listTasks(taskList).length();
+            firstListNanos = Math.min(firstListNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            blackhole += ui.listTasks(taskList).length();
+            repeatedListNanos = Math.min(repeatedListNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            blackhole += encode(taskList.getTasks()).length();
+            firstSaveNanos = Math.min(firstSaveNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            blackhole += encode(taskList.getTasks()).length();
+            repeatedSaveNanos = Math.min(repeatedSaveNanos, System.nanoTime() - start);
+        }
+
+        System.out.printf("list, uncached:       %8.1f ms%n", uncachedListNanos / 1e6);
+        System.out.printf("list, first:          %8.1f ms%n", firstListNanos / 1e6);
+        System.out.printf("list, repeated:       %8.1f ms%n", repeatedListNanos / 1e6);
+        System.out.printf("save text, uncached:  %8.1f ms%n", uncachedSaveNanos / 1e6);
+        System.out.printf("save text, first:     %8.1f ms%n", firstSaveNanos / 1e6);
+        System.out.printf("save text, repeated:  %8.1f ms%n", repeatedSaveNanos / 1e6);
+        System.out.println("(" + blackhole + " characters rendered)");
+    }
+
+    /**
+     * Creates a repeating mix of todos, deadlines and events.
+     */
+    static List<Task> createTasks(int taskCount) {
+        List<Task> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            switch (i % 3) {
+            case 0:
+                tasks.add(new Todo("read chapter " + i + " of the book", Priority.HIGH, true));
+                break;
+            case 1:
+                tasks.add(new Deadline("submit report " + i, "2026-03-01", Priority.MEDIUM));
+                break;
+            default:
+                tasks.add(new Event("team offsite " + i, "2026-03-10", "2026-03-12", Priority.LOW));
+                break;
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Encodes every task the way a text save does.
+     */
+    private static String encode(List<Task> tasks) {
+        StringWriter writer = new StringWriter();
+        for (Task task : tasks) {
+            writer.write(task.toFileString());
+            writer.write(System.lineSeparator());
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Renders every task for "list" the way Deadline and Event did before their dates were typed and cached.
+     */
+    private static String listWithoutCache(List<Task> tasks) {
+        StringBuilder sb = new StringBuilder();
+        int number = 1;
+        for (Task task : tasks) {
+            String prefix = task.getStatusIcon() + task.getPriorityString() + " " + task.getDescription();
+            String line = switch (task.getTaskType()) {
+                case TODO -> "[T]" + prefix;
+                case DEADLINE -> "[D]" + prefix + " (by: " + LocalDate.parse(((Deadline) task).getBy().toString())
+                        .format(DateTimeFormatter.ofPattern("MMM d yyyy")) + ")";
+                case EVENT -> "[E]" + prefix + " (from: "
+                        + LocalDate.parse(((Event) task).getFrom().toString())
+                                .format(DateTimeFormatter.ofPattern("MMM d yyyy"))
+                        + " to: " + LocalDate.parse(((Event) task).getTo().toString())
+                                .format(DateTimeFormatter.ofPattern("MMM d yyyy")) + ")";
+            };
+            sb.append("\n" + number + ". " + line + " (#" + task.getId() + ")");
+            number++;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Encodes every task with String.format, the way toFileString did before it was cached.
+     */
+    private static String encodeWithoutCache(List<Task> tasks) {
+        StringWriter writer = new StringWriter();
+        for (Task task : tasks) {
+            String line = switch (task.getTaskType()) {
+                case TODO -> String.format("T | %s | %s | %s", task.getFileStatusIcon(), task.getDescription(),
+                        task.getPriority());
+                case DEADLINE -> String.format("D | %s | %s | %s | %s", task.getFileStatusIcon(),
+                        task.getDescription(), ((Deadline) task).getBy(), task.getPriority());
+                case EVENT -> String.format("E | %s | %s | %s | %s | %s", task.getFileStatusIcon(),
+                        task.getDescription(), ((Event) task).getFrom(), ((Event) task).getTo(),
+                        task.getPriority());
+            };
+            writer.write(line + System.lineSeparator());
+        }
+        return writer.toString();
+    }
+}
@@ -7,6 +7,7 @@ import dickie.utils.Ui;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -73,6 +74,50 @@ class CommandParserTest {
                 CommandParser.getInputCommandType(new String[]{"list"}, 0));
     }
 
+    @Test
+    void getInputCommandType_statsValid_returnsStats() throws DickieException {
+        assertEquals(CommandType.STATS,
+                CommandParser.getInputCommandType(new String[]{"stats"}, 0));
+    }
+
+    @Test
+    void getInputCommandType_dateSearches_returnsDateCommands() throws DickieException {
+        assertEquals(CommandType.DUE,
+                CommandParser.getInputCommandType(new String[]{"due", "/before", "2026-11-01"},0));
+        assertEquals(CommandType.ON,
+                CommandParser.getInputCommandType(new String[]{"on", "2026-10-20"},0));
+        assertEquals(CommandType.UPCOMING,
+                CommandParser.getInputCommandType(new String[]{"upcoming", "7"},0));
+    }
+
+    @Test
+    void getInputCommandType_invalidDateSearches_throwsException() {
+        assertThrows(DickieException.class, () ->
+                CommandParser.getInputCommandType(new String[]{"due", "2026-11-01"},0));
+        assertThrows(DickieException.class, () ->
+                CommandParser.getInputCommandType(new String[]{"on", "20-10-2026"},0));
+        assertThrows(DickieException.class, () ->
+                CommandParser.getInputCommandType(new String[]{"upcoming", "-1"},0));
+        assertThrows(DickieException.class, () ->
+                CommandParser.getInputCommandType(new String[]{"upcoming", "0"},0));
+    }
+
+    @Test
+    void getInputCommandType_firstAndLastPossibleDates_throwsException() {
+        assertThrows(DickieException.class, () ->
+                CommandParser.getInputCommandType(new String[]{"due", "/before", "-999999999-01-01"}, 0));
+        assertThrows(DickieException.class, () ->
+                CommandParser.getInputCommandType(new String[]{"on", "+999999999-12-31"}, 0));
+    }
+
+    @Test
+    void getInputCommandType_freeDates_acceptedOnlyInOrder() throws DickieException {
+        assertEquals(CommandType.FREE,
+                CommandParser.getInputCommandType(new String[]{"free", "2026-03-01", "2026-03-31"}, 0));
+        assertThrows(DickieException.class, () ->
+                CommandParser.getInputCommandType(new String[]{"free", "2026-03-31", "2026-03-01"}, 0));
+    }
+
     @Test
     void getInputCommandType_listWithExtraArgs_throwsException() {
         assertThrows(DickieException.class, () ->
@@ -141,4 +186,64 @@ class CommandParserTest {
         assertThrows(DickieException.class, () ->
                 CommandParser.handleInput("invalid", taskList, ui));
     }
+
+    @Test
+    void isValidTaskNumber_taskId_returnsTrue() {
+        assertTrue(CommandParser.isValidTaskNumber("#12", 3));
+    }
+
+    @Test
+    void isTaskId_zeroOrMissingDigits_returnsFalse() {
+        assertFalse(CommandParser.isTaskId("#0"));
+        assertFalse(CommandParser.isTaskId("#"));
+        assertFalse(CommandParser.isTaskId("#1a"));
+    }
+
+    @Test
+    void isValidTaskSelection_rangesListsAndFilters_acceptedOnlyWithinList() {
+        assertTrue(CommandParser.isValidTaskSelection("1-3", 3));
+        assertTrue(CommandParser.isValidTaskSelection("3,1,#12,2-2", 3));
+        assertTrue(CommandParser.isValidTaskSelection("/done", 0));
+        assertFalse(CommandParser.isValidTaskSelection("2-4", 3));
+        assertFalse(CommandParser.isValidTaskSelection("3-1", 3));
+        assertFalse(CommandParser.isValidTaskSelection("1,,2", 3));
+        assertFalse(CommandParser.isValidTaskSelection("1,", 3));
+        assertFalse(CommandParser.isValidTaskSelection("#1-#2", 3));
+    }
+
+    @Test
+    void handleInput_deleteRange_deletesEveryTaskInRange() throws DickieException {
+        TaskList taskList = new TaskList(new ArrayList<>());
+        Ui ui = new Ui();
+        for (int i = 1; i <= 5; i++) {
+            CommandParser.handleInput("todo task " + i + " /p LOW", taskList, ui);
+        }
+
+        String result = CommandParser.handleInput("delete 2-4", taskList, ui);
+
+        assertEquals(2, taskList.getSize());
+        assertTrue(result.endsWith("you now have 2 tasks in your list."));
+    }
+
+    @Test
+    void handleBatch_invalidCommandAtEnd_undoesEveryEarlierCommand() throws DickieException {
+        TaskList taskList = new TaskList(new ArrayList<>());
+        Ui ui = new Ui();
+        CommandParser.handleInput("todo read book /p HIGH", taskList, ui);
+        CommandParser.handleInput("todo buy milk /p LOW", taskList, ui);
+        CommandParser.handleInput("deadline file taxes /by 2026-04-30 /p MEDIUM", taskList, ui);
+        String before = ui.listTasks(taskList);
+        taskList.find("milk");
+
+        DickieException e = assertThrows(DickieException.class, () -> CommandParser.handleBatch(
+                List.of("mark 1", "delete 2", "todo walk dog /p LOW", "unmark 3", "delete 1-2", "deadline no date"),
+                taskList, ui));
+
+        assertTrue(e.getMessage().startsWith("\"deadline no date\" didn't work"));
+        assertEquals(before, ui.listTasks(taskList));
+        assertEquals(1, taskList.find("milk").size());
+        assertTrue(taskList.find("walk").isEmpty());
+        CommandParser.handleInput("todo walk dog /p LOW", taskList, ui);
+        assertEquals(4, taskList.indexOfId(4) + 1);
+    }
 }
@@ -48,6 +48,19 @@ class DeadlineTest {
         assertTrue(result.contains("X")); // assuming done icon is X
     }
 
+    @Test
+    void toString_afterMarkAndUnmark_reflectsStatus() {
+        Deadline deadline = new Deadline("submit report",
+                "2024-06-30",
+                Priority.HIGH);
+
+        assertTrue(deadline.toString().contains("[ ]"));
+        deadline.mark();
+        assertTrue(deadline.toString().contains("[X]"));
+        deadline.unmark();
+        assertTrue(deadline.toString().contains("[ ]"));
+    }
+
     @Test
     void toString_singleDigitDay_formatsWithoutLeadingZero() {
         Deadline deadline = new Deadline("task",
@@ -60,12 +73,10 @@ class DeadlineTest {
     }
 
     @Test
-    void toString_invalidDate_throwsException() {
-        Deadline deadline = new Deadline("task",
+    void constructor_invalidDate_throwsException() {
+        assertThrows(DateTimeParseException.class, () -> new Deadline("task",
                 "invalid-date",
-                Priority.LOW);
-
-        assertThrows(DateTimeParseException.class, deadline::toString);
+                Priority.LOW));
     }
 
     @Test
@@ -109,26 +109,36 @@ public class EventTest {
     }
 
     @Test
-    public void toString_invalidFromDate_throwsException() {
+    public void toFileString_afterMark_showsDoneStatus() {
         Event event = new Event(
+                "Workshop",
+                "2024-07-01",
+                "2024-07-02",
+                Priority.HIGH
+        );
+
+        assertTrue(event.toFileString().startsWith("E |   |"));
+        event.mark();
+        assertEquals("E | X | Workshop | 2024-07-01 | 2024-07-02 | HIGH", event.toFileString());
+    }
+
+    @Test
+    public void constructor_invalidFromDate_throwsException() {
+        assertThrows(DateTimeParseException.class, () -> new Event(
                 "Invalid event",
                 "invalid-date",
                 "2024-06-02",
                 Priority.LOW
-        );
-
-        assertThrows(DateTimeParseException.class, event::toString);
+        ));
     }
 
     @Test
-    public void toString_invalidToDate_throwsException() {
-        Event event = new Event(
+    public void constructor_invalidToDate_throwsException() {
+        assertThrows(DateTimeParseException.class, () -> new Event(
                 "Invalid event",
                 "2024-06-02",
                 "not-a-date",
                 Priority.LOW
-        );
-
-        assertThrows(DateTimeParseException.class, event::toString);
+        ));
     }
 }
\ No newline at end of file
@@ -23,7 +23,12 @@ class TaskTest {
         }
 
         @Override
-        public String toFileString() {
+        public TaskType getTaskType() {
+            return TaskType.TODO;
+        }
+
+        @Override
+        protected String renderFileString() {
             return "TEST";
         }
     }
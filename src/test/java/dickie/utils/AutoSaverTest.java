@@ -0,0 +1,85 @@
+package dickie.utils;
+
+import dickie.task.Priority;
+import dickie.task.Todo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AutoSaverTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void flush_unsavedMutations_writesSnapshot() throws Exception {
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+        AutoSaver autoSaver = new AutoSaver(storage, taskList, new StorageConfig());
+
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+        assertTrue(autoSaver.isDirty());
+
+        autoSaver.flush();
+
+        assertFalse(autoSaver.isDirty());
+        assertEquals("run marathon", new Storage(filePath).load().get(0).getDescription());
+        assertFalse(Files.exists(tempDir.resolve("dickie.txt.journal")));
+    }
+
+    @Test
+    public void start_mutationThresholdReached_savesInBackground() throws Exception {
+        StorageConfig config = new StorageConfig();
+        config.setAutosaveMutations(2);
+        config.setCompactionCheckInterval(Duration.ofMillis(10));
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath, config);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+        AutoSaver autoSaver = new AutoSaver(storage, taskList, config);
+        autoSaver.start();
+
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+        taskList.mark("1");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (autoSaver.isDirty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        autoSaver.stop();
+        assertFalse(autoSaver.isDirty());
+        assertTrue(Files.size(tempDir.resolve("dickie.bin")) > 0);
+        assertFalse(Files.exists(tempDir.resolve("dickie.txt.journal.1")));
+        assertEquals("T | X | run marathon | LOW", new Storage(filePath).load().get(0).toFileString());
+    }
+
+    @Test
+    public void stop_afterStart_stopsSavingInBackground() throws Exception {
+        StorageConfig config = new StorageConfig();
+        config.setAutosaveMutations(1);
+        config.setCompactionCheckInterval(Duration.ofMillis(10));
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath, config);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+        AutoSaver autoSaver = new AutoSaver(storage, taskList, config);
+        autoSaver.start();
+        autoSaver.start();
+
+        autoSaver.stop();
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+        Thread.sleep(100);
+
+        assertTrue(autoSaver.isDirty());
+        assertTrue(Files.exists(tempDir.resolve("dickie.txt.journal")));
+    }
+}
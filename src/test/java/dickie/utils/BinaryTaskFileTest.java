@@ -0,0 +1,141 @@
+package dickie.utils;
+
+import dickie.task.Deadline;
+import dickie.task.Event;
+import dickie.task.Priority;
+import dickie.task.Task;
+import dickie.task.Todo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BinaryTaskFileTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void read_writtenTasks_sameTasksSeqAndNextId() throws Exception {
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("caf\u00e9 run", Priority.LOW, true));
+        tasks.add(new Deadline("submit report", "2026-03-01", Priority.HIGH));
+        tasks.add(new Event("camp", "1969-12-30", "2026-04-03", Priority.MEDIUM, true));
+        Path file = tempDir.resolve("dickie.txt");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            BinaryTaskFile.write(out, tasks, 300, 42);
+        }
+
+        List<Task> read = new ArrayList<>();
+        BinaryTaskFile binaryFile = new BinaryTaskFile();
+        binaryFile.read(file, read);
+
+        assertEquals(300, binaryFile.getSeq());
+        assertEquals(42, binaryFile.getNextId());
+        assertEquals(tasks.size(), read.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).toFileString(), read.get(i).toFileString());
+        }
+    }
+
+    @Test
+    public void isBinary_textFile_returnsFalse() throws Exception {
+        Path file = tempDir.resolve("dickie.txt");
+        Files.writeString(file, "D |   | submit report | 2026-03-01 | HIGH");
+
+        assertFalse(BinaryTaskFile.isBinary(file));
+    }
+
+    private Path writeSample(List<Task> tasks) throws IOException {
+        tasks.add(new Todo("run marathon", Priority.LOW));
+        tasks.add(new Deadline("submit report", "2026-03-01", Priority.HIGH));
+        tasks.add(new Event("camp", "2026-04-01", "2026-04-03", Priority.MEDIUM));
+        Path file = tempDir.resolve("dickie.txt");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            BinaryTaskFile.write(out, tasks, 5, 0);
+        }
+        return file;
+    }
+
+    @Test
+    public void read_truncatedFile_completeRecordsRecovered() throws Exception {
+        Path file = writeSample(new ArrayList<>());
+        byte[] bytes = Files.readAllBytes(file);
+        int indexSize = 3 * Integer.BYTES + Integer.BYTES;
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - indexSize - 3));
+
+        BinaryTaskFile binaryFile = new BinaryTaskFile();
+        List<Task> read = new ArrayList<>();
+        binaryFile.read(file, read);
+
+        assertEquals(2, read.size());
+        assertEquals(5, binaryFile.getSeq());
+        assertTrue(binaryFile.getRecoveryReport().isTruncated());
+        assertEquals(3, binaryFile.getRecoveryReport().getExpectedCount());
+    }
+
+    @Test
+    public void read_corruptedRecord_otherRecordsRecovered() throws Exception {
+        List<Task> tasks = new ArrayList<>();
+        Path file = writeSample(tasks);
+        byte[] bytes = Files.readAllBytes(file);
+        int descriptionStart = indexOf(bytes, "submit report".getBytes(StandardCharsets.UTF_8));
+        bytes[descriptionStart] ^= 0x01;
+        Files.write(file, bytes);
+
+        BinaryTaskFile binaryFile = new BinaryTaskFile();
+        List<Task> read = new ArrayList<>();
+        binaryFile.read(file, read);
+
+        assertEquals(2, read.size());
+        assertEquals(tasks.get(0).toFileString(), read.get(0).toFileString());
+        assertEquals(tasks.get(2).toFileString(), read.get(1).toFileString());
+        RecoveryReport report = binaryFile.getRecoveryReport();
+        assertFalse(report.isTruncated());
+        assertEquals(1, report.getSkippedRanges().size());
+        assertTrue(report.getSkippedRanges().get(0)[0] < descriptionStart);
+        assertTrue(report.getSkippedRanges().get(0)[1] > descriptionStart);
+    }
+
+    private static int indexOf(byte[] bytes, byte[] target) {
+        for (int i = 0; i + target.length <= bytes.length; i++) {
+            if (Arrays.equals(bytes, i, i + target.length, target, 0, target.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void readLazily_tasksWithIds_idsReadWithoutDecoding() throws Exception {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Todo todo = new Todo("task " + i, Priority.LOW);
+            todo.setId(1000L * (i + 1));
+            tasks.add(todo);
+        }
+        tasks.add(new Todo("no id", Priority.LOW));
+        Path file = tempDir.resolve("dickie.txt");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            BinaryTaskFile.write(out, tasks, 0, 0);
+        }
+
+        LazyTaskList read = new BinaryTaskFile().readLazily(file, 0);
+
+        assertEquals(3000, read.maxId());
+        assertEquals(1, read.indexOfId(2000));
+        assertEquals(-1, read.indexOfId(4000));
+        assertEquals(2000, read.get(1).getId());
+        assertEquals(0, read.get(3).getId());
+    }
+}
@@ -0,0 +1,130 @@
+package dickie.utils;
+
+import dickie.task.Deadline;
+import dickie.task.Event;
+import dickie.task.Priority;
+import dickie.task.Task;
+import dickie.task.Todo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ColumnarTaskListTest {
+    @TempDir
+    Path tempDir;
+
+    private static List<Task> sampleTasks() {
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Deadline("submit report", "2026-03-01", Priority.HIGH));
+        tasks.add(new Event("caf\u00e9 camp", "1969-12-30", "2026-04-03", Priority.MEDIUM, true));
+        tasks.add(new Todo("run marathon", Priority.LOW));
+        TaskList.assignMissingIds(tasks);
+        return tasks;
+    }
+
+    @Test
+    public void get_everyTaskType_sameFieldsAsOriginal() {
+        List<Task> tasks = sampleTasks();
+        ColumnarTaskList columns = ColumnarTaskList.of(tasks);
+
+        assertEquals(tasks.size(), columns.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).toFileString(), columns.get(i).toFileString());
+            assertEquals(tasks.get(i).getId(), columns.get(i).getId());
+        }
+    }
+
+    @Test
+    public void taskList_columnarList_markByIdAndAddKeepChanges() {
+        TaskList taskList = new TaskList(ColumnarTaskList.of(sampleTasks()));
+
+        taskList.mark("#3");
+        taskList.addTask(new Todo("eat breakfast", Priority.HIGH));
+        taskList.delete("#1");
+
+        List<String> lines = new ArrayList<>();
+        for (Task task : taskList.getTasks()) {
+            lines.add(task.toFileString());
+        }
+        assertEquals(List.of("T |   | eat breakfast | HIGH", "E | X | caf\u00e9 camp | 1969-12-30 | 2026-04-03 | MEDIUM",
+                "T | X | run marathon | LOW"), lines);
+        assertEquals(1, taskList.indexOfId(2));
+    }
+
+    @Test
+    public void remove_manyPositions_sameAsArrayList() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tasks.add(new Todo("task " + i, Priority.LOW));
+        }
+        ColumnarTaskList columns = ColumnarTaskList.of(tasks);
+        List<Task> expected = new ArrayList<>(tasks);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 150; i++) {
+            int index = random.nextInt(expected.size());
+            assertEquals(expected.remove(index).getDescription(), columns.remove(index).getDescription());
+            if (i % 10 == 0) {
+                Todo added = new Todo("added " + i, Priority.LOW);
+                expected.add(added);
+                columns.add(added);
+            }
+        }
+
+        assertEquals(expected.size(), columns.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getDescription(), columns.get(i).getDescription());
+        }
+    }
+
+    @Test
+    public void taskList_offHeapColumns_removeMarkAndAddKeepChanges() {
+        List<Task> tasks = new ArrayList<>(sampleTasks());
+        for (int i = 0; i < 100; i++) {
+            tasks.add(new Todo("task " + i, Priority.LOW));
+        }
+        TaskList.assignMissingIds(tasks);
+        TaskList taskList = new TaskList(ColumnarTaskList.of(tasks, true));
+
+        for (int id = 4; id < 100; id++) {
+            taskList.delete("#" + id);
+        }
+        taskList.mark("#1");
+        taskList.unmark("#2");
+        taskList.addTask(new Todo("eat breakfast", Priority.HIGH));
+
+        List<String> lines = new ArrayList<>();
+        for (Task task : taskList.getTasks()) {
+            lines.add(task.toFileString());
+        }
+        assertEquals(List.of("D | X | submit report | 2026-03-01 | HIGH", "T |   | eat breakfast | HIGH",
+                "E |   | caf\u00e9 camp | 1969-12-30 | 2026-04-03 | MEDIUM", "T |   | run marathon | LOW",
+                "T |   | task 96 | LOW", "T |   | task 97 | LOW", "T |   | task 98 | LOW", "T |   | task 99 | LOW"),
+                lines);
+        assertEquals(7, taskList.indexOfId(103));
+    }
+
+    @Test
+    public void load_columnarConfig_tasksHeldInColumns() {
+        Path file = tempDir.resolve("dickie.txt");
+        StorageConfig config = new StorageConfig();
+        config.setColumnar(true);
+        Storage storage = new Storage(file.toString(), config);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+        storage.save(taskList);
+
+        List<Task> reloaded = new Storage(file.toString(), config).load();
+
+        assertTrue(reloaded instanceof ColumnarTaskList);
+        assertEquals("run marathon", reloaded.get(0).getDescription());
+    }
+}
@@ -0,0 +1,156 @@
+package dickie.utils;
+
+import dickie.task.Priority;
+import dickie.task.Todo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactorTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void start_recordThresholdExceeded_compactsJournalInBackground() throws Exception {
+        StorageConfig config = new StorageConfig();
+        config.setMaxJournalRecords(3);
+        config.setCompactionCheckInterval(Duration.ofMillis(10));
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath, config);
+        TaskList taskList = new TaskList(storage.load());
+        storage.attach(taskList);
+
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+        taskList.addTask(new Todo("eat breakfast", Priority.HIGH));
+        taskList.addTask(new Todo("make breakfast", Priority.MEDIUM));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (storage.getCompactionMetrics().getCompactionCount() == 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, storage.getCompactionMetrics().getCompactionCount());
+        assertTrue(storage.getCompactionMetrics().getLastBytesReclaimed() > 0);
+        assertFalse(Files.exists(tempDir.resolve("dickie.txt.journal")));
+        assertFalse(Files.exists(tempDir.resolve("dickie.txt.journal.1")));
+        assertEquals(3, new Storage(filePath).load().size());
+        storage.close();
+    }
+
+    @Test
+    public void isThresholdExceeded_belowAllThresholds_returnsFalse() {
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath);
+        Journal journal = storage.getJournal();
+        Compactor compactor = new Compactor(storage, journal, new StorageConfig());
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(journal);
+
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+
+        assertFalse(compactor.isThresholdExceeded());
+    }
+
+    @Test
+    public void compact_mutationsAfterCompaction_keptInJournal() {
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+        storage.save(taskList);
+        taskList.addTask(new Todo("eat breakfast", Priority.HIGH));
+        taskList.mark("2");
+
+        TaskList restored = new TaskList(new Storage(filePath).load());
+
+        assertEquals(2, restored.getSize());
+        assertEquals("[T][X][LOW] run marathon", restored.getTasks().get(1).toString());
+    }
+
+    @Test
+    public void compact_requestsWithinCommitWindow_coalescedIntoOneWrite() {
+        StorageConfig config = new StorageConfig();
+        config.setCommitWindow(Duration.ofMillis(200));
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath, config);
+        Journal journal = storage.getJournal();
+        Compactor compactor = new Compactor(storage, journal, config);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(journal);
+
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+        CompletableFuture<Void> first = compactor.compact(taskList);
+        taskList.addTask(new Todo("eat breakfast", Priority.HIGH));
+        CompletableFuture<Void> second = compactor.compact(taskList);
+        taskList.addTask(new Todo("make breakfast", Priority.MEDIUM));
+        CompletableFuture<Void> third = compactor.compact(taskList);
+        CompletableFuture.allOf(first, second, third).join();
+
+        assertEquals(1, compactor.getMetrics().getCompactionCount());
+        assertEquals(3, compactor.getMetrics().getRequestCount());
+        assertFalse(Files.exists(tempDir.resolve("dickie.txt.journal.1")));
+        assertFalse(Files.exists(tempDir.resolve("dickie.txt.journal.3")));
+        assertEquals(3, new Storage(filePath).load().size());
+    }
+
+    @Test
+    public void compact_markedAfterCapture_snapshotKeepsCapturedStatus() throws Exception {
+        StorageConfig config = new StorageConfig();
+        config.setFormat(StorageFormat.TEXT);
+        config.setCommitWindow(Duration.ofMillis(200));
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath, config);
+        Journal journal = storage.getJournal();
+        Compactor compactor = new Compactor(storage, journal, config);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(journal);
+
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+        CompletableFuture<Void> compaction = compactor.compact(taskList);
+        taskList.mark("1");
+        compaction.join();
+
+        List<String> lines = Files.readAllLines(tempDir.resolve("dickie.txt"));
+        assertEquals("#next 2", lines.get(1));
+        assertEquals("#1 | T |   | run marathon | LOW", lines.get(2));
+        assertEquals("[T][X][LOW] run marathon",
+                new Storage(filePath, config).load().get(0).toString());
+    }
+
+    @Test
+    public void compact_snapshotCannotBeWritten_completesExceptionally() throws Exception {
+        Path dataPath = tempDir.resolve("dickie.bin");
+        Storage storage = new Storage(dataPath.toString());
+        Journal journal = storage.getJournal();
+        Compactor compactor = new Compactor(storage, journal, new StorageConfig());
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(journal);
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+        // a non-empty directory in place of the data file cannot be replaced
+        Files.delete(dataPath);
+        Files.createDirectories(dataPath.resolve("blocker"));
+
+        CompletableFuture<Void> compaction = compactor.compact(taskList);
+
+        CompletionException e = assertThrows(CompletionException.class, compaction::join);
+        assertInstanceOf(IOException.class, e.getCause());
+        assertEquals(0, compactor.getMetrics().getCompactionCount());
+        assertTrue(Files.exists(tempDir.resolve("dickie.bin.journal.1")));
+    }
+}
@@ -0,0 +1,282 @@
+package dickie.utils;
+
+import dickie.task.Priority;
+import dickie.task.Task;
+import dickie.task.Todo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class JournalTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void load_withoutSave_replaysJournaledMutations() {
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+        taskList.addTask(new Todo("eat breakfast", Priority.HIGH));
+        taskList.addTask(new Todo("make breakfast", Priority.MEDIUM));
+        taskList.mark("2");
+        taskList.delete("1");
+
+        // simulate a crash: the data file was never saved
+        List<Task> restored = new Storage(filePath).load();
+
+        assertEquals(2, restored.size());
+        assertEquals("[T][X][MEDIUM] make breakfast", restored.get(0).toString());
+        assertEquals("[T][ ][LOW] run marathon", restored.get(1).toString());
+    }
+
+    @Test
+    public void mark_returned_recordWrittenToJournalFile() throws Exception {
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+
+        taskList.mark("1");
+
+        List<String> records = Files.readAllLines(tempDir.resolve("dickie.txt.journal"));
+        assertEquals(2, records.size());
+        assertEquals("2 | M | 1", records.get(1));
+    }
+
+    @Test
+    public void getLastSeq_recordsNotFlushed_numberedInOrderRecorded() throws Exception {
+        Journal journal = new Journal(tempDir.resolve("dickie.txt.journal"));
+        journal.recordMark("1");
+        journal.recordUnmark("2");
+
+        assertEquals(2, journal.getLastSeq());
+        journal.recordDelete("1");
+        journal.flush();
+
+        assertEquals(List.of("1 | M | 1", "2 | U | 2", "3 | X | 1"),
+                Files.readAllLines(tempDir.resolve("dickie.txt.journal")));
+    }
+
+    @Test
+    public void save_journaledMutations_clearsJournalAndKeepsTasks() {
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+        storage.save(taskList);
+
+        assertFalse(Files.exists(tempDir.resolve("dickie.txt.journal")));
+        assertEquals(1, new Storage(filePath).load().size());
+    }
+
+    @Test
+    public void load_journalRecordsAlreadySaved_notReplayedTwice() throws Exception {
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+        String journal = Files.readString(tempDir.resolve("dickie.txt.journal"));
+        storage.save(taskList);
+
+        // simulate a crash between writing the data file and clearing the journal
+        Files.writeString(tempDir.resolve("dickie.txt.journal"), journal);
+
+        assertEquals(1, new Storage(filePath).load().size());
+    }
+
+    @Test
+    public void load_withoutSave_replayedTasksKeepTheirIds() {
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+        taskList.addTask(new Todo("eat breakfast", Priority.HIGH));
+        storage.save(taskList);
+        taskList.delete("1");
+        Todo added = new Todo("make breakfast", Priority.MEDIUM);
+        taskList.addTask(added);
+
+        // simulate a crash: only the journal has the mutations made after the save
+        TaskList restored = new TaskList(new Storage(filePath).load());
+
+        assertEquals(0, restored.indexOfId(added.getId()));
+        assertEquals(1, restored.indexOfId(1));
+        assertEquals(-1, restored.indexOfId(2));
+    }
+
+    @Test
+    public void load_concurrentMarksOnSharedTasks_replaysToSameState() throws InterruptedException {
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+        for (int i = 0; i < 8; i++) {
+            taskList.addTask(new Todo("task " + i, Priority.values()[i % 3]));
+        }
+
+        // threads race to mark and unmark the same tasks, so only the journal order decides the outcome
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    String taskNumber = "#" + (i % 8 + 1);
+                    if ((thread + i) % 2 == 0) {
+                        taskList.mark(taskNumber);
+                    } else {
+                        taskList.unmark(taskNumber);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<Task> restored = new Storage(filePath).load();
+        List<Task> tasks = taskList.getTasks();
+        assertEquals(tasks.size(), restored.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).toFileString(), restored.get(i).toFileString());
+        }
+    }
+
+    @Test
+    public void load_bulkMarkAndDelete_replaysEveryRecord() {
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+        for (int i = 1; i <= 6; i++) {
+            taskList.addTask(new Todo("task " + i, Priority.values()[i % 3]));
+        }
+
+        taskList.markAll("1,3-4");
+        taskList.deleteAll("2-5");
+
+        List<Task> restored = new Storage(filePath).load();
+        List<Task> tasks = taskList.getTasks();
+        assertEquals(2, restored.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).toFileString(), restored.get(i).toFileString());
+        }
+        // six adds, then each bulk change framed by a begin and a commit marker
+        assertEquals(17, storage.getJournal().getLastSeq());
+    }
+
+    @Test
+    public void load_committedAndRolledBackTransactions_replaysOnlyCommitted() {
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+
+        taskList.begin();
+        taskList.addTask(new Todo("eat breakfast", Priority.HIGH));
+        taskList.mark("2");
+        taskList.commit();
+        taskList.begin();
+        taskList.delete("1");
+        taskList.addTask(new Todo("make breakfast", Priority.MEDIUM));
+        taskList.rollback();
+
+        List<Task> restored = new Storage(filePath).load();
+        assertEquals(2, restored.size());
+        assertEquals("[T][ ][HIGH] eat breakfast", restored.get(0).toString());
+        assertEquals("[T][X][LOW] run marathon", restored.get(1).toString());
+        // the add, then the committed batch framed by a begin and a commit marker
+        assertEquals(5, storage.getJournal().getLastSeq());
+    }
+
+    @Test
+    public void load_markAfterRolledBackFirstAdd_replaysOntoSameTask() {
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("low task", Priority.LOW));
+        tasks.add(new Todo("high task", Priority.HIGH));
+        Storage storage = new Storage(filePath);
+        storage.save(new TaskList(tasks));
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+
+        taskList.begin();
+        taskList.addTask(new Todo("x", Priority.HIGH));
+        taskList.rollback();
+        Task marked = taskList.mark("1");
+
+        // simulate a crash: the data file was never saved after the mark
+        List<Task> restored = new Storage(filePath).load();
+        assertEquals("low task", marked.getDescription());
+        assertEquals("[T][X][LOW] low task", restored.get(0).toString());
+        assertEquals("[T][ ][HIGH] high task", restored.get(1).toString());
+    }
+
+    @Test
+    public void load_batchCutShortBeforeCommit_noRecordOfItReplayed() throws Exception {
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+        taskList.begin();
+        taskList.addTask(new Todo("eat breakfast", Priority.HIGH));
+        taskList.delete("2");
+        taskList.commit();
+
+        // simulate a crash in the middle of appending the batch, before its commit marker
+        Path journal = tempDir.resolve("dickie.txt.journal");
+        List<String> lines = Files.readAllLines(journal);
+        assertEquals("5 | C", lines.get(4).substring(0, 5));
+        Files.writeString(journal, String.join(System.lineSeparator(), lines.subList(0, 4)));
+
+        List<Task> restored = new Storage(filePath).load();
+        assertEquals(1, restored.size());
+        assertEquals("[T][ ][LOW] run marathon", restored.get(0).toString());
+    }
+
+    @Test
+    public void load_lastRecordCutShort_droppedAndLaterRecordsReplayed() throws Exception {
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+        for (int i = 1; i <= 12; i++) {
+            taskList.addTask(new Todo("task " + i, Priority.LOW));
+        }
+        taskList.delete("12");
+
+        // simulate a crash that cut "13 | X | 12" short to "13 | X | 1"
+        Path journal = tempDir.resolve("dickie.txt.journal");
+        String text = Files.readString(journal);
+        Files.writeString(journal, text.substring(0, text.lastIndexOf("2" + System.lineSeparator())));
+
+        Storage reloaded = new Storage(filePath);
+        TaskList restored = new TaskList(reloaded.load());
+        assertEquals(12, restored.getSize());
+        restored.setJournal(reloaded.getJournal());
+        restored.mark("1");
+
+        List<Task> tasks = new Storage(filePath).load();
+        assertEquals(12, tasks.size());
+        assertEquals("[T][X][LOW] task 1", tasks.get(0).toString());
+    }
+}
@@ -0,0 +1,111 @@
+package dickie.utils;
+
+import dickie.task.Deadline;
+import dickie.task.Event;
+import dickie.task.Priority;
+import dickie.task.Task;
+import dickie.task.Todo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LazyTaskListTest {
+    @TempDir
+    Path tempDir;
+
+    private LazyTaskList writeAndOpen(List<Task> tasks, int cacheSize) throws Exception {
+        Path file = tempDir.resolve("dickie.txt");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            BinaryTaskFile.write(out, tasks, 0, 0);
+        }
+        return new BinaryTaskFile().readLazily(file, cacheSize);
+    }
+
+    private static List<Task> sampleTasks() {
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Deadline("submit report", "2026-03-01", Priority.HIGH));
+        tasks.add(new Event("camp", "2026-04-01", "2026-04-03", Priority.MEDIUM));
+        tasks.add(new Todo("run marathon", Priority.LOW));
+        return tasks;
+    }
+
+    @Test
+    public void mark_taskEvictedFromCache_changeKept() throws Exception {
+        TaskList taskList = new TaskList(writeAndOpen(sampleTasks(), 1));
+
+        taskList.mark("1");
+        taskList.getTasks().get(1);
+        taskList.getTasks().get(2);
+
+        assertTrue(taskList.getTasks().get(0).isDone());
+        assertFalse(taskList.getTasks().get(1).isDone());
+    }
+
+    @Test
+    public void addTask_lazyList_insertedInPriorityOrder() throws Exception {
+        TaskList taskList = new TaskList(writeAndOpen(sampleTasks(), 0));
+
+        taskList.addTask(new Todo("eat breakfast", Priority.MEDIUM));
+
+        assertEquals("camp", taskList.getTasks().get(1).getDescription());
+        assertEquals("eat breakfast", taskList.getTasks().get(2).getDescription());
+        assertEquals("run marathon", taskList.getTasks().get(3).getDescription());
+    }
+
+    @Test
+    public void write_changedLazyList_sameTasksAfterReload() throws Exception {
+        TaskList taskList = new TaskList(writeAndOpen(sampleTasks(), 0));
+        taskList.unmark("3");
+        taskList.mark("2");
+        taskList.delete("1");
+        taskList.addTask(new Todo("eat breakfast", Priority.HIGH));
+        List<Task> expected = new ArrayList<>(taskList.getTasks());
+
+        Path copy = tempDir.resolve("copy.txt");
+        try (OutputStream out = Files.newOutputStream(copy)) {
+            BinaryTaskFile.write(out, taskList.copyTasks(), 4, 0);
+        }
+        LazyTaskList reloaded = new BinaryTaskFile().readLazily(copy, 0);
+
+        assertEquals(expected.size(), reloaded.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toFileString(), reloaded.get(i).toFileString());
+        }
+    }
+
+    @Test
+    public void remove_manyPositions_sameAsArrayList() throws Exception {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tasks.add(new Todo("task " + i, Priority.LOW));
+        }
+        LazyTaskList lazyTasks = writeAndOpen(tasks, 4);
+        List<Task> expected = new ArrayList<>(tasks);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 150; i++) {
+            int index = random.nextInt(expected.size());
+            assertEquals(expected.remove(index).getDescription(), lazyTasks.remove(index).getDescription());
+            if (i % 10 == 0) {
+                Todo added = new Todo("added " + i, Priority.LOW);
+                expected.add(added);
+                lazyTasks.add(added);
+            }
+        }
+
+        assertEquals(expected.size(), lazyTasks.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getDescription(), lazyTasks.get(i).getDescription());
+        }
+    }
+}
@@ -1,12 +1,33 @@
 package dickie.utils;
 
 import dickie.exception.DickieException;
+import dickie.task.Priority;
+import dickie.task.Task;
+import dickie.task.Todo;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class StorageTest {
+    @TempDir
+    Path tempDir;
 
     @Test
     public void parseTask_invalidInput_exceptionThrown(){
@@ -19,4 +40,183 @@ public class StorageTest {
                          e.getMessage());
         }
     }
+
+    @Test
+    public void writeSnapshot_existingFile_replacedWithoutLeavingTempFile() throws Exception {
+        Path dataFile = tempDir.resolve("dickie.txt");
+        Files.writeString(dataFile, "T |   | old task | LOW" + System.lineSeparator());
+        StorageConfig config = new StorageConfig();
+        config.setFormat(StorageFormat.TEXT);
+        Storage storage = new Storage(dataFile.toString(), config);
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("new task", Priority.HIGH));
+
+        assertTrue(storage.writeSnapshot(tasks, 7, 0));
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of(dataFile), files.collect(Collectors.toList()));
+        }
+        List<String> lines = Files.readAllLines(dataFile);
+        assertEquals(List.of("#seq 7", "T |   | new task | HIGH"), lines);
+    }
+
+    @Test
+    public void load_legacyTextFile_migratedToBinary() throws Exception {
+        Path dataFile = tempDir.resolve("dickie.txt");
+        String text = "#seq 3" + System.lineSeparator()
+                + "T | X | run marathon | LOW" + System.lineSeparator()
+                + "D |   | submit report | 2026-03-01 | HIGH" + System.lineSeparator()
+                + "E |   | camp | 2026-04-01 | 2026-04-03 | MEDIUM" + System.lineSeparator();
+        Files.writeString(dataFile, text);
+
+        List<Task> tasks = new Storage(dataFile.toString()).load();
+
+        assertEquals(3, tasks.size());
+        Path binaryFile = tempDir.resolve("dickie.bin");
+        assertTrue(BinaryTaskFile.isBinary(binaryFile));
+        assertTrue(Files.size(binaryFile) < text.length());
+        assertEquals(text, Files.readString(dataFile));
+        List<Task> reloaded = new Storage(dataFile.toString()).load();
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).toFileString(), reloaded.get(i).toFileString());
+        }
+    }
+
+    @Test
+    public void load_damagedBinaryFile_salvagedAndRewritten() throws Exception {
+        Path dataFile = tempDir.resolve("dickie.bin");
+        Storage storage = new Storage(dataFile.toString());
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("run marathon", Priority.HIGH));
+        tasks.add(new Todo("eat breakfast", Priority.LOW));
+        assertTrue(storage.writeSnapshot(tasks, 0, 0));
+        byte[] bytes = Files.readAllBytes(dataFile);
+        Files.write(dataFile, Arrays.copyOf(bytes, bytes.length - 3 * Integer.BYTES - 3)); // cut into the last record
+
+        List<Task> loaded = new Storage(dataFile.toString()).load();
+
+        assertEquals(1, loaded.size());
+        assertTrue(Files.exists(tempDir.resolve("dickie.bin.damaged")));
+        BinaryTaskFile binaryFile = new BinaryTaskFile();
+        binaryFile.read(dataFile, new ArrayList<>());
+        assertNull(binaryFile.getRecoveryReport());
+    }
+
+    @Test
+    public void load_damagedBinaryHeader_journalSetAsideInsteadOfReplayed() throws Exception {
+        Path dataFile = tempDir.resolve("dickie.bin");
+        Storage storage = new Storage(dataFile.toString());
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("run marathon", Priority.HIGH));
+        tasks.add(new Todo("eat breakfast", Priority.LOW));
+        assertTrue(storage.writeSnapshot(tasks, 2, 0));
+        byte[] bytes = Files.readAllBytes(dataFile);
+        bytes[5] ^= 1; // the sequence number in the header
+        Files.write(dataFile, bytes);
+        String journal = "2 | X | 1" + System.lineSeparator() + "3 | M | 1" + System.lineSeparator();
+        Files.writeString(tempDir.resolve("dickie.bin.journal"), journal);
+
+        List<Task> loaded = new Storage(dataFile.toString()).load();
+
+        assertEquals(2, loaded.size());
+        assertEquals("T |   | run marathon | HIGH", loaded.get(0).toFileString());
+        assertFalse(Files.exists(tempDir.resolve("dickie.bin.journal")));
+        assertEquals(journal, Files.readString(tempDir.resolve("dickie.bin.journal.unreplayed")));
+    }
+
+    @Test
+    public void writeSnapshot_gzExtension_compressedTextWritten() throws Exception {
+        Path dataFile = tempDir.resolve("dickie.txt.gz");
+        Storage storage = new Storage(dataFile.toString());
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("run marathon", Priority.HIGH));
+        tasks.add(new Todo("eat breakfast", Priority.LOW));
+
+        assertTrue(storage.writeSnapshot(tasks, 2, 0));
+
+        assertTrue(CompressedTaskFile.isCompressed(dataFile));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(dataFile)), StandardCharsets.UTF_8))) {
+            List<String> lines = reader.lines().collect(Collectors.toList());
+            assertEquals(List.of("#seq 2", tasks.get(0).toFileString(), tasks.get(1).toFileString()), lines);
+        }
+        List<Task> loaded = new Storage(dataFile.toString()).load();
+        assertEquals(2, loaded.size());
+        assertEquals(tasks.get(1).toFileString(), loaded.get(1).toFileString());
+    }
+
+    @Test
+    public void load_textFileWithIds_idsKeptAndMissingIdsAssigned() throws Exception {
+        Path dataFile = tempDir.resolve("dickie.txt");
+        Files.writeString(dataFile, "#seq 0" + System.lineSeparator()
+                + "#7 | T | X | run marathon | LOW" + System.lineSeparator()
+                + "T |   | eat breakfast | LOW" + System.lineSeparator());
+        StorageConfig config = new StorageConfig();
+        config.setFormat(StorageFormat.TEXT);
+
+        List<Task> tasks = new Storage(dataFile.toString(), config).load();
+
+        assertEquals(7, tasks.get(0).getId());
+        assertEquals(8, tasks.get(1).getId());
+        assertEquals(List.of("#seq 0", "#7 | T | X | run marathon | LOW", "#8 | T |   | eat breakfast | LOW"),
+                Files.readAllLines(dataFile));
+    }
+
+    @Test
+    public void load_newestTaskDeletedAndSaved_deletedIdNotReused() throws Exception {
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+        taskList.addTask(new Todo("eat breakfast", Priority.LOW));
+        taskList.delete("#2");
+        storage.save(taskList);
+
+        TaskList restored = new TaskList(new Storage(filePath).load());
+        restored.addTask(new Todo("read book", Priority.LOW));
+
+        assertEquals(3, restored.getTasks().get(1).getId());
+    }
+
+    @Test
+    public void load_newestTaskDeletedInJournal_deletedIdNotReused() throws Exception {
+        String filePath = tempDir.resolve("dickie.txt").toString();
+        StorageConfig config = new StorageConfig();
+        config.setFormat(StorageFormat.TEXT);
+        Storage storage = new Storage(filePath, config);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.setJournal(storage.getJournal());
+        taskList.addTask(new Todo("run marathon", Priority.LOW));
+        storage.save(taskList);
+        taskList.addTask(new Todo("eat breakfast", Priority.LOW));
+        taskList.delete("#2");
+
+        Storage reloaded = new Storage(filePath, config);
+        TaskList restored = new TaskList(reloaded.load());
+        restored.setJournal(reloaded.getJournal());
+        restored.addTask(new Todo("read book", Priority.LOW));
+        reloaded.save(restored);
+
+        assertEquals(3, restored.getTasks().get(1).getId());
+        assertEquals(List.of("#seq 4", "#next 4", "#1 | T |   | run marathon | LOW", "#3 | T |   | read book | LOW"),
+                Files.readAllLines(tempDir.resolve("dickie.txt")));
+    }
+
+    @Test
+    public void load_columnarTextFileWithoutIds_readIntoColumnsWithIdsAssigned() throws Exception {
+        Path dataFile = tempDir.resolve("dickie.txt");
+        Files.writeString(dataFile, "T |   | run marathon | LOW" + System.lineSeparator()
+                + "T | X | eat breakfast | HIGH" + System.lineSeparator());
+        StorageConfig config = new StorageConfig();
+        config.setFormat(StorageFormat.TEXT);
+        config.setColumnar(true);
+
+        List<Task> tasks = new Storage(dataFile.toString(), config).load();
+
+        assertTrue(tasks instanceof ColumnarTaskList);
+        assertEquals(1, tasks.get(0).getId());
+        assertEquals(2, tasks.get(1).getId());
+        assertEquals("#2 | T | X | eat breakfast | HIGH", Files.readAllLines(dataFile).get(2));
+    }
 }
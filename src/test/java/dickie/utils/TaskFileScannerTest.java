@@ -0,0 +1,118 @@
+package dickie.utils;
+
+import dickie.task.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TaskFileScannerTest {
+    @TempDir
+    Path tempDir;
+
+    private List<Task> scan(String contents, TaskFileScanner scanner) throws Exception {
+        Path file = tempDir.resolve("dickie.txt");
+        Files.writeString(file, contents, StandardCharsets.UTF_8);
+        List<Task> tasks = new ArrayList<>();
+        scanner.scanFile(file, tasks);
+        return tasks;
+    }
+
+    @Test
+    public void scanFile_allTaskTypes_matchParseTask() throws Exception {
+        String[] lines = {
+            "T | X | buy apples | HIGH",
+            "D |   | cs2103t ip | 2026-02-23 | HIGH",
+            "E | X | buy jacket | 2023-02-02 | 2023-02-03 | MEDIUM",
+        };
+        List<Task> tasks = scan(String.join("\n", lines) + "\n", new TaskFileScanner());
+
+        assertEquals(3, tasks.size());
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(Storage.parseTask(lines[i]).toString(), tasks.get(i).toString());
+            assertEquals(lines[i], tasks.get(i).toFileString());
+        }
+    }
+
+    @Test
+    public void scanFile_headerCrlfAndNoTrailingNewline_parsedCorrectly() throws Exception {
+        TaskFileScanner scanner = new TaskFileScanner();
+        List<Task> tasks = scan("#seq 42\r\nT |   | caf\u00e9 au lait | LOW\r\n\r\nT | X | pack room | MEDIUM", scanner);
+
+        assertEquals(42, scanner.getSeq());
+        assertEquals(2, tasks.size());
+        assertEquals("T |   | caf\u00e9 au lait | LOW", tasks.get(0).toFileString());
+        assertEquals("T | X | pack room | MEDIUM", tasks.get(1).toFileString());
+    }
+
+    @Test
+    public void scanFile_invalidLines_skipped() throws Exception {
+        List<Task> tasks = scan("X | T | homework | 2024-06-30 | LOW\n"
+                + "T |   | homework | URGENT\n"
+                + "D |   | homework | LOW\n"
+                + "T |   | homework | LOW\n", new TaskFileScanner());
+
+        assertEquals(1, tasks.size());
+        assertEquals("T |   | homework | LOW", tasks.get(0).toFileString());
+    }
+
+    @Test
+    public void scanFileInParallel_manySmallChunks_keepsFileOrder() throws Exception {
+        StringBuilder contents = new StringBuilder("#seq 9\n");
+        for (int i = 0; i < 500; i++) {
+            contents.append(i % 2 == 0 ? "T | X | task " + i + " | LOW\n"
+                                       : "D |   | task " + i + " | 2026-03-01 | HIGH\n");
+        }
+        Path file = tempDir.resolve("dickie.txt");
+        Files.writeString(file, contents.toString(), StandardCharsets.UTF_8);
+
+        TaskFileScanner sequential = new TaskFileScanner();
+        List<Task> expected = new ArrayList<>();
+        sequential.scanFile(file, expected);
+        TaskFileScanner parallel = new TaskFileScanner();
+        List<Task> actual = new ArrayList<>();
+        parallel.scanFileInParallel(file, actual, 100);
+
+        assertEquals(500, actual.size());
+        assertEquals(9, parallel.getSeq());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toFileString(), actual.get(i).toFileString());
+        }
+    }
+
+    @Test
+    public void scanStream_linesLongerThanBuffer_allTasksScanned() throws Exception {
+        String contents = "#seq 4\nT | X | a description longer than the buffer | LOW\n"
+                + "E |   | camp | 2026-04-01 | 2026-04-03 | MEDIUM";
+        TaskFileScanner scanner = new TaskFileScanner();
+        List<Task> tasks = new ArrayList<>();
+
+        scanner.scanStream(new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8)), tasks, 8);
+
+        assertEquals(4, scanner.getSeq());
+        assertEquals(2, tasks.size());
+        assertEquals("T | X | a description longer than the buffer | LOW", tasks.get(0).toFileString());
+        assertEquals("E |   | camp | 2026-04-01 | 2026-04-03 | MEDIUM", tasks.get(1).toFileString());
+    }
+
+    @Test
+    public void scanFile_fileReplacedAfterScan_replacedWithoutError() throws Exception {
+        List<Task> tasks = scan("#seq 2\nT | X | buy apples | HIGH\n", new TaskFileScanner());
+        Path replacement = tempDir.resolve("dickie.txt.tmp");
+        Files.writeString(replacement, "#seq 3\n", StandardCharsets.UTF_8);
+
+        Files.move(replacement, tempDir.resolve("dickie.txt"), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+
+        assertEquals(1, tasks.size());
+        assertEquals("#seq 3\n", Files.readString(tempDir.resolve("dickie.txt")));
+    }
+}
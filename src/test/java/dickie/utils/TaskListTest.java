@@ -1,13 +1,22 @@
 package dickie.utils;
 
+import dickie.task.Deadline;
+import dickie.task.Event;
 import dickie.task.Priority;
 import dickie.task.Task;
 import dickie.task.Todo;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TaskListTest {
     @Test
@@ -30,4 +39,431 @@ public class TaskListTest {
 
         assertEquals(matchingTasks, expectedResult);
     }
+
+    @Test
+    public void addTask_mixedPriorities_keepsStablePriorityOrder() {
+        TaskList taskList = new TaskList(new ArrayList<>());
+        taskList.addTask(new Todo("low 1", Priority.LOW));
+        taskList.addTask(new Todo("high 1", Priority.HIGH));
+        taskList.addTask(new Todo("medium 1", Priority.MEDIUM));
+        taskList.addTask(new Todo("low 2", Priority.LOW));
+        taskList.addTask(new Todo("high 2", Priority.HIGH));
+
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : taskList.getTasks()) {
+            descriptions.add(task.getDescription());
+        }
+
+        assertEquals(List.of("high 1", "high 2", "medium 1", "low 1", "low 2"), descriptions);
+    }
+
+    @Test
+    public void delete_afterAdds_numbersTasksInListOrder() throws Exception {
+        TaskList taskList = new TaskList(new ArrayList<>());
+        taskList.addTask(new Todo("low", Priority.LOW));
+        taskList.addTask(new Todo("high", Priority.HIGH));
+        taskList.addTask(new Todo("medium", Priority.MEDIUM));
+
+        taskList.mark("3");
+
+        assertEquals("medium", taskList.delete("2").getDescription());
+        assertEquals("T | X | low | LOW", taskList.getTasks().get(1).toFileString());
+    }
+
+    @Test
+    public void mark_byIdAfterTasksMoved_marksSameTask() throws Exception {
+        TaskList taskList = new TaskList(new ArrayList<>());
+        Todo laundry = new Todo("do laundry", Priority.LOW);
+        taskList.addTask(new Todo("eat breakfast", Priority.LOW));
+        taskList.addTask(laundry);
+        long id = laundry.getId();
+
+        taskList.addTask(new Todo("submit report", Priority.HIGH));
+        taskList.delete("2");
+        Task marked = taskList.mark("#" + id);
+
+        assertEquals("do laundry", marked.getDescription());
+        assertEquals(1, taskList.indexOfId(id));
+        assertTrue(taskList.getTasks().get(1).isDone());
+    }
+
+    @Test
+    public void find_andOrQuery_matchingTasksInListOrder() {
+        TaskList taskList = new TaskList(new ArrayList<>());
+        taskList.addTask(new Todo("buy milk and eggs", Priority.LOW));
+        taskList.addTask(new Todo("buy milk", Priority.MEDIUM));
+        taskList.addTask(new Todo("bake bread", Priority.HIGH));
+        taskList.addTask(new Todo("Eggs benedict", Priority.LOW));
+
+        List<String> both = new ArrayList<>();
+        for (Task task : taskList.find("milk egg")) {
+            both.add(task.getDescription());
+        }
+        List<String> either = new ArrayList<>();
+        for (Task task : taskList.find("milk eggs OR bread")) {
+            either.add(task.getDescription());
+        }
+
+        assertEquals(List.of("buy milk and eggs"), both);
+        assertEquals(List.of("bake bread", "buy milk and eggs"), either);
+    }
+
+    @Test
+    public void find_onlyOr_matchesDescriptionsContainingOr() {
+        TaskList taskList = new TaskList(new ArrayList<>());
+        taskList.addTask(new Todo("sort mail", Priority.LOW));
+        taskList.addTask(new Todo("buy milk", Priority.LOW));
+        taskList.addTask(new Todo("call ORACLE", Priority.LOW));
+
+        List<String> found = new ArrayList<>();
+        for (Task task : taskList.find("OR")) {
+            found.add(task.getDescription());
+        }
+
+        assertEquals(List.of("sort mail", "call ORACLE"), found);
+    }
+
+    @Test
+    public void find_afterDeleteAndAdd_indexKeptUpToDate() {
+        TaskList taskList = new TaskList(new ArrayList<>());
+        taskList.addTask(new Todo("submit report", Priority.LOW));
+        assertEquals(1, taskList.find("report").size());
+
+        taskList.delete("1");
+        taskList.addTask(new Todo("review report", Priority.HIGH));
+
+        ArrayList<Task> found = taskList.find("REPORT");
+        assertEquals(1, found.size());
+        assertEquals("review report", found.get(0).getDescription());
+    }
+
+    @Test
+    public void find_substringsOfAnyLength_sameAsScanningEveryTask() {
+        TaskList taskList = new TaskList(new ArrayList<>());
+        List<String> descriptions = List.of("eat breakfast", "Break dance class", "fix brakes", "read a book", "bake");
+        for (String description : descriptions) {
+            taskList.addTask(new Todo(description, Priority.LOW));
+        }
+        taskList.delete("3");
+
+        for (String keyword : List.of("eak", "BREAK", "a", "ak", "book", "xyz")) {
+            List<Task> expected = new ArrayList<>();
+            for (Task task : taskList.getTasks()) {
+                if (task.getDescription().toLowerCase().contains(keyword.toLowerCase())) {
+                    expected.add(task);
+                }
+            }
+            assertEquals(expected, taskList.find(keyword));
+        }
+    }
+
+    @Test
+    public void findByDate_deadlinesAndEvents_orderedByDateWithinRange() {
+        TaskList taskList = new TaskList(new ArrayList<>());
+        taskList.addTask(new Deadline("file taxes", "2026-10-25", Priority.HIGH));
+        taskList.addTask(new Event("conference", "2026-10-20", "2026-10-22", Priority.LOW));
+        taskList.addTask(new Todo("water plants", Priority.LOW));
+        taskList.addTask(new Deadline("pay rent", "2026-11-01", Priority.MEDIUM));
+        taskList.addTask(new Deadline("renew passport", "2026-10-20", Priority.LOW));
+
+        List<String> before = new ArrayList<>();
+        for (Task task : taskList.findByDate(null, LocalDate.parse("2026-10-31"))) {
+            before.add(task.getDescription());
+        }
+        assertEquals(List.of("conference", "renew passport", "file taxes"), before);
+        assertEquals(2, taskList.findByDate(LocalDate.parse("2026-10-20"), LocalDate.parse("2026-10-20")).size());
+
+        taskList.delete("1");
+        List<Task> onDay = taskList.findByDate(LocalDate.parse("2026-10-25"), LocalDate.parse("2026-11-01"));
+        assertEquals(1, onDay.size());
+        assertEquals("pay rent", onDay.get(0).getDescription());
+    }
+
+    @Test
+    public void findByDate_eventSpanningRange_foundOnEveryDayItTakesPlace() {
+        TaskList taskList = new TaskList(new ArrayList<>());
+        taskList.addTask(new Event("conference", "2026-10-18", "2026-10-22", Priority.LOW));
+        taskList.addTask(new Deadline("renew passport", "2026-10-20", Priority.LOW));
+
+        List<Task> onDay = taskList.findByDate(LocalDate.parse("2026-10-20"), LocalDate.parse("2026-10-20"));
+        assertEquals(2, onDay.size());
+        assertEquals("conference", onDay.get(0).getDescription());
+        assertEquals(1, taskList.findByDate(LocalDate.parse("2026-10-22"), LocalDate.parse("2026-10-25")).size());
+        assertEquals(0, taskList.findByDate(LocalDate.parse("2026-10-23"), LocalDate.parse("2026-10-25")).size());
+        assertEquals(1, taskList.findByDate(null, LocalDate.parse("2026-10-18")).size());
+    }
+
+    @Test
+    public void findOverlappingEvents_rangesTouchingAndApart_onlyOverlappingInStartOrder() {
+        TaskList taskList = new TaskList(new ArrayList<>());
+        taskList.addTask(new Event("offsite", "2026-03-10", "2026-03-12", Priority.LOW));
+        taskList.addTask(new Event("conference", "2026-03-01", "2026-03-31", Priority.HIGH));
+        taskList.addTask(new Event("trip", "2026-03-13", "2026-03-15", Priority.LOW));
+        taskList.addTask(new Deadline("report", "2026-03-11", Priority.LOW));
+
+        List<String> clashes = new ArrayList<>();
+        for (Task task : taskList.findOverlappingEvents(LocalDate.parse("2026-03-12"), LocalDate.parse("2026-03-12"))) {
+            clashes.add(task.getDescription());
+        }
+        assertEquals(List.of("conference", "offsite"), clashes);
+
+        taskList.delete("1");
+        assertEquals(2, taskList.findOverlappingEvents(LocalDate.parse("2026-03-11"),
+                LocalDate.parse("2026-03-13")).size());
+        assertTrue(taskList.findOverlappingEvents(LocalDate.parse("2026-04-01"),
+                LocalDate.parse("2026-04-30")).isEmpty());
+    }
+
+    @Test
+    public void findConflictingEvents_loneAndClashingEvents_onlyClashesWithinRange() {
+        TaskList taskList = new TaskList(new ArrayList<>());
+        taskList.addTask(new Event("offsite", "2026-03-10", "2026-03-12", Priority.LOW));
+        taskList.addTask(new Event("workshop", "2026-03-12", "2026-03-13", Priority.LOW));
+        taskList.addTask(new Event("trip", "2026-03-20", "2026-03-22", Priority.LOW));
+        taskList.addTask(new Event("dinner", "2026-03-25", "2026-03-25", Priority.LOW));
+        taskList.addTask(new Event("party", "2026-03-25", "2026-03-25", Priority.LOW));
+
+        List<String> clashes = new ArrayList<>();
+        for (Task task : taskList.findConflictingEvents(LocalDate.parse("2026-03-01"),
+                LocalDate.parse("2026-03-31"))) {
+            clashes.add(task.getDescription());
+        }
+        assertEquals(List.of("offsite", "workshop", "dinner", "party"), clashes);
+
+        // offsite and workshop only clash on the 12th, which is outside this range
+        assertTrue(taskList.findConflictingEvents(LocalDate.parse("2026-03-13"),
+                LocalDate.parse("2026-03-22")).isEmpty());
+    }
+
+    @Test
+    public void findFreeDays_eventsWithGaps_returnsRunsBetweenThem() {
+        TaskList taskList = new TaskList(new ArrayList<>());
+        taskList.addTask(new Event("offsite", "2026-03-03", "2026-03-05", Priority.LOW));
+        taskList.addTask(new Event("workshop", "2026-03-04", "2026-03-06", Priority.LOW));
+        taskList.addTask(new Event("trip", "2026-03-09", "2026-03-09", Priority.LOW));
+
+        List<String> free = new ArrayList<>();
+        for (LocalDate[] days : taskList.findFreeDays(LocalDate.parse("2026-03-01"), LocalDate.parse("2026-03-10"))) {
+            free.add(days[0] + ".." + days[1]);
+        }
+        assertEquals(List.of("2026-03-01..2026-03-02", "2026-03-07..2026-03-08", "2026-03-10..2026-03-10"), free);
+    }
+
+    @Test
+    public void deleteAll_numbersRangesAndIds_referToListBeforeDelete() {
+        TaskList taskList = new TaskList(new ArrayList<>());
+        for (int i = 1; i <= 8; i++) {
+            taskList.addTask(new Todo("task " + i, Priority.LOW));
+        }
+        taskList.find("task");
+
+        List<Task> deleted = taskList.deleteAll("7,2-3,#5,3");
+
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : deleted) {
+            descriptions.add(task.getDescription());
+        }
+        assertEquals(List.of("task 2", "task 3", "task 5", "task 7"), descriptions);
+        assertEquals(4, taskList.getSize());
+        assertEquals(4, taskList.find("task").size());
+        assertEquals(3, taskList.indexOfId(8));
+    }
+
+    @Test
+    public void markAll_thenDeleteDone_removesOnlyMarkedTasks() {
+        TaskList taskList = new TaskList(new ArrayList<>());
+        for (int i = 1; i <= 6; i++) {
+            taskList.addTask(new Todo("task " + i, Priority.LOW));
+        }
+
+        assertEquals(3, taskList.markAll("1-2,5").size());
+        assertEquals(3, taskList.deleteAll("/done").size());
+
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : taskList.getTasks()) {
+            descriptions.add(task.getDescription());
+        }
+        assertEquals(List.of("task 3", "task 4", "task 6"), descriptions);
+        assertEquals(12, taskList.getVersion());
+    }
+
+    @Test
+    public void getTasks_concurrentWritersAndReaders_everySnapshotConsistent() throws InterruptedException {
+        int writerCount = 4;
+        int rounds = 500;
+        int window = 50;
+        TaskList taskList = new TaskList(new ArrayList<>());
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        AtomicBoolean isWriting = new AtomicBoolean(true);
+
+        // each writer adds its tasks in order, marks each before adding the next and deletes its oldest,
+        // so its tasks in any snapshot are a run of consecutive numbers, all done but perhaps the last
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < writerCount; w++) {
+            String writer = "w" + w + " ";
+            writers.add(new Thread(() -> {
+                List<Long> ids = new ArrayList<>();
+                for (int i = 0; i < rounds; i++) {
+                    Todo task = new Todo(writer + i, Priority.LOW);
+                    taskList.addTask(task);
+                    ids.add(task.getId());
+                    taskList.mark("#" + task.getId());
+                    if (i >= window) {
+                        taskList.delete("#" + ids.get(i - window));
+                    }
+                }
+            }));
+        }
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            readers.add(new Thread(() -> {
+                try {
+                    while (isWriting.get()) {
+                        checkSnapshot(taskList.getTasks(), writerCount);
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }));
+        }
+
+        readers.forEach(Thread::start);
+        writers.forEach(Thread::start);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        isWriting.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertTrue(errors.isEmpty(), "Readers saw an inconsistent snapshot: " + errors.peek());
+        assertEquals(writerCount * window, taskList.getSize());
+        assertEquals(writerCount * window, taskList.getTasks().size());
+        checkSnapshot(taskList.getTasks(), writerCount);
+        assertEquals(writerCount * rounds * 2 + writerCount * (rounds - window), taskList.getVersion());
+    }
+
+    @Test
+    public void getTasks_threadsMarkingNeighbouringTasks_everyMarkKept() throws InterruptedException {
+        int threadCount = 4;
+        int taskCount = 1000;
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < taskCount; i++) {
+            tasks.add(new Todo("task " + i, Priority.LOW));
+        }
+        TaskList.assignMissingIds(tasks);
+        TaskList taskList = new TaskList(ColumnarTaskList.of(tasks));
+        List<Task> before = taskList.getTasks();
+
+        // each thread marks every threadCount-th task, so that neighbouring tasks are marked by different threads
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 1; t <= threadCount; t++) {
+            int first = t;
+            threads.add(new Thread(() -> {
+                for (int number = first; number <= taskCount; number += threadCount) {
+                    taskList.mark(String.valueOf(number));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (Task task : taskList.getTasks()) {
+            assertTrue(task.isDone(), "Every mark should be in the snapshot: " + task);
+        }
+        taskList.delete("1");
+        assertEquals(taskCount - 1, taskList.getTasks().size());
+        for (int i = 0; i < taskCount - 1; i++) {
+            assertTrue(taskList.getTasks().get(i).isDone(), "Every mark should be kept after a delete");
+            assertEquals("task " + (i + 1), taskList.getTasks().get(i).getDescription());
+        }
+        for (Task task : before) {
+            assertTrue(!task.isDone(), "An earlier snapshot should not change");
+        }
+        assertEquals(taskCount + 1, taskList.getVersion());
+    }
+
+    private static void checkSnapshot(List<Task> tasks, int writerCount) {
+        int[] next = new int[writerCount];
+        boolean[] isLastUndone = new boolean[writerCount];
+        for (Task task : tasks) {
+            String[] words = task.getDescription().split(" ");
+            int writer = Integer.parseInt(words[0].substring(1));
+            int number = Integer.parseInt(words[1]);
+            assertTrue(!isLastUndone[writer], "Only the newest task of a writer can be undone");
+            assertTrue(next[writer] == 0 || number == next[writer], "Tasks of a writer should be consecutive");
+            next[writer] = number + 1;
+            isLastUndone[writer] = !task.isDone();
+        }
+    }
+
+    @Test
+    public void find_lastTaskWithWordDeleted_wordDroppedFromIndex() {
+        TaskList taskList = new TaskList(new ArrayList<>());
+        taskList.addTask(new Todo("submit report", Priority.LOW));
+        taskList.addTask(new Todo("review report", Priority.LOW));
+        assertEquals(3, taskList.getSearchIndexWordCount());
+        long indexBytes = taskList.getSearchIndexMemory();
+
+        taskList.delete("1");
+
+        assertEquals(2, taskList.getSearchIndexWordCount());
+        assertTrue(taskList.getSearchIndexMemory() < indexBytes);
+        assertEquals(0, taskList.find("sub").size());
+        assertEquals(1, taskList.find("ort").size());
+    }
+
+    @Test
+    public void getTasks_manyRandomChanges_sameAsLiveListAndEarlierSnapshotsUnchanged() {
+        List<Task> tasks = new ArrayList<>();
+        Priority[] priorities = Priority.values();
+        for (int i = 0; i < 300; i++) {
+            tasks.add(new Todo("task " + i, priorities[i % priorities.length]));
+        }
+        TaskList taskList = new TaskList(tasks);
+        Random random = new Random(42);
+
+        List<Task> firstSnapshot = taskList.getTasks();
+        List<String> firstLines = toFileStrings(firstSnapshot);
+        for (int i = 0; i < 2000; i++) {
+            int taskNumber = random.nextInt(taskList.getSize()) + 1;
+            switch (random.nextInt(4)) {
+            case 0 -> taskList.addTask(new Todo("added " + i, priorities[random.nextInt(priorities.length)]));
+            case 1 -> taskList.delete(String.valueOf(taskNumber));
+            default -> taskList.mark(String.valueOf(taskNumber));
+            }
+            assertEquals(toFileStrings(taskList.copyTasks()), toFileStrings(taskList.getTasks()));
+        }
+
+        assertEquals(firstLines, toFileStrings(firstSnapshot));
+    }
+
+    @Test
+    public void rollback_firstAddSortedTasks_oldOrderPutBack() {
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("low", Priority.LOW));
+        tasks.add(new Todo("high", Priority.HIGH));
+        TaskList taskList = new TaskList(tasks);
+        taskList.getTasks();
+
+        taskList.begin();
+        taskList.addTask(new Todo("medium", Priority.MEDIUM));
+        assertEquals(3, taskList.getTasks().size());
+        taskList.rollback();
+
+        assertEquals(toFileStrings(taskList.copyTasks()), toFileStrings(taskList.getTasks()));
+        assertEquals("low", taskList.getTasks().get(0).getDescription());
+        assertEquals("low", taskList.mark("1").getDescription());
+    }
+
+    private static List<String> toFileStrings(List<Task> tasks) {
+        List<String> lines = new ArrayList<>();
+        for (Task task : tasks) {
+            lines.add(task.toFileString());
+        }
+        return lines;
+    }
 }